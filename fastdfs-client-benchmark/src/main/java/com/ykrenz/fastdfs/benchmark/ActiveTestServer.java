@@ -0,0 +1,74 @@
+package com.ykrenz.fastdfs.benchmark;
+
+import com.ykrenz.fastdfs.model.proto.CmdConstants;
+import com.ykrenz.fastdfs.model.proto.ProtoHead;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * 本地回环地址上只响应ACTIVE_TEST的服务端
+ * 用于连接池借还时的连接校验 不依赖FastDFS集群
+ *
+ * @author ykren
+ */
+public class ActiveTestServer implements AutoCloseable {
+
+    private static final byte[] ACTIVE_TEST_RESPONSE =
+            new ProtoHead(0, CmdConstants.FDFS_PROTO_CMD_RESP, (byte) 0).toByte();
+
+    private final ServerSocket serverSocket;
+
+    public ActiveTestServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "active-test-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress(serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort());
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread handler = new Thread(() -> serve(socket), "active-test-handler");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            OutputStream out = s.getOutputStream();
+            byte[] head = new byte[ACTIVE_TEST_RESPONSE.length];
+            while (true) {
+                in.readFully(head);
+                byte cmd = head[head.length - 2];
+                if (cmd == CmdConstants.FDFS_PROTO_CMD_QUIT) {
+                    return;
+                }
+                out.write(ACTIVE_TEST_RESPONSE);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // connection closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
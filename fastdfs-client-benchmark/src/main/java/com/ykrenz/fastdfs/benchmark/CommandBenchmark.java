@@ -0,0 +1,109 @@
+package com.ykrenz.fastdfs.benchmark;
+
+import com.ykrenz.fastdfs.model.fdfs.FileInfo;
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+import com.ykrenz.fastdfs.model.fdfs.StorePath;
+import com.ykrenz.fastdfs.model.proto.CmdConstants;
+import com.ykrenz.fastdfs.model.proto.ProtoHead;
+import com.ykrenz.fastdfs.model.proto.mapper.FdfsParamMapper;
+import com.ykrenz.fastdfs.model.proto.mapper.MetadataMapper;
+import com.ykrenz.fastdfs.model.proto.storage.StorageGetMetadataCommand;
+import com.ykrenz.fastdfs.model.proto.storage.StorageQueryFileInfoCommand;
+import com.ykrenz.fastdfs.model.proto.storage.StorageUploadFileCommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令发送和接收基准测试
+ * 基于内存连接执行完整的send/receive 不经过网络
+ *
+ * @author ykren
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandBenchmark {
+
+    private static final String GROUP = "group1";
+
+    private static final String PATH = "M00/00/00/wKhkyGIKj1uAb6ZcAAAABBf0xVk517.txt";
+
+    /**
+     * 上传文件大小
+     */
+    @Param({"1024", "51200"})
+    private int fileSize;
+
+    private byte[] content;
+
+    private InMemoryConnection uploadConnection;
+
+    private InMemoryConnection queryConnection;
+
+    private InMemoryConnection metadataConnection;
+
+    @Setup
+    public void setup() {
+        content = new byte[fileSize];
+
+        // 上传响应 group(16) + path
+        byte[] path = PATH.getBytes(StandardCharsets.UTF_8);
+        byte[] uploadBody = new byte[16 + path.length];
+        byte[] group = GROUP.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(group, 0, uploadBody, 0, group.length);
+        System.arraycopy(path, 0, uploadBody, 16, path.length);
+        uploadConnection = new InMemoryConnection(response(uploadBody));
+
+        byte[] fileInfoBody = new byte[FdfsParamMapper.getObjectMap(FileInfo.class).getFieldsFixTotalSize()];
+        queryConnection = new InMemoryConnection(response(fileInfoBody));
+
+        Set<MetaData> metaData = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            metaData.add(new MetaData("key" + i, "value" + i));
+        }
+        metadataConnection = new InMemoryConnection(response(MetadataMapper.toByte(metaData, StandardCharsets.UTF_8)));
+    }
+
+    private static byte[] response(byte[] body) {
+        byte[] head = new ProtoHead(body.length, CmdConstants.FDFS_PROTO_CMD_RESP, (byte) 0).toByte();
+        byte[] response = new byte[head.length + body.length];
+        System.arraycopy(head, 0, response, 0, head.length);
+        System.arraycopy(body, 0, response, head.length, body.length);
+        return response;
+    }
+
+    @Benchmark
+    public StorePath uploadFile() {
+        StorageUploadFileCommand command = new StorageUploadFileCommand((byte) 0,
+                new ByteArrayInputStream(content), "txt", fileSize, false);
+        return command.execute(uploadConnection.reset());
+    }
+
+    @Benchmark
+    public FileInfo queryFileInfo() {
+        return new StorageQueryFileInfoCommand(GROUP, PATH).execute(queryConnection.reset());
+    }
+
+    @Benchmark
+    public Set<MetaData> getMetadata() {
+        return new StorageGetMetadataCommand(GROUP, PATH).execute(metadataConnection.reset());
+    }
+}
@@ -0,0 +1,81 @@
+package com.ykrenz.fastdfs.benchmark;
+
+import com.ykrenz.fastdfs.config.ConnectionConfiguration;
+import com.ykrenz.fastdfs.conn.Connection;
+import com.ykrenz.fastdfs.conn.ConnectionPool;
+import com.ykrenz.fastdfs.conn.FdfsConnectionPool;
+import com.ykrenz.fastdfs.conn.LockFreeConnectionPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池借还基准测试
+ * <pre>
+ * 多线程竞争同一地址的连接 连接指向本地{@link ActiveTestServer}
+ * testOnBorrow=true时每次借出都会发送一次ACTIVE_TEST
+ * poolType对比commons-pool2实现的{@link FdfsConnectionPool}和{@link LockFreeConnectionPool}
+ * </pre>
+ *
+ * @author ykren
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ConnectionPoolBenchmark {
+
+    @Param({"true", "false"})
+    private boolean testOnBorrow;
+
+    @Param({"generic", "lockFree"})
+    private String poolType;
+
+    private ActiveTestServer server;
+
+    private ConnectionPool pool;
+
+    private InetSocketAddress address;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new ActiveTestServer();
+        address = server.getAddress();
+        ConnectionConfiguration configuration = new ConnectionConfiguration();
+        GenericKeyedObjectPoolConfig poolConfig = configuration.getPool();
+        poolConfig.setTestOnBorrow(testOnBorrow);
+        poolConfig.setJmxEnabled(false);
+        pool = "lockFree".equals(poolType) ? new LockFreeConnectionPool(configuration)
+                : new FdfsConnectionPool(configuration);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        pool.close();
+        server.close();
+    }
+
+    @Benchmark
+    public Connection borrowAndReturn() throws Exception {
+        Connection connection = pool.borrowObject(address);
+        pool.returnObject(address, connection);
+        return connection;
+    }
+}
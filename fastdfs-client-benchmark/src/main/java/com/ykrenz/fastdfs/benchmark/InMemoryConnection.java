@@ -0,0 +1,88 @@
+package com.ykrenz.fastdfs.benchmark;
+
+import com.ykrenz.fastdfs.conn.Connection;
+import com.ykrenz.fastdfs.model.proto.SendBuffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 内存连接
+ * <pre>
+ * 请求写入内存缓冲 每次读取时重放固定的响应报文
+ * 用于离线测试命令的编码和解码
+ * </pre>
+ *
+ * @author ykren
+ */
+public class InMemoryConnection implements Connection {
+
+    /**
+     * 响应报文
+     */
+    private final byte[] response;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+
+    private ByteArrayInputStream in;
+
+    private final SendBuffer sendBuffer = new SendBuffer();
+
+    public InMemoryConnection(byte[] response) {
+        this.response = response;
+    }
+
+    /**
+     * 重置请求缓冲和响应读取位置 每次执行命令前调用
+     *
+     * @return
+     */
+    public InMemoryConnection reset() {
+        out.reset();
+        in = new ByteArrayInputStream(response);
+        return this;
+    }
+
+    public int getWrittenSize() {
+        return out.size();
+    }
+
+    @Override
+    public void close() {
+        // nothing
+    }
+
+    @Override
+    public boolean isClosed() {
+        return false;
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    @Override
+    public Charset getCharset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    @Override
+    public SendBuffer getSendBuffer() {
+        return sendBuffer;
+    }
+}
@@ -0,0 +1,123 @@
+package com.ykrenz.fastdfs.benchmark;
+
+import com.ykrenz.fastdfs.common.FastDfsUtils;
+import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+import com.ykrenz.fastdfs.model.fdfs.StorageState;
+import com.ykrenz.fastdfs.model.fdfs.StorePath;
+import com.ykrenz.fastdfs.model.proto.CmdConstants;
+import com.ykrenz.fastdfs.model.proto.ProtoHead;
+import com.ykrenz.fastdfs.model.proto.mapper.FdfsParamMapper;
+import com.ykrenz.fastdfs.model.proto.mapper.MetadataMapper;
+import com.ykrenz.fastdfs.model.proto.storage.internal.StorageQueryFileInfoRequest;
+import com.ykrenz.fastdfs.model.proto.storage.internal.StorageUploadFileRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 协议编解码基准测试
+ * <pre>
+ * 报文参数映射 报文头 元数据 文件路径解析 防盗链token
+ * </pre>
+ *
+ * @author ykren
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProtocolCodecBenchmark {
+
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    private static final String PATH = "M00/00/00/wKhkyGIKj1uAb6ZcAAAABBf0xVk517.txt";
+
+    private StorageQueryFileInfoRequest queryRequest;
+
+    private StorageUploadFileRequest uploadRequest;
+
+    private byte[] storageStateBytes;
+
+    private byte[] headBytes;
+
+    private Set<MetaData> metaData;
+
+    private byte[] metaDataBytes;
+
+    @Setup
+    public void setup() {
+        queryRequest = new StorageQueryFileInfoRequest("group1", PATH);
+        uploadRequest = new StorageUploadFileRequest((byte) 0, new ByteArrayInputStream(new byte[0]),
+                "txt", 1024, false);
+        storageStateBytes = new byte[FdfsParamMapper.getObjectMap(StorageState.class).getFieldsFixTotalSize()];
+        headBytes = new ProtoHead(1024, CmdConstants.FDFS_PROTO_CMD_RESP, (byte) 0).toByte();
+        metaData = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            metaData.add(new MetaData("key" + i, "value" + i));
+        }
+        metaDataBytes = MetadataMapper.toByte(metaData, CHARSET);
+    }
+
+    @Benchmark
+    public byte[] paramToByteQuery() {
+        return FdfsParamMapper.toByte(queryRequest, CHARSET);
+    }
+
+    @Benchmark
+    public byte[] paramToByteUpload() {
+        return FdfsParamMapper.toByte(uploadRequest, CHARSET);
+    }
+
+    @Benchmark
+    public StorageState paramMapStorageState() {
+        return FdfsParamMapper.map(storageStateBytes, StorageState.class, CHARSET);
+    }
+
+    @Benchmark
+    public byte[] headToByte() {
+        return new ProtoHead(CmdConstants.FDFS_PROTO_CMD_ACTIVE_TEST).toByte();
+    }
+
+    @Benchmark
+    public ProtoHead headFromInputStream() throws IOException {
+        return ProtoHead.createFromInputStream(new ByteArrayInputStream(headBytes));
+    }
+
+    @Benchmark
+    public byte[] metadataToByte() {
+        return MetadataMapper.toByte(metaData, CHARSET);
+    }
+
+    @Benchmark
+    public Set<MetaData> metadataFromByte() {
+        return MetadataMapper.fromByte(metaDataBytes, CHARSET);
+    }
+
+    @Benchmark
+    public StorePath parseFromUrl() {
+        return StorePath.parseFromUrl("http://192.168.100.200:8888/group1/" + PATH);
+    }
+
+    @Benchmark
+    public String getToken() {
+        return FastDfsUtils.getToken(PATH, 1644825600, FastDFSConstants.DEFAULT_HTTP_SECRET_KEY, CHARSET);
+    }
+}
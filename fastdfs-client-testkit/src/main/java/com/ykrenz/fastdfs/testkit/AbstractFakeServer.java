@@ -0,0 +1,298 @@
+package com.ykrenz.fastdfs.testkit;
+
+import com.ykrenz.fastdfs.common.NamedThreadFactory;
+import com.ykrenz.fastdfs.model.proto.CmdConstants;
+import com.ykrenz.fastdfs.model.proto.OtherConstants;
+import com.ykrenz.fastdfs.model.proto.ProtoHead;
+import com.ykrenz.fastdfs.model.proto.mapper.BytesUtil;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟FastDFS服务端基类
+ * <pre>
+ * 监听本地回环地址 每个连接一个线程 按ProtoHead解析请求
+ * 统一处理ACTIVE_TEST和QUIT 其他命令交由子类处理
+ * 按{@link NetworkConditions}注入延迟、限速和连接重置
+ * 停止后可在同一端口重新启动 用于模拟服务宕机和恢复
+ * 停止后新连接被拒绝 已建立和停止过程中接入的连接被重置 连接池中的连接下次使用时失败
+ * 只需让部分请求失败时使用{@link NetworkConditions#resetNext(int)}等 无需停止服务
+ * </pre>
+ *
+ * @author ykren
+ */
+public abstract class AbstractFakeServer implements Closeable {
+
+    protected static final byte STATUS_OK = 0;
+
+    protected static final byte STATUS_NOT_FOUND = 2;
+
+    protected static final byte STATUS_INVALID = 22;
+
+    private static final int HEAD_LENGTH = OtherConstants.FDFS_PROTO_PKG_LEN_SIZE + 2;
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final NetworkConditions conditions = new NetworkConditions();
+
+    private final ExecutorService executor;
+
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+    private final Map<Byte, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+
+    private final AtomicLong connectionCount = new AtomicLong();
+
+    private volatile ServerSocket serverSocket;
+
+    private int port;
+
+    protected AbstractFakeServer(String name) {
+        this.executor = Executors.newCachedThreadPool(new NamedThreadFactory(name));
+    }
+
+    /**
+     * 启动服务 首次启动使用随机端口 重启时沿用原端口
+     *
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+        if (serverSocket != null) {
+            return;
+        }
+        ServerSocket ss = new ServerSocket();
+        ss.setReuseAddress(true);
+        ss.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.port = ss.getLocalPort();
+        this.serverSocket = ss;
+        executor.execute(() -> accept(ss));
+    }
+
+    /**
+     * 停止服务并重置所有连接
+     */
+    public synchronized void stop() {
+        ServerSocket ss = this.serverSocket;
+        if (ss == null) {
+            return;
+        }
+        this.serverSocket = null;
+        closeQuietly(ss);
+        for (Socket socket : sockets) {
+            reset(socket);
+        }
+        sockets.clear();
+    }
+
+    @Override
+    public void close() {
+        stop();
+        executor.shutdownNow();
+    }
+
+    public boolean isRunning() {
+        return serverSocket != null;
+    }
+
+    public String getIp() {
+        return InetAddress.getLoopbackAddress().getHostAddress();
+    }
+
+    public synchronized int getPort() {
+        return port;
+    }
+
+    /**
+     * 服务地址 ip:port
+     *
+     * @return
+     */
+    public String getAddress() {
+        return getIp() + ":" + getPort();
+    }
+
+    public NetworkConditions getConditions() {
+        return conditions;
+    }
+
+    /**
+     * 收到的指定命令请求数
+     *
+     * @param cmd
+     * @return
+     */
+    public long getRequestCount(byte cmd) {
+        AtomicLong count = requestCounts.get(cmd);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * 累计建立的连接数
+     *
+     * @return
+     */
+    public long getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * 处理请求
+     *
+     * @param cmd  命令
+     * @param body 请求报文体
+     * @return 响应
+     */
+    protected abstract Reply handle(byte cmd, byte[] body);
+
+    private void accept(ServerSocket ss) {
+        while (!ss.isClosed()) {
+            Socket socket;
+            try {
+                socket = ss.accept();
+            } catch (IOException e) {
+                return;
+            }
+            connectionCount.incrementAndGet();
+            sockets.add(socket);
+            // 与stop()并发接入的连接 加入sockets后再检查 保证不会遗漏
+            if (serverSocket != ss) {
+                sockets.remove(socket);
+                reset(socket);
+                return;
+            }
+            executor.execute(() -> serve(socket));
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            byte[] head = new byte[HEAD_LENGTH];
+            while (true) {
+                readFully(in, head, 0, head.length);
+                long length = BytesUtil.buff2long(head, 0);
+                byte cmd = head[OtherConstants.PROTO_HEADER_CMD_INDEX];
+                requestCounts.computeIfAbsent(cmd, key -> new AtomicLong()).incrementAndGet();
+                if (cmd == CmdConstants.FDFS_PROTO_CMD_QUIT) {
+                    return;
+                }
+                if (conditions.shouldReset()) {
+                    reset(socket);
+                    return;
+                }
+                if (length < 0 || length > Integer.MAX_VALUE - 8) {
+                    write(out, Reply.status(STATUS_INVALID));
+                    return;
+                }
+                byte[] body = new byte[(int) length];
+                readFully(in, body, 0, body.length);
+                Reply reply = cmd == CmdConstants.FDFS_PROTO_CMD_ACTIVE_TEST ? Reply.ok() : handle(cmd, body);
+                conditions.delay();
+                write(out, reply);
+            }
+        } catch (IOException e) {
+            // 客户端断开或服务停止
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private void readFully(InputStream in, byte[] buffer, int offset, int length)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, offset + read, Math.min(CHUNK_SIZE, length - read));
+            if (n < 0) {
+                throw new EOFException();
+            }
+            read += n;
+            conditions.pace(read, start);
+        }
+    }
+
+    private void write(OutputStream out, Reply reply) throws IOException, InterruptedException {
+        out.write(new ProtoHead(reply.length, CmdConstants.FDFS_PROTO_CMD_RESP, reply.status).toByte());
+        long start = System.nanoTime();
+        int written = 0;
+        while (written < reply.length) {
+            int n = Math.min(CHUNK_SIZE, reply.length - written);
+            out.write(reply.body, reply.offset + written, n);
+            written += n;
+            conditions.pace(written, start);
+        }
+        out.flush();
+    }
+
+    private void reset(Socket socket) {
+        try {
+            socket.setSoLinger(true, 0);
+        } catch (IOException e) {
+            // ignore
+        }
+        closeQuietly(socket);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * 响应
+     */
+    protected static class Reply {
+
+        private static final byte[] EMPTY = new byte[0];
+
+        private final byte status;
+        private final byte[] body;
+        private final int offset;
+        private final int length;
+
+        private Reply(byte status, byte[] body, int offset, int length) {
+            this.status = status;
+            this.body = body;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        static Reply ok() {
+            return status(STATUS_OK);
+        }
+
+        static Reply ok(byte[] body) {
+            return new Reply(STATUS_OK, body, 0, body.length);
+        }
+
+        static Reply ok(byte[] body, int offset, int length) {
+            return new Reply(STATUS_OK, body, offset, length);
+        }
+
+        static Reply status(byte status) {
+            return new Reply(status, EMPTY, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.ykrenz.fastdfs.testkit;
+
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 文件存储基类 元数据保存在内存中
+ * 所有操作加锁串行执行
+ *
+ * @author ykren
+ */
+public abstract class AbstractFileStore implements FileStore {
+
+    private final Map<String, Set<MetaData>> metadata = new HashMap<>();
+
+    protected abstract boolean exists(String path);
+
+    protected abstract boolean doRename(String path, String newPath);
+
+    protected abstract boolean doDelete(String path);
+
+    @Override
+    public synchronized boolean rename(String path, String newPath) {
+        if (!doRename(path, newPath)) {
+            return false;
+        }
+        Set<MetaData> values = metadata.remove(path);
+        if (values != null) {
+            metadata.put(newPath, values);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(String path) {
+        metadata.remove(path);
+        return doDelete(path);
+    }
+
+    @Override
+    public synchronized Set<MetaData> getMetadata(String path) {
+        if (!exists(path)) {
+            return null;
+        }
+        Set<MetaData> values = metadata.get(path);
+        return values == null ? new HashSet<>() : new HashSet<>(values);
+    }
+
+    @Override
+    public synchronized boolean setMetadata(String path, Set<MetaData> metaData, boolean merge) {
+        if (!exists(path)) {
+            return false;
+        }
+        Map<String, MetaData> values = new HashMap<>();
+        if (merge && metadata.containsKey(path)) {
+            for (MetaData value : metadata.get(path)) {
+                values.put(value.getName(), value);
+            }
+        }
+        for (MetaData value : metaData) {
+            values.put(value.getName(), value);
+        }
+        metadata.put(path, new HashSet<>(values.values()));
+        return true;
+    }
+}
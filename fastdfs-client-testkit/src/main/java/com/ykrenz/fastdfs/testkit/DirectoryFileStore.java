@@ -0,0 +1,162 @@
+package com.ykrenz.fastdfs.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+/**
+ * 本地目录文件存储 适合较大文件
+ *
+ * @author ykren
+ */
+public class DirectoryFileStore extends AbstractFileStore {
+
+    private final Path root;
+
+    public DirectoryFileStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * 在临时目录下创建
+     *
+     * @return
+     */
+    public static DirectoryFileStore createTemp() {
+        try {
+            return new DirectoryFileStore(Files.createTempDirectory("fastdfs-testkit"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public synchronized void write(String path, byte[] content) {
+        try {
+            Path file = resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.write(file, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized byte[] read(String path) {
+        Path file = resolve(path);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized long size(String path) {
+        File file = resolve(path).toFile();
+        return file.exists() ? file.length() : -1;
+    }
+
+    @Override
+    public synchronized boolean append(String path, byte[] content) {
+        Path file = resolve(path);
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try {
+            Files.write(file, content, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean modify(String path, long offset, byte[] content) {
+        File file = resolve(path).toFile();
+        if (!file.exists()) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            raf.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean truncate(String path, long size) {
+        File file = resolve(path).toFile();
+        if (!file.exists()) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized int count() {
+        try (Stream<Path> files = Files.walk(root)) {
+            return (int) files.filter(Files::isRegularFile).count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected boolean exists(String path) {
+        return Files.exists(resolve(path));
+    }
+
+    @Override
+    protected boolean doRename(String path, String newPath) {
+        Path file = resolve(path);
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try {
+            Path target = resolve(newPath);
+            Files.createDirectories(target.getParent());
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean doDelete(String path) {
+        try {
+            return Files.deleteIfExists(resolve(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path resolve(String path) {
+        Path file = root.resolve(path).normalize();
+        if (!file.startsWith(root)) {
+            throw new IllegalArgumentException("invalid path " + path);
+        }
+        return file;
+    }
+}
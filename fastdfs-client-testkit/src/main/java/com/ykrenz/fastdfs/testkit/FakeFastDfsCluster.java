@@ -0,0 +1,155 @@
+package com.ykrenz.fastdfs.testkit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 进程内模拟FastDFS集群
+ * <pre>
+ * FakeFastDfsCluster cluster = new FakeFastDfsCluster().addGroup("group1", 2).start();
+ * FastDfs fastDfs = new FastDfsClientBuilder().build(cluster.getTrackerServers());
+ * ...
+ * cluster.getStorages("group1").get(0).stop();        // 模拟storage宕机
+ * cluster.getTracker().getConditions().setLatencyMillis(5);
+ * cluster.close();
+ * </pre>
+ * 所有服务监听127.0.0.1的随机端口 同一group的storage共享文件存储
+ *
+ * @author ykren
+ */
+public class FakeFastDfsCluster implements Closeable {
+
+    private final List<FakeTrackerServer> trackers = new ArrayList<>();
+
+    private final List<FakeStorageServer> storages = new ArrayList<>();
+
+    private Supplier<FileStore> storeFactory = MemoryFileStore::new;
+
+    public FakeFastDfsCluster() {
+        this(1);
+    }
+
+    /**
+     * @param trackerCount tracker数量 所有tracker管理相同的storage
+     */
+    public FakeFastDfsCluster(int trackerCount) {
+        for (int i = 0; i < trackerCount; i++) {
+            trackers.add(new FakeTrackerServer());
+        }
+    }
+
+    /**
+     * 设置之后添加的group使用的文件存储 默认内存存储
+     *
+     * @param storeFactory
+     * @return
+     */
+    public FakeFastDfsCluster storeFactory(Supplier<FileStore> storeFactory) {
+        this.storeFactory = storeFactory;
+        return this;
+    }
+
+    /**
+     * 添加group
+     *
+     * @param groupName
+     * @param storageCount storage数量
+     * @return
+     */
+    public FakeFastDfsCluster addGroup(String groupName, int storageCount) {
+        FileStore store = storeFactory.get();
+        for (int i = 0; i < storageCount; i++) {
+            FakeStorageServer storage = new FakeStorageServer(groupName, store);
+            storages.add(storage);
+            for (FakeTrackerServer tracker : trackers) {
+                tracker.register(storage);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 启动所有服务
+     *
+     * @return
+     */
+    public FakeFastDfsCluster start() {
+        try {
+            for (FakeStorageServer storage : storages) {
+                storage.start();
+            }
+            for (FakeTrackerServer tracker : trackers) {
+                tracker.start();
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * tracker地址 用于构建客户端
+     *
+     * @return
+     */
+    public List<String> getTrackerServers() {
+        List<String> servers = new ArrayList<>();
+        for (FakeTrackerServer tracker : trackers) {
+            servers.add(tracker.getAddress());
+        }
+        return servers;
+    }
+
+    public FakeTrackerServer getTracker() {
+        return trackers.get(0);
+    }
+
+    public List<FakeTrackerServer> getTrackers() {
+        return new ArrayList<>(trackers);
+    }
+
+    public List<FakeStorageServer> getStorages() {
+        return new ArrayList<>(storages);
+    }
+
+    public List<FakeStorageServer> getStorages(String groupName) {
+        List<FakeStorageServer> result = new ArrayList<>();
+        for (FakeStorageServer storage : storages) {
+            if (storage.getGroupName().equals(groupName)) {
+                result.add(storage);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 所有服务的网络状况 用于整体注入延迟、限速和连接重置
+     *
+     * @return
+     */
+    public List<NetworkConditions> getAllConditions() {
+        List<NetworkConditions> conditions = new ArrayList<>();
+        for (FakeTrackerServer tracker : trackers) {
+            conditions.add(tracker.getConditions());
+        }
+        for (FakeStorageServer storage : storages) {
+            conditions.add(storage.getConditions());
+        }
+        return conditions;
+    }
+
+    @Override
+    public void close() {
+        for (FakeTrackerServer tracker : trackers) {
+            tracker.close();
+        }
+        for (FakeStorageServer storage : storages) {
+            storage.close();
+        }
+    }
+}
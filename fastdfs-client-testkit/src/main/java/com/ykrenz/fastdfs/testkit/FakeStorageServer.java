@@ -0,0 +1,304 @@
+package com.ykrenz.fastdfs.testkit;
+
+import com.ykrenz.fastdfs.model.fdfs.FileInfo;
+import com.ykrenz.fastdfs.model.fdfs.FileNameInfo;
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+import com.ykrenz.fastdfs.model.proto.CmdConstants;
+import com.ykrenz.fastdfs.model.proto.OtherConstants;
+import com.ykrenz.fastdfs.model.proto.mapper.MetadataMapper;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * 模拟storage
+ * <pre>
+ * 支持上传(普通/appender/从文件) 下载 删除 元数据 查询文件信息
+ * 以及appender文件的追加 修改 截断和改名
+ * 文件名编码与FastDFS一致 可被{@link FileNameInfo}解析
+ * </pre>
+ *
+ * @author ykren
+ */
+public class FakeStorageServer extends AbstractFakeServer {
+
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    private final String groupName;
+
+    private final FileStore store;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private final AtomicLong uploadCount = new AtomicLong();
+
+    private final long joinTime = System.currentTimeMillis();
+
+    private volatile long totalMB = 200 * 1024;
+
+    private volatile long freeMB = 100 * 1024;
+
+    public FakeStorageServer(String groupName, FileStore store) {
+        super("fake-storage-" + groupName);
+        this.groupName = groupName;
+        this.store = store;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public FileStore getStore() {
+        return store;
+    }
+
+    public long getUploadCount() {
+        return uploadCount.get();
+    }
+
+    public long getJoinTime() {
+        return joinTime;
+    }
+
+    public long getTotalMB() {
+        return totalMB;
+    }
+
+    public void setTotalMB(long totalMB) {
+        this.totalMB = totalMB;
+    }
+
+    public long getFreeMB() {
+        return freeMB;
+    }
+
+    public void setFreeMB(long freeMB) {
+        this.freeMB = freeMB;
+    }
+
+    @Override
+    protected Reply handle(byte cmd, byte[] body) {
+        RequestReader reader = new RequestReader(body, CHARSET);
+        switch (cmd) {
+            case CmdConstants.STORAGE_PROTO_CMD_UPLOAD_FILE:
+                return upload(reader, false);
+            case CmdConstants.STORAGE_PROTO_CMD_UPLOAD_APPENDER_FILE:
+                return upload(reader, true);
+            case CmdConstants.STORAGE_PROTO_CMD_UPLOAD_SLAVE_FILE:
+                return uploadSlave(reader);
+            case CmdConstants.STORAGE_PROTO_CMD_DOWNLOAD_FILE:
+                return download(reader);
+            case CmdConstants.STORAGE_PROTO_CMD_DELETE_FILE:
+                reader.readString(OtherConstants.FDFS_GROUP_NAME_MAX_LEN);
+                return result(store.delete(reader.readRestString()));
+            case CmdConstants.STORAGE_PROTO_CMD_SET_METADATA:
+                return setMetadata(reader);
+            case CmdConstants.STORAGE_PROTO_CMD_GET_METADATA:
+                return getMetadata(reader);
+            case CmdConstants.STORAGE_PROTO_CMD_QUERY_FILE_INFO:
+                return queryFileInfo(reader);
+            case CmdConstants.STORAGE_PROTO_CMD_APPEND_FILE:
+                return append(reader);
+            case CmdConstants.STORAGE_PROTO_CMD_MODIFY_FILE:
+                return modify(reader);
+            case CmdConstants.STORAGE_PROTO_CMD_TRUNCATE_FILE:
+                return truncate(reader);
+            case CmdConstants.STORAGE_PROTO_CMD_REGENERATE_APPENDER_FILENAME:
+                return regenerate(reader);
+            default:
+                return Reply.status(STATUS_INVALID);
+        }
+    }
+
+    private Reply upload(RequestReader reader, boolean appender) {
+        byte storeIndex = reader.readByte();
+        long fileSize = reader.readLong();
+        String ext = reader.readString(OtherConstants.FDFS_FILE_EXT_NAME_MAX_LEN);
+        byte[] content = reader.readBytes((int) fileSize);
+        String path = newPath(storeIndex, content, ext, appender);
+        uploadCount.incrementAndGet();
+        return storePath(path);
+    }
+
+    private Reply uploadSlave(RequestReader reader) {
+        int masterLength = (int) reader.readLong();
+        long fileSize = reader.readLong();
+        String prefix = reader.readString(OtherConstants.FDFS_FILE_PREFIX_MAX_LEN);
+        String ext = reader.readString(OtherConstants.FDFS_FILE_EXT_NAME_MAX_LEN);
+        String master = new String(reader.readBytes(masterLength), CHARSET);
+        byte[] content = reader.readBytes((int) fileSize);
+        if (store.size(master) < 0) {
+            return Reply.status(STATUS_NOT_FOUND);
+        }
+        int dot = master.lastIndexOf('.');
+        String base = dot > master.lastIndexOf('/') ? master.substring(0, dot) : master;
+        String path = base + prefix + (StringUtils.isBlank(ext) ? "" : "." + ext);
+        store.write(path, content);
+        uploadCount.incrementAndGet();
+        return storePath(path);
+    }
+
+    private Reply download(RequestReader reader) {
+        long offset = reader.readLong();
+        long length = reader.readLong();
+        reader.readString(OtherConstants.FDFS_GROUP_NAME_MAX_LEN);
+        byte[] content = store.read(reader.readRestString());
+        if (content == null) {
+            return Reply.status(STATUS_NOT_FOUND);
+        }
+        if (offset < 0 || offset > content.length || length < 0 || offset + length > content.length) {
+            return Reply.status(STATUS_INVALID);
+        }
+        long size = length == 0 ? content.length - offset : length;
+        return Reply.ok(content, (int) offset, (int) size);
+    }
+
+    private Reply setMetadata(RequestReader reader) {
+        int pathLength = (int) reader.readLong();
+        int metadataLength = (int) reader.readLong();
+        byte flag = reader.readByte();
+        reader.readString(OtherConstants.FDFS_GROUP_NAME_MAX_LEN);
+        String path = new String(reader.readBytes(pathLength), CHARSET);
+        Set<MetaData> metaData = MetadataMapper.fromByte(reader.readBytes(metadataLength), CHARSET);
+        boolean merge = flag == OtherConstants.STORAGE_SET_METADATA_FLAG_MERGE;
+        return result(store.setMetadata(path, metaData, merge));
+    }
+
+    private Reply getMetadata(RequestReader reader) {
+        reader.readString(OtherConstants.FDFS_GROUP_NAME_MAX_LEN);
+        Set<MetaData> metaData = store.getMetadata(reader.readRestString());
+        if (metaData == null) {
+            return Reply.status(STATUS_NOT_FOUND);
+        }
+        return Reply.ok(MetadataMapper.toByte(metaData, CHARSET));
+    }
+
+    private Reply queryFileInfo(RequestReader reader) {
+        reader.readString(OtherConstants.FDFS_GROUP_NAME_MAX_LEN);
+        String path = reader.readRestString();
+        byte[] content = store.read(path);
+        if (content == null) {
+            return Reply.status(STATUS_NOT_FOUND);
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        FileInfo info = new FileInfo();
+        info.setFileSize(content.length);
+        info.setCrc32((int) crc32.getValue());
+        FileNameInfo nameInfo = FileNameInfo.decode(path);
+        if (nameInfo != null) {
+            info.setCreateTime(nameInfo.getCreateTime());
+            info.setSourceIpAddr(nameInfo.getSourceIpAddr());
+        }
+        return Reply.ok(StructEncoder.encode(info, CHARSET));
+    }
+
+    private Reply append(RequestReader reader) {
+        int pathLength = (int) reader.readLong();
+        long fileSize = reader.readLong();
+        String path = new String(reader.readBytes(pathLength), CHARSET);
+        return result(store.append(path, reader.readBytes((int) fileSize)));
+    }
+
+    private Reply modify(RequestReader reader) {
+        int pathLength = (int) reader.readLong();
+        long offset = reader.readLong();
+        long fileSize = reader.readLong();
+        String path = new String(reader.readBytes(pathLength), CHARSET);
+        return result(store.modify(path, offset, reader.readBytes((int) fileSize)));
+    }
+
+    private Reply truncate(RequestReader reader) {
+        int pathLength = (int) reader.readLong();
+        long size = reader.readLong();
+        String path = new String(reader.readBytes(pathLength), CHARSET);
+        return result(store.truncate(path, size));
+    }
+
+    private Reply regenerate(RequestReader reader) {
+        String path = reader.readRestString();
+        byte[] content = store.read(path);
+        if (content == null) {
+            return Reply.status(STATUS_NOT_FOUND);
+        }
+        int dot = path.lastIndexOf('.');
+        String ext = dot > path.lastIndexOf('/') ? path.substring(dot + 1) : "";
+        String storePath = path.substring(1, 3);
+        String newPath;
+        synchronized (store) {
+            newPath = nextPath(Integer.parseInt(storePath, 16), content, ext, false);
+            if (!store.rename(path, newPath)) {
+                return Reply.status(STATUS_NOT_FOUND);
+            }
+        }
+        return storePath(newPath);
+    }
+
+    /**
+     * 生成文件名并写入 同组storage共享存储 加锁避免重名
+     */
+    private String newPath(int storeIndex, byte[] content, String ext, boolean appender) {
+        synchronized (store) {
+            String path = nextPath(storeIndex, content, ext, appender);
+            store.write(path, content);
+            return path;
+        }
+    }
+
+    /**
+     * 按FastDFS规则生成文件名 M00/xx/xx/base64(源ip 创建时间 大小 crc32)
+     * appender文件内容可变 大小字段与storage一致为{@link OtherConstants#APPENDER_FILE_SIZE}
+     * 同一秒内重名时顺延创建时间
+     */
+    private String nextPath(int storeIndex, byte[] content, String ext, boolean appender) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        int seq = sequence.getAndIncrement();
+        long createTime = System.currentTimeMillis() / 1000;
+        String path;
+        do {
+            ByteBuffer buffer = ByteBuffer.allocate(20);
+            buffer.putInt(sourceId()).putInt((int) createTime++)
+                    .putLong(appender ? OtherConstants.APPENDER_FILE_SIZE : content.length)
+                    .putInt((int) crc32.getValue());
+            path = String.format("M%02X/%02X/%02X/", storeIndex, (seq >> 8) & 0xFF, seq & 0xFF)
+                    + Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array())
+                    + (StringUtils.isBlank(ext) ? "" : "." + ext);
+        } while (store.size(path) >= 0);
+        return path;
+    }
+
+    private int sourceId() {
+        byte[] ip = getIpBytes();
+        return ((ip[0] & 0xFF) << 24) | ((ip[1] & 0xFF) << 16) | ((ip[2] & 0xFF) << 8) | (ip[3] & 0xFF);
+    }
+
+    private byte[] getIpBytes() {
+        String[] parts = getIp().split("\\.");
+        byte[] ip = new byte[4];
+        for (int i = 0; i < 4 && i < parts.length; i++) {
+            ip[i] = (byte) Integer.parseInt(parts[i]);
+        }
+        return ip;
+    }
+
+    private Reply storePath(String path) {
+        byte[] pathBytes = path.getBytes(CHARSET);
+        byte[] body = new byte[OtherConstants.FDFS_GROUP_NAME_MAX_LEN + pathBytes.length];
+        byte[] group = groupName.getBytes(CHARSET);
+        System.arraycopy(group, 0, body, 0, group.length);
+        System.arraycopy(pathBytes, 0, body, OtherConstants.FDFS_GROUP_NAME_MAX_LEN, pathBytes.length);
+        return Reply.ok(body);
+    }
+
+    private static Reply result(boolean success) {
+        return success ? Reply.ok() : Reply.status(STATUS_NOT_FOUND);
+    }
+}
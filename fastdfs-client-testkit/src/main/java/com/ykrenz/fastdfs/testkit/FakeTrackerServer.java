@@ -0,0 +1,208 @@
+package com.ykrenz.fastdfs.testkit;
+
+import com.ykrenz.fastdfs.model.fdfs.GroupState;
+import com.ykrenz.fastdfs.model.fdfs.StorageNode;
+import com.ykrenz.fastdfs.model.fdfs.StorageNodeInfo;
+import com.ykrenz.fastdfs.model.fdfs.StorageState;
+import com.ykrenz.fastdfs.model.proto.CmdConstants;
+import com.ykrenz.fastdfs.model.proto.OtherConstants;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模拟tracker
+ * <pre>
+ * 管理注册的{@link FakeStorageServer} 正在运行的storage视为ACTIVE 已停止的视为OFFLINE
+ * 上传和下载在group内ACTIVE的storage间轮询 更新选择group内第一个ACTIVE的storage
+ * 未指定group上传时选择剩余空间最大的group
+ * </pre>
+ *
+ * @author ykren
+ */
+public class FakeTrackerServer extends AbstractFakeServer {
+
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    private final Map<String, List<FakeStorageServer>> groups = new LinkedHashMap<>();
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    public FakeTrackerServer() {
+        super("fake-tracker");
+    }
+
+    public synchronized void register(FakeStorageServer storage) {
+        groups.computeIfAbsent(storage.getGroupName(), key -> new CopyOnWriteArrayList<>()).add(storage);
+    }
+
+    public synchronized List<FakeStorageServer> getStorages(String groupName) {
+        List<FakeStorageServer> storages = groups.get(groupName);
+        return storages == null ? new ArrayList<>() : new ArrayList<>(storages);
+    }
+
+    @Override
+    protected Reply handle(byte cmd, byte[] body) {
+        RequestReader reader = new RequestReader(body, CHARSET);
+        switch (cmd) {
+            case CmdConstants.TRACKER_PROTO_CMD_SERVICE_QUERY_STORE_WITHOUT_GROUP_ONE:
+                return store(largestGroup());
+            case CmdConstants.TRACKER_PROTO_CMD_SERVICE_QUERY_STORE_WITH_GROUP_ONE:
+                return store(reader.readString(OtherConstants.FDFS_GROUP_NAME_MAX_LEN));
+            case CmdConstants.TRACKER_PROTO_CMD_SERVICE_QUERY_FETCH_ONE:
+                return fetch(reader.readString(OtherConstants.FDFS_GROUP_NAME_MAX_LEN), false);
+            case CmdConstants.TRACKER_PROTO_CMD_SERVICE_QUERY_UPDATE:
+                return fetch(reader.readString(OtherConstants.FDFS_GROUP_NAME_MAX_LEN), true);
+            case CmdConstants.TRACKER_PROTO_CMD_SERVER_LIST_GROUP:
+                return Reply.ok(StructEncoder.encode(listGroups(), GroupState.class, CHARSET));
+            case CmdConstants.TRACKER_PROTO_CMD_SERVER_LIST_STORAGE:
+                String groupName = reader.readString(OtherConstants.FDFS_GROUP_NAME_MAX_LEN);
+                String ip = reader.remaining() > 0 ? reader.readRestString() : null;
+                return listStorages(groupName, ip);
+            case CmdConstants.TRACKER_PROTO_CMD_SERVER_DELETE_STORAGE:
+                return deleteStorage(reader.readString(OtherConstants.FDFS_GROUP_NAME_MAX_LEN),
+                        reader.readString(OtherConstants.FDFS_IPADDR_SIZE - 1));
+            default:
+                return Reply.status(STATUS_INVALID);
+        }
+    }
+
+    private Reply store(String groupName) {
+        FakeStorageServer storage = next(groupName);
+        if (storage == null) {
+            return Reply.status(STATUS_NOT_FOUND);
+        }
+        StorageNode node = new StorageNode(storage.getIp(), storage.getPort(), (byte) 0);
+        node.setGroupName(groupName);
+        return Reply.ok(StructEncoder.encode(node, CHARSET));
+    }
+
+    private Reply fetch(String groupName, boolean update) {
+        FakeStorageServer storage = update ? first(groupName) : next(groupName);
+        if (storage == null) {
+            return Reply.status(STATUS_NOT_FOUND);
+        }
+        StorageNodeInfo node = new StorageNodeInfo(storage.getIp(), storage.getPort());
+        node.setGroupName(groupName);
+        return Reply.ok(StructEncoder.encode(node, CHARSET));
+    }
+
+    private Reply listStorages(String groupName, String ip) {
+        List<StorageState> states = new ArrayList<>();
+        for (FakeStorageServer storage : getStorages(groupName)) {
+            if (ip == null || ip.equals(storage.getIp())) {
+                states.add(storageState(storage));
+            }
+        }
+        if (states.isEmpty()) {
+            return Reply.status(STATUS_NOT_FOUND);
+        }
+        return Reply.ok(StructEncoder.encode(states, StorageState.class, CHARSET));
+    }
+
+    private synchronized Reply deleteStorage(String groupName, String ip) {
+        List<FakeStorageServer> storages = groups.get(groupName);
+        if (storages == null || !storages.removeIf(storage -> !storage.isRunning() && storage.getIp().equals(ip))) {
+            return Reply.status(STATUS_NOT_FOUND);
+        }
+        return Reply.ok();
+    }
+
+    private synchronized List<GroupState> listGroups() {
+        List<GroupState> states = new ArrayList<>();
+        for (Map.Entry<String, List<FakeStorageServer>> entry : groups.entrySet()) {
+            List<FakeStorageServer> storages = entry.getValue();
+            GroupState state = new GroupState();
+            state.setGroupName(entry.getKey());
+            state.setStorageCount(storages.size());
+            state.setStorePathCount(1);
+            state.setSubdirCountPerPath(256);
+            long totalMB = 0;
+            long freeMB = Long.MAX_VALUE;
+            int active = 0;
+            for (FakeStorageServer storage : storages) {
+                totalMB = Math.max(totalMB, storage.getTotalMB());
+                freeMB = Math.min(freeMB, storage.getFreeMB());
+                if (storage.isRunning()) {
+                    active++;
+                }
+            }
+            state.setTotalMB(totalMB);
+            state.setFreeMB(storages.isEmpty() ? 0 : freeMB);
+            state.setActiveCount(active);
+            if (!storages.isEmpty()) {
+                state.setStoragePort(storages.get(0).getPort());
+            }
+            states.add(state);
+        }
+        return states;
+    }
+
+    private StorageState storageState(FakeStorageServer storage) {
+        StorageState state = new StorageState();
+        state.setStatus(storage.isRunning()
+                ? OtherConstants.FDFS_STORAGE_STATUS_ACTIVE : OtherConstants.FDFS_STORAGE_STATUS_OFFLINE);
+        state.setId(storage.getIp());
+        state.setIpAddr(storage.getIp());
+        state.setVersion("6.07");
+        state.setJoinTime(new Date(storage.getJoinTime()));
+        state.setUpTime(new Date(storage.getJoinTime()));
+        state.setTotalMB(storage.getTotalMB());
+        state.setFreeMB(storage.getFreeMB());
+        state.setStorePathCount(1);
+        state.setSubdirCountPerPath(256);
+        state.setStoragePort(storage.getPort());
+        state.setTotalUploadCount(storage.getUploadCount());
+        state.setSuccessUploadCount(storage.getUploadCount());
+        state.setLastSyncedTimestamp(new Date());
+        state.setLastHeartBeatTime(new Date());
+        return state;
+    }
+
+    private synchronized String largestGroup() {
+        String result = null;
+        long freeMB = -1;
+        for (Map.Entry<String, List<FakeStorageServer>> entry : groups.entrySet()) {
+            for (FakeStorageServer storage : entry.getValue()) {
+                if (storage.isRunning() && storage.getFreeMB() > freeMB) {
+                    freeMB = storage.getFreeMB();
+                    result = entry.getKey();
+                }
+            }
+        }
+        return result;
+    }
+
+    private FakeStorageServer next(String groupName) {
+        List<FakeStorageServer> running = running(groupName);
+        if (running.isEmpty()) {
+            return null;
+        }
+        return running.get(Math.floorMod(counter.getAndIncrement(), running.size()));
+    }
+
+    private FakeStorageServer first(String groupName) {
+        List<FakeStorageServer> running = running(groupName);
+        return running.isEmpty() ? null : running.get(0);
+    }
+
+    private List<FakeStorageServer> running(String groupName) {
+        List<FakeStorageServer> running = new ArrayList<>();
+        if (groupName == null) {
+            return running;
+        }
+        for (FakeStorageServer storage : getStorages(groupName)) {
+            if (storage.isRunning()) {
+                running.add(storage);
+            }
+        }
+        return running;
+    }
+}
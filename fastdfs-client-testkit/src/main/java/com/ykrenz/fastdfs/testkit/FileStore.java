@@ -0,0 +1,108 @@
+package com.ykrenz.fastdfs.testkit;
+
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+
+import java.util.Set;
+
+/**
+ * 模拟storage的文件存储
+ * 同一group的storage共享一个FileStore 相当于文件即时同步
+ *
+ * @author ykren
+ */
+public interface FileStore {
+
+    /**
+     * 写入文件 已存在时覆盖
+     *
+     * @param path
+     * @param content
+     */
+    void write(String path, byte[] content);
+
+    /**
+     * 读取文件
+     *
+     * @param path
+     * @return 文件不存在返回null
+     */
+    byte[] read(String path);
+
+    /**
+     * 文件大小
+     *
+     * @param path
+     * @return 文件不存在返回-1
+     */
+    long size(String path);
+
+    /**
+     * 追加内容
+     *
+     * @param path
+     * @param content
+     * @return 文件不存在返回false
+     */
+    boolean append(String path, byte[] content);
+
+    /**
+     * 从offset开始覆盖写入 超出文件长度时扩展文件
+     *
+     * @param path
+     * @param offset
+     * @param content
+     * @return 文件不存在返回false
+     */
+    boolean modify(String path, long offset, byte[] content);
+
+    /**
+     * 截断文件
+     *
+     * @param path
+     * @param size
+     * @return 文件不存在返回false
+     */
+    boolean truncate(String path, long size);
+
+    /**
+     * 重命名文件 元数据一并转移
+     *
+     * @param path
+     * @param newPath
+     * @return 文件不存在返回false
+     */
+    boolean rename(String path, String newPath);
+
+    /**
+     * 删除文件和元数据
+     *
+     * @param path
+     * @return 文件不存在返回false
+     */
+    boolean delete(String path);
+
+    /**
+     * 获取元数据
+     *
+     * @param path
+     * @return 文件不存在返回null
+     */
+    Set<MetaData> getMetadata(String path);
+
+    /**
+     * 设置元数据
+     *
+     * @param path
+     * @param metaData
+     * @param merge    true合并 false覆盖
+     * @return 文件不存在返回false
+     */
+    boolean setMetadata(String path, Set<MetaData> metaData, boolean merge);
+
+    /**
+     * 文件数量
+     *
+     * @return
+     */
+    int count();
+}
@@ -0,0 +1,94 @@
+package com.ykrenz.fastdfs.testkit;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 内存文件存储
+ *
+ * @author ykren
+ */
+public class MemoryFileStore extends AbstractFileStore {
+
+    private final Map<String, byte[]> files = new HashMap<>();
+
+    @Override
+    public synchronized void write(String path, byte[] content) {
+        files.put(path, content.clone());
+    }
+
+    @Override
+    public synchronized byte[] read(String path) {
+        byte[] content = files.get(path);
+        return content == null ? null : content.clone();
+    }
+
+    @Override
+    public synchronized long size(String path) {
+        byte[] content = files.get(path);
+        return content == null ? -1 : content.length;
+    }
+
+    @Override
+    public synchronized boolean append(String path, byte[] content) {
+        byte[] current = files.get(path);
+        if (current == null) {
+            return false;
+        }
+        byte[] result = Arrays.copyOf(current, current.length + content.length);
+        System.arraycopy(content, 0, result, current.length, content.length);
+        files.put(path, result);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean modify(String path, long offset, byte[] content) {
+        byte[] current = files.get(path);
+        if (current == null) {
+            return false;
+        }
+        int end = (int) offset + content.length;
+        if (end > current.length) {
+            current = Arrays.copyOf(current, end);
+            files.put(path, current);
+        }
+        System.arraycopy(content, 0, current, (int) offset, content.length);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean truncate(String path, long size) {
+        byte[] current = files.get(path);
+        if (current == null) {
+            return false;
+        }
+        files.put(path, Arrays.copyOf(current, (int) size));
+        return true;
+    }
+
+    @Override
+    public synchronized int count() {
+        return files.size();
+    }
+
+    @Override
+    protected boolean exists(String path) {
+        return files.containsKey(path);
+    }
+
+    @Override
+    protected boolean doRename(String path, String newPath) {
+        byte[] content = files.remove(path);
+        if (content == null) {
+            return false;
+        }
+        files.put(newPath, content);
+        return true;
+    }
+
+    @Override
+    protected boolean doDelete(String path) {
+        return files.remove(path) != null;
+    }
+}
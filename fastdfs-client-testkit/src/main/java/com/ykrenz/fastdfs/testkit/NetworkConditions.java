@@ -0,0 +1,108 @@
+package com.ykrenz.fastdfs.testkit;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模拟网络状况 运行期间可随时修改
+ * <pre>
+ * latencyMillis 每个请求响应前的延迟
+ * bandwidthBytesPerSecond 单个连接读写带宽上限 0不限制
+ * resetProbability 收到请求时以该概率重置连接(RST)
+ * resetNext 之后的n个请求直接重置连接
+ * </pre>
+ *
+ * @author ykren
+ */
+public class NetworkConditions {
+
+    private volatile long latencyMillis;
+
+    private volatile long bandwidthBytesPerSecond;
+
+    private volatile double resetProbability;
+
+    private final AtomicInteger resetRemaining = new AtomicInteger();
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public NetworkConditions setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    public long getBandwidthBytesPerSecond() {
+        return bandwidthBytesPerSecond;
+    }
+
+    public NetworkConditions setBandwidthBytesPerSecond(long bandwidthBytesPerSecond) {
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+        return this;
+    }
+
+    public double getResetProbability() {
+        return resetProbability;
+    }
+
+    public NetworkConditions setResetProbability(double resetProbability) {
+        this.resetProbability = resetProbability;
+        return this;
+    }
+
+    /**
+     * 之后的count个请求直接重置连接
+     *
+     * @param count
+     * @return
+     */
+    public NetworkConditions resetNext(int count) {
+        resetRemaining.set(count);
+        return this;
+    }
+
+    /**
+     * 恢复正常网络
+     */
+    public void clear() {
+        latencyMillis = 0;
+        bandwidthBytesPerSecond = 0;
+        resetProbability = 0;
+        resetRemaining.set(0);
+    }
+
+    boolean shouldReset() {
+        if (resetRemaining.get() > 0 && resetRemaining.getAndDecrement() > 0) {
+            return true;
+        }
+        double probability = resetProbability;
+        return probability > 0 && ThreadLocalRandom.current().nextDouble() < probability;
+    }
+
+    void delay() throws InterruptedException {
+        long latency = latencyMillis;
+        if (latency > 0) {
+            TimeUnit.MILLISECONDS.sleep(latency);
+        }
+    }
+
+    /**
+     * 按带宽限制等待 使从startNanos开始传输bytes字节的耗时不低于带宽限制
+     *
+     * @param bytes
+     * @param startNanos
+     */
+    void pace(long bytes, long startNanos) throws InterruptedException {
+        long bandwidth = bandwidthBytesPerSecond;
+        if (bandwidth <= 0) {
+            return;
+        }
+        long expectedNanos = (long) (bytes * 1e9 / bandwidth);
+        long waitNanos = expectedNanos - (System.nanoTime() - startNanos);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
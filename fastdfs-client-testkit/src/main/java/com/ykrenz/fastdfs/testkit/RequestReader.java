@@ -0,0 +1,70 @@
+package com.ykrenz.fastdfs.testkit;
+
+import com.ykrenz.fastdfs.model.proto.mapper.BytesUtil;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * 按顺序读取请求报文体
+ *
+ * @author ykren
+ */
+final class RequestReader {
+
+    private final byte[] body;
+
+    private final Charset charset;
+
+    private int position;
+
+    RequestReader(byte[] body, Charset charset) {
+        this.body = body;
+        this.charset = charset;
+    }
+
+    long readLong() {
+        long value = BytesUtil.buff2long(body, position);
+        position += 8;
+        return value;
+    }
+
+    byte readByte() {
+        return body[position++];
+    }
+
+    /**
+     * 读取定长字符串 去除末尾的0
+     *
+     * @param length
+     * @return
+     */
+    String readString(int length) {
+        int end = position + length;
+        int valueEnd = position;
+        while (valueEnd < end && body[valueEnd] != 0) {
+            valueEnd++;
+        }
+        String value = new String(body, position, valueEnd - position, charset);
+        position = end;
+        return value;
+    }
+
+    byte[] readBytes(int length) {
+        byte[] value = Arrays.copyOfRange(body, position, position + length);
+        position += length;
+        return value;
+    }
+
+    String readRestString() {
+        return readString(remaining());
+    }
+
+    byte[] readRestBytes() {
+        return readBytes(remaining());
+    }
+
+    int remaining() {
+        return body.length - position;
+    }
+}
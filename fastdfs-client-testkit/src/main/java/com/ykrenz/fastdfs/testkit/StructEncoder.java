@@ -0,0 +1,113 @@
+package com.ykrenz.fastdfs.testkit;
+
+import com.ykrenz.fastdfs.model.proto.mapper.BytesUtil;
+import com.ykrenz.fastdfs.model.proto.mapper.DynamicFieldType;
+import com.ykrenz.fastdfs.model.proto.mapper.FdfsColumn;
+
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 按FdfsColumn定义把对象编码为定长报文
+ * 与FdfsParamMapper.map相反 支持Date和boolean字段 用于模拟服务端响应 不支持动态字段
+ *
+ * @author ykren
+ */
+final class StructEncoder {
+
+    private StructEncoder() {
+    }
+
+    static byte[] encode(Object bean, Charset charset) {
+        List<Field> fields = fields(bean.getClass());
+        byte[] result = new byte[totalSize(fields)];
+        encode(bean, fields, result, 0, charset);
+        return result;
+    }
+
+    static byte[] encode(List<?> beans, Class<?> type, Charset charset) {
+        List<Field> fields = fields(type);
+        int size = totalSize(fields);
+        byte[] result = new byte[size * beans.size()];
+        for (int i = 0; i < beans.size(); i++) {
+            encode(beans.get(i), fields, result, i * size, charset);
+        }
+        return result;
+    }
+
+    private static List<Field> fields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            FdfsColumn column = field.getAnnotation(FdfsColumn.class);
+            if (column != null && column.dynamicField() == DynamicFieldType.NULL) {
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        fields.sort(Comparator.comparingInt(field -> field.getAnnotation(FdfsColumn.class).index()));
+        return fields;
+    }
+
+    /**
+     * 字段长度 与FieldMetaData一致 设置了max时以max为上限
+     */
+    private static int size(Field field) {
+        Class<?> type = field.getType();
+        int max = field.getAnnotation(FdfsColumn.class).max();
+        int size;
+        if (type == String.class) {
+            size = max;
+        } else if (type == byte.class || type == boolean.class) {
+            size = 1;
+        } else if (type == long.class || type == int.class || type == Date.class) {
+            size = 8;
+        } else {
+            throw new IllegalArgumentException("unsupported field " + field.getName());
+        }
+        return max > 0 ? Math.min(size, max) : size;
+    }
+
+    private static int totalSize(List<Field> fields) {
+        int size = 0;
+        for (Field field : fields) {
+            size += size(field);
+        }
+        return size;
+    }
+
+    private static void encode(Object bean, List<Field> fields, byte[] result, int offset, Charset charset) {
+        for (Field field : fields) {
+            Object value;
+            try {
+                value = field.get(bean);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            int size = size(field);
+            byte[] bytes = null;
+            if (value instanceof String) {
+                bytes = ((String) value).getBytes(charset);
+            } else if (value instanceof Long || value instanceof Integer) {
+                bytes = BytesUtil.long2buff(((Number) value).longValue());
+            } else if (value instanceof Date) {
+                bytes = BytesUtil.long2buff(((Date) value).getTime() / 1000);
+            } else if (value instanceof Byte) {
+                bytes = new byte[]{(Byte) value};
+            } else if (value instanceof Boolean) {
+                bytes = new byte[]{(byte) ((Boolean) value ? 1 : 0)};
+            }
+            if (bytes != null && value instanceof String) {
+                System.arraycopy(bytes, 0, result, offset, Math.min(bytes.length, size));
+            } else if (bytes != null) {
+                // 数值右对齐(大端)
+                int length = Math.min(bytes.length, size);
+                System.arraycopy(bytes, bytes.length - length, result, offset + size - length, length);
+            }
+            offset += size;
+        }
+    }
+}
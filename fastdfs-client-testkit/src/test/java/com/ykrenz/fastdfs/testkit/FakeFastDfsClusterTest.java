@@ -0,0 +1,644 @@
+package com.ykrenz.fastdfs.testkit;
+
+import com.ykrenz.fastdfs.AsyncFastDfsClient;
+import com.ykrenz.fastdfs.DefaultTrackerClient;
+import com.ykrenz.fastdfs.FastDfs;
+import com.ykrenz.fastdfs.FastDfsClient;
+import com.ykrenz.fastdfs.FastDfsClientBuilder;
+import com.ykrenz.fastdfs.config.FastDfsConfiguration;
+import com.ykrenz.fastdfs.conn.CircuitBreaker;
+import com.ykrenz.fastdfs.conn.Connection;
+import com.ykrenz.fastdfs.conn.ConnectionPool;
+import com.ykrenz.fastdfs.conn.FdfsConnectionManager;
+import com.ykrenz.fastdfs.conn.TrackerConnectionManager;
+import com.ykrenz.fastdfs.model.ParallelDownloadFileRequest;
+import com.ykrenz.fastdfs.exception.FdfsCircuitOpenException;
+import com.ykrenz.fastdfs.exception.FdfsClientException;
+import com.ykrenz.fastdfs.exception.FdfsException;
+import com.ykrenz.fastdfs.exception.FdfsIOException;
+import com.ykrenz.fastdfs.exception.FdfsServerException;
+import com.ykrenz.fastdfs.model.UploadFileRequest;
+import com.ykrenz.fastdfs.model.fdfs.BatchResult;
+import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
+import com.ykrenz.fastdfs.model.fdfs.FileInfo;
+import com.ykrenz.fastdfs.model.fdfs.FileNameInfo;
+import com.ykrenz.fastdfs.model.fdfs.GroupState;
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+import com.ykrenz.fastdfs.model.fdfs.StorageNodeInfo;
+import com.ykrenz.fastdfs.model.fdfs.StorageState;
+import com.ykrenz.fastdfs.model.fdfs.StorePath;
+import com.ykrenz.fastdfs.model.fdfs.TrackerAddressHolder;
+import com.ykrenz.fastdfs.model.proto.CmdConstants;
+import com.ykrenz.fastdfs.model.proto.ProtoHead;
+import com.ykrenz.fastdfs.model.proto.storage.DownloadByteArray;
+import com.ykrenz.fastdfs.model.proto.storage.DownloadFileWriter;
+import com.ykrenz.fastdfs.model.proto.storage.StorageQueryFileInfoCommand;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+public class FakeFastDfsClusterTest {
+
+    private FakeFastDfsCluster cluster;
+
+    private FastDfs fastDfs;
+
+    private final List<FastDfsClient> clients = new ArrayList<>();
+
+    @Before
+    public void init() {
+        cluster = new FakeFastDfsCluster().addGroup("group1", 2).start();
+        fastDfs = new FastDfsClientBuilder().build(cluster.getTrackerServers());
+    }
+
+    @After
+    public void close() {
+        clients.forEach(FastDfsClient::shutdown);
+        fastDfs.shutdown();
+        cluster.close();
+    }
+
+    /**
+     * 按指定配置创建客户端 测试结束后关闭
+     *
+     * @param customizer
+     * @return
+     */
+    private FastDfsClient newClient(Consumer<FastDfsConfiguration> customizer) {
+        return newClient(cluster.getTrackerServers(), customizer);
+    }
+
+    private FastDfsClient newClient(List<String> trackerServers, Consumer<FastDfsConfiguration> customizer) {
+        FastDfsConfiguration configuration = new FastDfsConfiguration();
+        customizer.accept(configuration);
+        FastDfsClient client = new FastDfsClient(trackerServers, configuration);
+        clients.add(client);
+        return client;
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random().nextBytes(bytes);
+        return bytes;
+    }
+
+    private StorePath upload(byte[] bytes) {
+        return fastDfs.uploadFile("group1", new ByteArrayInputStream(bytes), bytes.length, "txt");
+    }
+
+    @Test
+    public void fileTest() {
+        byte[] bytes = randomBytes(1024);
+        Set<MetaData> metaData = new HashSet<>();
+        metaData.add(new MetaData("width", "100"));
+        StorePath path = fastDfs.uploadFile(UploadFileRequest.builder().groupName("group1")
+                .stream(new ByteArrayInputStream(bytes), bytes.length, "txt").metaData(metaData).build());
+        Assert.assertEquals("group1", path.getGroup());
+        Assert.assertTrue(path.getPath().endsWith(".txt"));
+
+        Assert.assertArrayEquals(bytes, fastDfs.downloadFile(path.getGroup(), path.getPath(), new DownloadByteArray()));
+        Assert.assertEquals(metaData, fastDfs.getMetadata(path.getGroup(), path.getPath()));
+
+        FileInfo fileInfo = fastDfs.queryFileInfo(path.getGroup(), path.getPath());
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        Assert.assertEquals(1024, fileInfo.getFileSize());
+        Assert.assertEquals((int) crc32.getValue(), fileInfo.getCrc32());
+        Assert.assertEquals("127.0.0.1", fileInfo.getSourceIpAddr());
+
+        StorePath slave = fastDfs.uploadSlaveFile(path.getGroup(), path.getPath(), "_100x100",
+                new ByteArrayInputStream(bytes), bytes.length, "jpg");
+        Assert.assertTrue(slave.getPath().endsWith("_100x100.jpg"));
+
+        fastDfs.deleteFile(path.getGroup(), path.getPath());
+        Assert.assertNull(fastDfs.queryFileInfo(path.getGroup(), path.getPath()));
+    }
+
+    @Test
+    public void uploadWithMetadataTest() {
+        FastDfsClient client = newClient(config -> {
+        });
+        FdfsConnectionManager manager = client.getConnectionManager();
+        ConnectionPool pool = manager.getPool();
+        AtomicInteger borrows = new AtomicInteger();
+        manager.setPool((ConnectionPool) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ConnectionPool.class}, (proxy, method, args) -> {
+                    if ("borrowObject".equals(method.getName())) {
+                        borrows.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(pool, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }));
+        byte[] bytes = randomBytes(100);
+        Set<MetaData> metaData = new HashSet<>();
+        metaData.add(new MetaData("width", "100"));
+        StorePath path = client.uploadFile(UploadFileRequest.builder().groupName("group1")
+                .stream(new ByteArrayInputStream(bytes), bytes.length, "txt").metaData(metaData).build());
+        // 上传和设置元数据只借用一次storage连接
+        Assert.assertEquals(1, borrows.get());
+        long setMetadata = 0;
+        for (FakeStorageServer storage : cluster.getStorages("group1")) {
+            setMetadata += storage.getRequestCount(CmdConstants.STORAGE_PROTO_CMD_SET_METADATA);
+        }
+        Assert.assertEquals(1, setMetadata);
+        Assert.assertEquals(metaData, fastDfs.getMetadata(path.getGroup(), path.getPath()));
+    }
+
+    @Test
+    public void appenderTest() {
+        StorePath path = fastDfs.uploadAppenderFile("group1", new ByteArrayInputStream("123".getBytes()), 3, "txt");
+        fastDfs.appendFile(path.getGroup(), path.getPath(), new ByteArrayInputStream("456".getBytes()), 3);
+        fastDfs.modifyFile(path.getGroup(), path.getPath(), new ByteArrayInputStream("ab".getBytes()), 2, 1);
+        fastDfs.truncateFile(path.getGroup(), path.getPath(), 5);
+        StorePath regenerate = fastDfs.regenerateAppenderFile(path.getGroup(), path.getPath());
+        Assert.assertNotEquals(path.getPath(), regenerate.getPath());
+        Assert.assertEquals("1ab45", new String(fastDfs.downloadFile(regenerate.getGroup(), regenerate.getPath(),
+                new DownloadByteArray())));
+    }
+
+    @Test
+    public void trackerTest() {
+        List<GroupState> groups = fastDfs.listGroups();
+        Assert.assertEquals(1, groups.size());
+        Assert.assertEquals("group1", groups.get(0).getGroupName());
+        Assert.assertEquals(2, groups.get(0).getActiveCount());
+
+        upload(randomBytes(10));
+        List<StorageState> storages = fastDfs.listStorages("group1");
+        Assert.assertEquals(2, storages.size());
+        long uploads = 0;
+        for (StorageState storage : storages) {
+            Assert.assertTrue(storage.isActive());
+            uploads += storage.getTotalUploadCount();
+        }
+        Assert.assertEquals(1, uploads);
+    }
+
+    @Test
+    public void parallelTransferTest() throws Exception {
+        byte[] bytes = randomBytes(3 * 1024 * 1024 + 100);
+        File source = File.createTempFile("testkit", ".bin");
+        File target = File.createTempFile("testkit", ".bin");
+        try {
+            Files.write(source.toPath(), bytes);
+            StorePath path = fastDfs.uploadMultipartParallel("group1", source);
+            fastDfs.downloadFileParallel(ParallelDownloadFileRequest.builder()
+                    .groupName(path.getGroup()).path(path.getPath())
+                    .fileName(target.getAbsolutePath()).partSize(1024 * 1024).build());
+            Assert.assertArrayEquals(bytes, Files.readAllBytes(target.toPath()));
+        } finally {
+            source.delete();
+            target.delete();
+        }
+    }
+
+    @Test
+    public void nioReadTimeoutTest() throws Exception {
+        FastDfsClient client = newClient(config -> {
+            config.getConnection().setNio(true);
+            config.getConnection().setSocketTimeout(300);
+        });
+        File file = Files.createTempFile("fastdfs-nio", ".txt").toFile();
+        try {
+            byte[] bytes = randomBytes(32 * 1024);
+            StorePath path = upload(bytes);
+            client.downloadFile(path.getGroup(), path.getPath(), new DownloadFileWriter(file.getAbsolutePath()));
+            Assert.assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+            // 连接复用Selector 下载后恢复阻塞模式 后续命令正常执行
+            client.downloadFile(path.getGroup(), path.getPath(), new DownloadFileWriter(file.getAbsolutePath()));
+            Assert.assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+            Assert.assertEquals(bytes.length, client.queryFileInfo(path.getGroup(), path.getPath()).getFileSize());
+
+            // 报文内容传输中途停顿 channel读取超时
+            cluster.getStorages("group1").forEach(storage ->
+                    storage.getConditions().setBandwidthBytesPerSecond(4 * 1024));
+            try {
+                client.downloadFile(path.getGroup(), path.getPath(), new DownloadFileWriter(file.getAbsolutePath()));
+                Assert.fail();
+            } catch (FdfsIOException e) {
+                Assert.assertTrue(e.getCause() instanceof SocketTimeoutException);
+            }
+            cluster.getStorages("group1").forEach(storage -> storage.getConditions().clear());
+            client.downloadFile(path.getGroup(), path.getPath(), new DownloadFileWriter(file.getAbsolutePath()));
+            Assert.assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void stopTest() throws Exception {
+        FakeStorageServer storage = cluster.getStorages("group1").get(0);
+        InetSocketAddress address = new InetSocketAddress(storage.getIp(), storage.getPort());
+        storage.stop();
+        // 停止后新连接被拒绝或立即重置 不会挂起
+        byte[] activeTest = new ProtoHead(0, CmdConstants.FDFS_PROTO_CMD_ACTIVE_TEST, (byte) 0).toByte();
+        for (int i = 0; i < 20; i++) {
+            try (Socket socket = new Socket()) {
+                socket.connect(address, 1000);
+                socket.setSoTimeout(1000);
+                socket.getOutputStream().write(activeTest);
+                Assert.assertEquals(-1, socket.getInputStream().read());
+            } catch (SocketTimeoutException e) {
+                Assert.fail("stopped server still serving");
+            } catch (IOException e) {
+                // 连接被拒绝或重置
+            }
+        }
+        storage.start();
+        Assert.assertEquals(address.getPort(), storage.getPort());
+        byte[] bytes = randomBytes(100);
+        StorePath path = upload(bytes);
+        Assert.assertArrayEquals(bytes, fastDfs.downloadFile(path.getGroup(), path.getPath(),
+                new DownloadByteArray()));
+    }
+
+    @Test
+    public void failoverTest() {
+        byte[] bytes = randomBytes(100);
+        StorePath path = upload(bytes);
+        FakeStorageServer stopped = cluster.getStorages("group1").get(0);
+        stopped.stop();
+        // 停止的storage不再参与调度 同组storage共享存储
+        for (int i = 0; i < 4; i++) {
+            Assert.assertArrayEquals(bytes, fastDfs.downloadFile(path.getGroup(), path.getPath(),
+                    new DownloadByteArray()));
+            upload(bytes);
+        }
+        Assert.assertFalse(fastDfs.listStorages("group1").get(0).isActive());
+
+        // 连接池借出时的ACTIVE_TEST和新建连接都被重置
+        FakeStorageServer running = cluster.getStorages("group1").get(1);
+        running.getConditions().resetNext(10);
+        try {
+            upload(bytes);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            // 连接被重置
+        }
+        running.getConditions().clear();
+        upload(bytes);
+        Assert.assertTrue(running.getRequestCount(CmdConstants.STORAGE_PROTO_CMD_UPLOAD_FILE) >= 5);
+    }
+
+    @Test
+    public void conditionsTest() {
+        NetworkConditions conditions = cluster.getStorages("group1").get(0).getConditions();
+        cluster.getStorages("group1").get(1).getConditions()
+                .setLatencyMillis(100).setBandwidthBytesPerSecond(1024 * 1024);
+        conditions.setLatencyMillis(100).setBandwidthBytesPerSecond(1024 * 1024);
+        long start = System.currentTimeMillis();
+        upload(randomBytes(512 * 1024));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 500);
+    }
+
+    @Test
+    public void warmUpTest() {
+        FastDfsClient client = newClient(config -> config.getConnection().setWarmUpEnabled(true));
+        ConnectionPool pool = client.getConnectionManager().getPool();
+        for (FakeStorageServer storage : cluster.getStorages("group1")) {
+            Assert.assertEquals(FastDFSConstants.MIN_IDLE_PER_KEY, pool.getNumIdle(
+                    new InetSocketAddress(storage.getIp(), storage.getPort())));
+        }
+        // 已达到minIdle时不再新建
+        Assert.assertEquals(0, client.warmUp(1000));
+    }
+
+    @Test
+    public void warmUpDiscoveryTimeoutTest() {
+        FastDfsClient client = newClient(config -> {
+        });
+        ConnectionPool pool = client.getConnectionManager().getPool();
+        // tracker响应慢时获取storage列表超时 只跳过storage预热
+        cluster.getTracker().getConditions().setLatencyMillis(2000);
+        client.warmUp(200);
+        for (FakeStorageServer storage : cluster.getStorages("group1")) {
+            Assert.assertEquals(0, pool.getNumIdle(new InetSocketAddress(storage.getIp(), storage.getPort())));
+        }
+        cluster.getTracker().getConditions().clear();
+        client.warmUp(1000);
+        for (FakeStorageServer storage : cluster.getStorages("group1")) {
+            Assert.assertEquals(FastDFSConstants.MIN_IDLE_PER_KEY, pool.getNumIdle(
+                    new InetSocketAddress(storage.getIp(), storage.getPort())));
+        }
+    }
+
+    @Test
+    public void healthCheckTest() throws Exception {
+        FakeFastDfsCluster trackers = new FakeFastDfsCluster(2).addGroup("group1", 1).start();
+        FastDfsClient client = newClient(trackers.getTrackerServers(), config -> {
+            config.getConnection().setHealthCheckEnabled(true);
+            config.getConnection().setHealthCheckIntervalMillis(100);
+            config.getConnection().setHealthCheckMaxBackoffMillis(400);
+        });
+        try {
+            TrackerConnectionManager manager =
+                    ((DefaultTrackerClient) client.getTrackerClient()).getTrackerConnectionManager();
+            FakeTrackerServer stopped = trackers.getTrackers().get(0);
+            InetSocketAddress stoppedAddress = new InetSocketAddress(stopped.getIp(), stopped.getPort());
+            stopped.stop();
+            Assert.assertEquals(1, manager.getHealthChecker().checkNow());
+
+            // 已知不可用的tracker不再被选择
+            for (int i = 0; i < 10; i++) {
+                Assert.assertNotEquals(stoppedAddress, manager.getTrackerLocator().selectTracker().getAddress());
+                Assert.assertEquals(1, client.listGroups().size());
+            }
+
+            // 恢复后由后台检查重新标记可用
+            stopped.start();
+            TrackerAddressHolder holder = null;
+            for (TrackerAddressHolder h : manager.getTrackerLocator().getTrackerAddressHolders()) {
+                if (h.getAddress().equals(stoppedAddress)) {
+                    holder = h;
+                }
+            }
+            Assert.assertNotNull(holder);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!holder.isAvailable() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Assert.assertTrue(holder.isAvailable());
+        } finally {
+            trackers.close();
+        }
+    }
+
+    @Test
+    public void readBalanceTest() {
+        FastDfsClient client = newClient(config -> config.getRoute().setReadBalanceEnabled(true));
+        byte[] bytes = randomBytes(100);
+        StorePath path = client.uploadFile("group1", new ByteArrayInputStream(bytes), bytes.length, "txt");
+        client.getStoreStateCache().refresh();
+        for (int i = 0; i < 64; i++) {
+            Assert.assertArrayEquals(bytes, client.downloadFile(path.getGroup(), path.getPath(),
+                    new DownloadByteArray()));
+            Assert.assertEquals(bytes.length, client.queryFileInfo(path.getGroup(), path.getPath()).getFileSize());
+        }
+        // 读请求分散到group内的所有storage 不经过tracker
+        for (FakeStorageServer storage : cluster.getStorages("group1")) {
+            Assert.assertTrue(storage.getRequestCount(CmdConstants.STORAGE_PROTO_CMD_DOWNLOAD_FILE) > 0);
+        }
+        Assert.assertEquals(0, cluster.getTracker().getRequestCount(
+                CmdConstants.TRACKER_PROTO_CMD_SERVICE_QUERY_FETCH_ONE));
+
+        // appender文件名不含真实大小 追加后仍由tracker选择storage
+        StorePath appender = client.uploadAppenderFile("group1", new ByteArrayInputStream(bytes), bytes.length, "txt");
+        Assert.assertTrue(FileNameInfo.decode(appender.getPath()).isAppenderFile());
+        client.appendFile(appender.getGroup(), appender.getPath(), new ByteArrayInputStream(bytes), bytes.length);
+        Assert.assertEquals(2 * bytes.length, client.downloadFile(appender.getGroup(), appender.getPath(),
+                new DownloadByteArray()).length);
+        Assert.assertEquals(1, cluster.getTracker().getRequestCount(
+                CmdConstants.TRACKER_PROTO_CMD_SERVICE_QUERY_FETCH_ONE));
+    }
+
+    @Test
+    public void asyncReadBalanceTest() {
+        FastDfsClient client = newClient(config -> config.getRoute().setReadBalanceEnabled(true));
+        AsyncFastDfsClient async = new AsyncFastDfsClient(client);
+        // 默认线程池有界 线程数与每个storage的最大连接数一致
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) async.getExecutor();
+        GenericKeyedObjectPoolConfig pool = client.getConfiguration().getConnection().getPool();
+        Assert.assertEquals(pool.getMaxTotalPerKey(), executor.getMaximumPoolSize());
+        byte[] bytes = randomBytes(100);
+        Set<MetaData> metaData = new HashSet<>();
+        metaData.add(new MetaData("name", "async"));
+        StorePath path = client.uploadFile(UploadFileRequest.builder().groupName("group1")
+                .stream(new ByteArrayInputStream(bytes), bytes.length, "txt")
+                .metaData(metaData).build());
+        client.getStoreStateCache().refresh();
+        for (int i = 0; i < 64; i++) {
+            Assert.assertArrayEquals(bytes, async.downloadFile(path.getGroup(), path.getPath(),
+                    new DownloadByteArray()).join());
+            Assert.assertEquals(bytes.length, async.queryFileInfo(path.getGroup(), path.getPath()).join()
+                    .getFileSize());
+            Assert.assertEquals(metaData, async.getMetadata(path.getGroup(), path.getPath()).join());
+        }
+        // 异步读命令与同步客户端路由一致 不经过tracker
+        for (FakeStorageServer storage : cluster.getStorages("group1")) {
+            Assert.assertTrue(storage.getRequestCount(CmdConstants.STORAGE_PROTO_CMD_DOWNLOAD_FILE) > 0);
+        }
+        Assert.assertEquals(0, cluster.getTracker().getRequestCount(
+                CmdConstants.TRACKER_PROTO_CMD_SERVICE_QUERY_FETCH_ONE));
+        async.shutdown();
+        Assert.assertTrue(executor.isShutdown());
+    }
+
+    @Test
+    public void hedgeTest() {
+        FastDfsClient client = newClient(config -> {
+            config.getRoute().setHedgeEnabled(true);
+            config.getRoute().setHedgeMaxBytes(1000);
+        });
+        byte[] bytes = randomBytes(100);
+        Set<MetaData> metaData = new HashSet<>();
+        metaData.add(new MetaData("name", "hedge"));
+        StorePath path = client.uploadFile(UploadFileRequest.builder().groupName("group1")
+                .stream(new ByteArrayInputStream(bytes), bytes.length, "txt")
+                .metaData(metaData).build());
+        client.getStoreStateCache().refresh();
+        // 由文件名得到的大小超过hedgeMaxBytes时不对冲 直接流式下载
+        byte[] large = randomBytes(2000);
+        StorePath largePath = upload(large);
+        Assert.assertArrayEquals(large, client.downloadFile(largePath.getGroup(), largePath.getPath(),
+                new DownloadByteArray()));
+        Assert.assertEquals(0, client.getDownloadHedge().getRequestCount());
+        // tracker轮流返回下载storage 让下一次请求的首选storage变慢 未指定长度的小文件下载也对冲
+        StorageNodeInfo fast = client.getFetchStorage(path.getGroup(), path.getPath());
+        FakeStorageServer slow = slowOther(fast);
+        Assert.assertArrayEquals(bytes, client.downloadFile(path.getGroup(), path.getPath(),
+                new DownloadByteArray()));
+        Assert.assertEquals(1, client.getDownloadHedge().getRequestCount());
+        Assert.assertEquals(1, client.getDownloadHedge().getHedgeWinCount());
+
+        slow.getConditions().clear();
+        fast = client.getFetchStorage(path.getGroup(), path.getPath());
+        slowOther(fast);
+        Assert.assertEquals(metaData, client.getMetadata(path.getGroup(), path.getPath()));
+        Assert.assertEquals(1, client.getMetadataHedge().getHedgeWinCount());
+    }
+
+    private FakeStorageServer slowOther(StorageNodeInfo fast) {
+        for (FakeStorageServer storage : cluster.getStorages("group1")) {
+            if (storage.getPort() != fast.getPort() || !storage.getIp().equals(fast.getIp())) {
+                storage.getConditions().setLatencyMillis(1000);
+                return storage;
+            }
+        }
+        throw new IllegalStateException("no other storage");
+    }
+
+    @Test
+    public void circuitBreakerTest() throws Exception {
+        FastDfsClient client = newClient(config -> {
+            config.getCircuitBreaker().setEnabled(true);
+            config.getCircuitBreaker().setConsecutiveFailures(3);
+            config.getCircuitBreaker().setOpenMillis(200);
+        });
+        StorePath path = upload(randomBytes(10));
+        FakeStorageServer storage = cluster.getStorages("group1").get(0);
+        InetSocketAddress address = new InetSocketAddress(storage.getIp(), storage.getPort());
+        FdfsConnectionManager manager = client.getConnectionManager();
+        storage.getConditions().resetNext(3);
+        for (int i = 0; i < 3; i++) {
+            try {
+                manager.executeFdfsCmd(address, new StorageQueryFileInfoCommand(path.getGroup(), path.getPath()));
+                Assert.fail();
+            } catch (FdfsException e) {
+                Assert.assertFalse(e instanceof FdfsCircuitOpenException);
+            }
+        }
+        // 熔断后不再请求storage
+        long requests = storage.getRequestCount(CmdConstants.STORAGE_PROTO_CMD_QUERY_FILE_INFO);
+        try {
+            manager.executeFdfsCmd(address, new StorageQueryFileInfoCommand(path.getGroup(), path.getPath()));
+            Assert.fail();
+        } catch (FdfsCircuitOpenException e) {
+            Assert.assertEquals(CircuitBreaker.State.OPEN, manager.getCircuitBreakers().get(address).getState());
+        }
+        Assert.assertEquals(requests, storage.getRequestCount(CmdConstants.STORAGE_PROTO_CMD_QUERY_FILE_INFO));
+
+        // 经过openMillis后探测请求成功 关闭熔断
+        Thread.sleep(250);
+        Assert.assertEquals(10, manager.executeFdfsCmd(address,
+                new StorageQueryFileInfoCommand(path.getGroup(), path.getPath())).getFileSize());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, manager.getCircuitBreakers().get(address).getState());
+    }
+
+    @Test
+    public void circuitBreakerPoolExhaustedTest() throws Exception {
+        FastDfsClient client = newClient(config -> {
+            config.getCircuitBreaker().setEnabled(true);
+            config.getCircuitBreaker().setConsecutiveFailures(2);
+            GenericKeyedObjectPoolConfig pool = config.getConnection().getPool();
+            pool.setMaxTotalPerKey(1);
+            pool.setMaxWaitMillis(10);
+        });
+        StorePath path = upload(randomBytes(10));
+        FakeStorageServer storage = cluster.getStorages("group1").get(0);
+        InetSocketAddress address = new InetSocketAddress(storage.getIp(), storage.getPort());
+        FdfsConnectionManager manager = client.getConnectionManager();
+        // 连接池耗尽与storage无关 不触发熔断
+        Connection held = manager.getPool().borrowObject(address);
+        try {
+            for (int i = 0; i < 5; i++) {
+                try {
+                    manager.executeFdfsCmd(address, new StorageQueryFileInfoCommand(path.getGroup(), path.getPath()));
+                    Assert.fail();
+                } catch (FdfsClientException e) {
+                    Assert.assertTrue(e.getCause() instanceof NoSuchElementException);
+                }
+            }
+            Assert.assertEquals(CircuitBreaker.State.CLOSED, manager.getCircuitBreakers().get(address).getState());
+        } finally {
+            manager.getPool().returnObject(address, held);
+        }
+        Assert.assertEquals(10, manager.executeFdfsCmd(address,
+                new StorageQueryFileInfoCommand(path.getGroup(), path.getPath())).getFileSize());
+    }
+
+    @Test
+    public void deleteFilesTest() {
+        FastDfsClient client = newClient(config -> {
+            config.getConnection().setBatchParallelism(4);
+            config.getConnection().setPipelineDepth(8);
+        });
+        List<StorePath> paths = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            paths.add(upload(randomBytes(10)));
+        }
+        StorePath missing = new StorePath("group1", paths.get(0).getPath().replace(".txt", ".bak"));
+        List<StorePath> deletes = new ArrayList<>(paths);
+        deletes.add(missing);
+        deletes.add(paths.get(1));
+
+        long connections = 0;
+        for (FakeStorageServer storage : cluster.getStorages("group1")) {
+            connections += storage.getConnectionCount();
+        }
+        BatchResult<Void> result = client.deleteFiles(deletes);
+        Assert.assertEquals(100, result.getSuccessCount());
+        Assert.assertEquals(1, result.getErrorCount());
+        Assert.assertTrue(result.getErrors().get(missing) instanceof FdfsServerException);
+        for (StorePath path : paths) {
+            Assert.assertNull(fastDfs.queryFileInfo(path.getGroup(), path.getPath()));
+        }
+        // 流水线执行 连接数不超过并发数
+        for (FakeStorageServer storage : cluster.getStorages("group1")) {
+            connections -= storage.getConnectionCount();
+        }
+        Assert.assertTrue(-connections <= 4);
+
+        // 连接异常时整批失败 不影响后续删除
+        paths.clear();
+        for (int i = 0; i < 20; i++) {
+            paths.add(upload(randomBytes(10)));
+        }
+        cluster.getStorages("group1").forEach(storage -> storage.getConditions().setResetProbability(1.0));
+        result = client.deleteFiles(paths);
+        Assert.assertEquals(20, result.getErrorCount());
+        result.getErrors().values().forEach(e -> Assert.assertFalse(e instanceof FdfsServerException));
+        cluster.getStorages("group1").forEach(storage -> storage.getConditions().clear());
+        result = client.deleteFiles(paths);
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(20, result.getSuccessCount());
+    }
+
+    @Test
+    public void batchReadTest() {
+        FastDfsClient client = newClient(config -> {
+            config.getConnection().setBatchParallelism(4);
+            config.getConnection().setPipelineDepth(8);
+        });
+        List<StorePath> paths = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Set<MetaData> metaData = new HashSet<>();
+            metaData.add(new MetaData("index", String.valueOf(i)));
+            byte[] bytes = randomBytes(i + 1);
+            paths.add(fastDfs.uploadFile(UploadFileRequest.builder().groupName("group1")
+                    .stream(new ByteArrayInputStream(bytes), bytes.length, "txt").metaData(metaData).build()));
+        }
+        StorePath missing = new StorePath("group1", paths.get(0).getPath().replace(".txt", ".bak"));
+        List<StorePath> queries = new ArrayList<>(paths);
+        queries.add(missing);
+
+        BatchResult<FileInfo> infos = client.queryFileInfos(queries);
+        Assert.assertTrue(infos.isSuccess());
+        Assert.assertEquals(51, infos.getSuccessCount());
+        Assert.assertNull(infos.get(missing));
+        BatchResult<Set<MetaData>> metaDatas = client.getMetadatas(queries);
+        Assert.assertTrue(metaDatas.isSuccess());
+        for (int i = 0; i < paths.size(); i++) {
+            Assert.assertEquals(i + 1, infos.get(paths.get(i)).getFileSize());
+            Set<MetaData> metaData = metaDatas.get(paths.get(i));
+            Assert.assertEquals(1, metaData.size());
+            Assert.assertEquals(String.valueOf(i), metaData.iterator().next().getValue());
+        }
+        Assert.assertEquals(fastDfs.getMetadata(missing.getGroup(), missing.getPath()), metaDatas.get(missing));
+    }
+}
@@ -0,0 +1,132 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.model.DownloadFileRequest;
+import com.ykrenz.fastdfs.model.FileInfoRequest;
+import com.ykrenz.fastdfs.model.MetaDataInfoRequest;
+import com.ykrenz.fastdfs.model.MetaDataRequest;
+import com.ykrenz.fastdfs.model.UploadFileRequest;
+import com.ykrenz.fastdfs.model.fdfs.FileInfo;
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+import com.ykrenz.fastdfs.model.fdfs.StorePath;
+import com.ykrenz.fastdfs.model.proto.storage.DownloadCallback;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * FastDFS异步客户端
+ * <pre>
+ * 查询tracker和执行storage命令分为两个异步阶段 均在指定线程池中执行 调用线程不阻塞
+ * 失败时CompletableFuture异常结束 异常原因为原有的FdfsException
+ * </pre>
+ *
+ * @author ykren
+ */
+public interface AsyncFastDfs {
+
+    /**
+     * 上传一般文件
+     *
+     * @param file
+     * @return
+     */
+    CompletableFuture<StorePath> uploadFile(File file);
+
+    /**
+     * 上传一般文件
+     *
+     * @param request
+     * @return
+     */
+    CompletableFuture<StorePath> uploadFile(UploadFileRequest request);
+
+    /**
+     * 下载文件
+     *
+     * @param groupName
+     * @param path
+     * @param callback
+     * @param <T>
+     * @return
+     */
+    <T> CompletableFuture<T> downloadFile(String groupName, String path, DownloadCallback<T> callback);
+
+    /**
+     * 下载文件
+     *
+     * @param request
+     * @param callback
+     * @param <T>
+     * @return
+     */
+    <T> CompletableFuture<T> downloadFile(DownloadFileRequest request, DownloadCallback<T> callback);
+
+    /**
+     * 获取文件元信息
+     *
+     * @param groupName
+     * @param path
+     * @return
+     */
+    CompletableFuture<Set<MetaData>> getMetadata(String groupName, String path);
+
+    /**
+     * 获取文件元信息
+     *
+     * @param request
+     * @return
+     */
+    CompletableFuture<Set<MetaData>> getMetadata(MetaDataInfoRequest request);
+
+    /**
+     * 修改文件元信息（覆盖）
+     *
+     * @param request
+     * @return
+     */
+    CompletableFuture<Void> overwriteMetadata(MetaDataRequest request);
+
+    /**
+     * 修改文件元信息（合并）
+     *
+     * @param request
+     * @return
+     */
+    CompletableFuture<Void> mergeMetadata(MetaDataRequest request);
+
+    /**
+     * 查看文件的信息
+     *
+     * @param groupName
+     * @param path
+     * @return
+     */
+    CompletableFuture<FileInfo> queryFileInfo(String groupName, String path);
+
+    /**
+     * 查看文件的信息
+     *
+     * @param request
+     * @return
+     */
+    CompletableFuture<FileInfo> queryFileInfo(FileInfoRequest request);
+
+    /**
+     * 删除文件
+     *
+     * @param groupName
+     * @param path
+     * @return
+     */
+    CompletableFuture<Void> deleteFile(String groupName, String path);
+
+    /**
+     * 删除文件
+     *
+     * @param request
+     * @return
+     */
+    CompletableFuture<Void> deleteFile(FileInfoRequest request);
+
+}
@@ -0,0 +1,228 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.common.CodeUtils;
+import com.ykrenz.fastdfs.common.NamedThreadFactory;
+import com.ykrenz.fastdfs.conn.HedgePolicy;
+import com.ykrenz.fastdfs.model.DownloadFileRequest;
+import com.ykrenz.fastdfs.model.FileInfoRequest;
+import com.ykrenz.fastdfs.model.MetaDataInfoRequest;
+import com.ykrenz.fastdfs.model.MetaDataRequest;
+import com.ykrenz.fastdfs.model.UploadFileRequest;
+import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
+import com.ykrenz.fastdfs.model.fdfs.FileInfo;
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+import com.ykrenz.fastdfs.model.fdfs.StorageNodeInfo;
+import com.ykrenz.fastdfs.model.fdfs.StorePath;
+import com.ykrenz.fastdfs.model.proto.storage.DownloadCallback;
+import com.ykrenz.fastdfs.model.proto.storage.StorageDeleteFileCommand;
+import com.ykrenz.fastdfs.model.proto.storage.StorageGetMetadataCommand;
+import com.ykrenz.fastdfs.model.proto.storage.StorageQueryFileInfoCommand;
+import com.ykrenz.fastdfs.model.proto.storage.enums.StorageMetadataSetType;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FastDFS异步客户端默认实现
+ * <pre>
+ * 基于{@link FastDfsClient}的连接管理器和TrackerClient
+ * 上传、更新第一阶段向tracker查询storage 第二阶段在storage上执行命令 两个阶段分别提交到线程池 阶段之间不占用线程
+ * 读命令与同步客户端使用相同的路由 本地选择storage、对冲请求、连接失败或熔断时回退到tracker
+ * 连接本身为阻塞IO 并发数受线程池大小限制 建议使用有界线程池
+ * 未指定线程池时创建有界的fastdfs-async线程池 线程数与每个storage的最大连接数maxTotalPerKey一致 超出时排队
+ * 客户端和传入线程池的生命周期由调用方管理 默认线程池通过{@link #shutdown()}关闭
+ * </pre>
+ *
+ * @author ykren
+ */
+public class AsyncFastDfsClient implements AsyncFastDfs {
+
+    /**
+     * 默认线程池空闲线程存活时间
+     */
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * 同步客户端
+     */
+    private final FastDfsClient client;
+
+    /**
+     * 执行线程池
+     */
+    private final Executor executor;
+
+    /**
+     * 是否为自行创建的默认线程池
+     */
+    private final boolean defaultExecutor;
+
+    /**
+     * 使用默认的有界线程池
+     *
+     * @param client
+     */
+    public AsyncFastDfsClient(FastDfsClient client) {
+        this(client, createDefaultExecutor(client), true);
+    }
+
+    public AsyncFastDfsClient(FastDfsClient client, Executor executor) {
+        this(client, executor, false);
+    }
+
+    private AsyncFastDfsClient(FastDfsClient client, Executor executor, boolean defaultExecutor) {
+        CodeUtils.validateNotNull(client, "client");
+        CodeUtils.validateNotNull(executor, "executor");
+        this.client = client;
+        this.executor = executor;
+        this.defaultExecutor = defaultExecutor;
+    }
+
+    /**
+     * 创建默认线程池 线程数为maxTotalPerKey 空闲线程超时回收
+     *
+     * @param client
+     * @return
+     */
+    private static ExecutorService createDefaultExecutor(FastDfsClient client) {
+        CodeUtils.validateNotNull(client, "client");
+        GenericKeyedObjectPoolConfig pool = client.getConfiguration().getConnection().getPool();
+        int threads = pool.getMaxTotalPerKey() > 0 ? pool.getMaxTotalPerKey() : FastDFSConstants.MAX_TOTAL_PER_KEY;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, DEFAULT_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new NamedThreadFactory("fastdfs-async"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 关闭默认线程池 传入的线程池由调用方关闭
+     */
+    public void shutdown() {
+        if (defaultExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    public FastDfsClient getClient() {
+        return client;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public CompletableFuture<StorePath> uploadFile(File file) {
+        return this.uploadFile(UploadFileRequest.builder().file(file).build());
+    }
+
+    @Override
+    public CompletableFuture<StorePath> uploadFile(UploadFileRequest request) {
+        String groupName = client.getGroupName(request);
+        return CompletableFuture.supplyAsync(() -> client.getStoreStorage(groupName), executor)
+                .thenApplyAsync(storage -> {
+                    InputStream stream = client.getInputStream(request);
+                    return client.uploadFileAndMetaData(storage, stream, request.fileSize(),
+                            request.fileExtName(), request.metaData(), false);
+                }, executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> downloadFile(String groupName, String path, DownloadCallback<T> callback) {
+        return this.downloadFile(DownloadFileRequest.builder()
+                .groupName(groupName).path(path).build(), callback);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> downloadFile(DownloadFileRequest request, DownloadCallback<T> callback) {
+        CodeUtils.validateNotNull(callback, "callback");
+        // 是否对冲及对冲时的缓存由同步客户端决定
+        return CompletableFuture.supplyAsync(() -> client.downloadFile(request, callback), executor);
+    }
+
+    @Override
+    public CompletableFuture<Set<MetaData>> getMetadata(String groupName, String path) {
+        return this.getMetadata(MetaDataInfoRequest.builder()
+                .groupName(groupName).path(path).build());
+    }
+
+    @Override
+    public CompletableFuture<Set<MetaData>> getMetadata(MetaDataInfoRequest request) {
+        String groupName = request.groupName();
+        String path = request.path();
+        HedgePolicy hedge = client.getMetadataHedge();
+        return CompletableFuture.supplyAsync(() -> {
+            if (hedge != null) {
+                return client.executeHedgedReadCmd(hedge, groupName, path,
+                        () -> new StorageGetMetadataCommand(groupName, path));
+            }
+            return client.executeReadCmd(groupName, path, new StorageGetMetadataCommand(groupName, path));
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> overwriteMetadata(MetaDataRequest request) {
+        return uploadMetaData(request, StorageMetadataSetType.STORAGE_SET_METADATA_FLAG_OVERWRITE);
+    }
+
+    @Override
+    public CompletableFuture<Void> mergeMetadata(MetaDataRequest request) {
+        return uploadMetaData(request, StorageMetadataSetType.STORAGE_SET_METADATA_FLAG_MERGE);
+    }
+
+    private CompletableFuture<Void> uploadMetaData(MetaDataRequest request, StorageMetadataSetType type) {
+        String groupName = request.groupName();
+        String path = request.path();
+        return updateStorage(groupName, path)
+                .thenAcceptAsync(storage -> client.uploadMetaData(storage.getInetSocketAddress(),
+                        groupName, path, type, request.metaData()), executor);
+    }
+
+    @Override
+    public CompletableFuture<FileInfo> queryFileInfo(String groupName, String path) {
+        return this.queryFileInfo(FileInfoRequest.builder()
+                .groupName(groupName).path(path).build());
+    }
+
+    @Override
+    public CompletableFuture<FileInfo> queryFileInfo(FileInfoRequest request) {
+        String groupName = request.groupName();
+        String path = request.path();
+        return CompletableFuture.supplyAsync(() -> client.executeReadCmd(groupName, path,
+                new StorageQueryFileInfoCommand(groupName, path)), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteFile(String groupName, String path) {
+        return this.deleteFile(FileInfoRequest.builder()
+                .groupName(groupName).path(path).build());
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteFile(FileInfoRequest request) {
+        String groupName = request.groupName();
+        String path = request.path();
+        return updateStorage(groupName, path)
+                .thenAcceptAsync(storage -> client.executeStorageCmd(storage.getInetSocketAddress(),
+                        new StorageDeleteFileCommand(groupName, path)), executor);
+    }
+
+    /**
+     * 异步查询更新storage
+     *
+     * @param groupName
+     * @param path
+     * @return
+     */
+    private CompletableFuture<StorageNodeInfo> updateStorage(String groupName, String path) {
+        return CompletableFuture.supplyAsync(() -> client.getUpdateStorage(groupName, path), executor);
+    }
+}
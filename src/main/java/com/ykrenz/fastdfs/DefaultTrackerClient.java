@@ -44,7 +44,7 @@ public class DefaultTrackerClient implements TrackerClient {
 
     @Override
     public void shutdown() {
-        trackerConnectionManager.getPool().close();
+        trackerConnectionManager.shutdown();
         LOGGER.debug("fastdfs tracker server shutdown");
     }
 
@@ -1,6 +1,7 @@
 package com.ykrenz.fastdfs;
 
 import com.ykrenz.fastdfs.model.*;
+import com.ykrenz.fastdfs.model.fdfs.BatchResult;
 import com.ykrenz.fastdfs.model.fdfs.FileInfo;
 import com.ykrenz.fastdfs.model.fdfs.ImageStorePath;
 import com.ykrenz.fastdfs.model.fdfs.MetaData;
@@ -9,6 +10,7 @@ import com.ykrenz.fastdfs.model.proto.storage.DownloadCallback;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -159,6 +161,15 @@ public interface FastDfs extends TrackerClient, HttpServerClient {
      */
     Set<MetaData> getMetadata(MetaDataInfoRequest request);
 
+    /**
+     * 批量获取文件元信息
+     * 并发查询各文件所在storage 按storage分组后在少量连接上流水线发送请求
+     *
+     * @param storePaths
+     * @return 每个文件的元信息 文件不存在时为null
+     */
+    BatchResult<Set<MetaData>> getMetadatas(Collection<StorePath> storePaths);
+
     /**
      * 修改文件元信息（覆盖）
      *
@@ -216,6 +227,15 @@ public interface FastDfs extends TrackerClient, HttpServerClient {
      */
     FileInfo queryFileInfo(FileInfoRequest request);
 
+    /**
+     * 批量查看文件的信息
+     * 并发查询各文件所在storage 按storage分组后在少量连接上流水线发送请求
+     *
+     * @param storePaths
+     * @return 每个文件的信息 文件不存在时为null
+     */
+    BatchResult<FileInfo> queryFileInfos(Collection<StorePath> storePaths);
+
     /**
      * 删除文件
      *
@@ -231,6 +251,15 @@ public interface FastDfs extends TrackerClient, HttpServerClient {
      */
     void deleteFile(FileInfoRequest request);
 
+    /**
+     * 批量删除文件
+     * 并发查询各文件所在storage 按storage分组后在少量连接上流水线发送删除请求
+     *
+     * @param storePaths
+     * @return 每个文件的删除结果
+     */
+    BatchResult<Void> deleteFiles(Collection<StorePath> storePaths);
+
     /**
      * 下载文件
      *
@@ -264,6 +293,25 @@ public interface FastDfs extends TrackerClient, HttpServerClient {
      */
     <T> T downloadFile(DownloadFileRequest request, DownloadCallback<T> callback);
 
+    /**
+     * 并行下载文件到本地
+     * 按分片大小切分后多连接并发下载 分散到group内所有ACTIVE状态的storage
+     *
+     * @param groupName
+     * @param path
+     * @param fileName  本地文件名
+     * @return 本地文件名
+     */
+    String downloadFileParallel(String groupName, String path, String fileName);
+
+    /**
+     * 并行下载文件到本地
+     *
+     * @param request
+     * @return 本地文件名
+     */
+    String downloadFileParallel(ParallelDownloadFileRequest request);
+
     /**
      * 上传支持断点续传的文件
      *
@@ -461,4 +509,23 @@ public interface FastDfs extends TrackerClient, HttpServerClient {
      */
     StorePath completeMultipartUpload(CompleteMultipartRequest request);
 
+    /**
+     * 并行分片上传
+     * 初始化分片上传后多连接并发上传各分片 单个分片失败时单独重试 全部完成后完成分片上传
+     *
+     * @param groupName
+     * @param file
+     * @return StorePath
+     */
+    StorePath uploadMultipartParallel(String groupName, File file);
+
+    /**
+     * 并行分片上传
+     * 任一分片重试后仍失败则删除已上传的文件并抛出异常
+     *
+     * @param request
+     * @return regenerate=false原文件路径 true regenerate文件路径
+     */
+    StorePath uploadMultipartParallel(ParallelMultipartUploadRequest request);
+
 }
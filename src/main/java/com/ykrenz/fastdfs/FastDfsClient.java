@@ -3,17 +3,37 @@ package com.ykrenz.fastdfs;
 import com.ykrenz.fastdfs.multipart.MultipartUploadAttachment;
 import com.ykrenz.fastdfs.multipart.DefaultMultipartAttachmentAccessor;
 import com.ykrenz.fastdfs.multipart.MultipartAttachmentAccessor;
+import com.ykrenz.fastdfs.cache.StorageRouteCache;
+import com.ykrenz.fastdfs.cache.StorageStateCache;
+import com.ykrenz.fastdfs.common.BufferPool;
 import com.ykrenz.fastdfs.common.CodeUtils;
+import com.ykrenz.fastdfs.common.NamedThreadFactory;
+import com.ykrenz.fastdfs.config.ConnectionConfiguration;
 import com.ykrenz.fastdfs.config.FastDfsConfiguration;
+import com.ykrenz.fastdfs.config.RouteConfiguration;
+import com.ykrenz.fastdfs.conn.CircuitBreakerRegistry;
+import com.ykrenz.fastdfs.conn.ConnectionPool;
+import com.ykrenz.fastdfs.conn.ConnectionPoolWarmer;
 import com.ykrenz.fastdfs.conn.FdfsConnectionManager;
 import com.ykrenz.fastdfs.conn.FdfsConnectionPool;
+import com.ykrenz.fastdfs.conn.HedgePolicy;
+import com.ykrenz.fastdfs.conn.LockFreeConnectionPool;
 import com.ykrenz.fastdfs.conn.TrackerConnectionManager;
 import com.ykrenz.fastdfs.event.ProgressInputStream;
 import com.ykrenz.fastdfs.event.ProgressListener;
 import com.ykrenz.fastdfs.exception.FdfsClientException;
+import com.ykrenz.fastdfs.exception.FdfsConnectException;
+import com.ykrenz.fastdfs.exception.FdfsException;
+import com.ykrenz.fastdfs.exception.FdfsIOException;
+import com.ykrenz.fastdfs.exception.FdfsServerException;
 import com.ykrenz.fastdfs.exception.FdfsUploadImageException;
+import com.ykrenz.fastdfs.metrics.DefaultFdfsMetrics;
+import com.ykrenz.fastdfs.metrics.FdfsMetrics;
 import com.ykrenz.fastdfs.model.*;
+import com.ykrenz.fastdfs.model.fdfs.BatchResult;
+import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
 import com.ykrenz.fastdfs.model.fdfs.FileInfo;
+import com.ykrenz.fastdfs.model.fdfs.FileNameInfo;
 import com.ykrenz.fastdfs.model.fdfs.GroupState;
 import com.ykrenz.fastdfs.model.fdfs.ImageStorePath;
 import com.ykrenz.fastdfs.model.fdfs.MetaData;
@@ -21,7 +41,12 @@ import com.ykrenz.fastdfs.model.fdfs.StorageNode;
 import com.ykrenz.fastdfs.model.fdfs.StorageNodeInfo;
 import com.ykrenz.fastdfs.model.fdfs.StorageState;
 import com.ykrenz.fastdfs.model.fdfs.StorePath;
+import com.ykrenz.fastdfs.model.proto.AbstractFdfsCommand;
+import com.ykrenz.fastdfs.model.proto.FdfsCommand;
+import com.ykrenz.fastdfs.model.proto.storage.DownloadByteArray;
 import com.ykrenz.fastdfs.model.proto.storage.DownloadCallback;
+import com.ykrenz.fastdfs.model.proto.storage.DownloadFileRangeWriter;
+import com.ykrenz.fastdfs.model.proto.storage.DownloadFileWriter;
 import com.ykrenz.fastdfs.model.proto.storage.StorageAppendFileCommand;
 import com.ykrenz.fastdfs.model.proto.storage.StorageDeleteFileCommand;
 import com.ykrenz.fastdfs.model.proto.storage.StorageDownloadCommand;
@@ -33,23 +58,52 @@ import com.ykrenz.fastdfs.model.proto.storage.StorageSetMetadataCommand;
 import com.ykrenz.fastdfs.model.proto.storage.StorageTruncateCommand;
 import com.ykrenz.fastdfs.model.proto.storage.StorageUploadFileCommand;
 import com.ykrenz.fastdfs.model.proto.storage.StorageUploadSlaveFileCommand;
+import com.ykrenz.fastdfs.model.proto.storage.StorageUploadWithMetadataCommand;
 import com.ykrenz.fastdfs.model.proto.storage.enums.StorageMetadataSetType;
 import net.coobird.thumbnailator.Thumbnails;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * FastDFSClient默认客户端
@@ -89,14 +143,130 @@ public class FastDfsClient implements FastDfs {
      */
     private HttpServerClient httpServerClient;
 
+    /**
+     * tracker路由缓存 未开启时为null
+     */
+    private StorageRouteCache routeCache;
+
+    /**
+     * 本地选择上传storage的状态缓存
+     */
+    private StorageStateCache storeStateCache;
+
+    /**
+     * 下载和获取metadata的对冲请求 未开启时为null
+     */
+    private HedgePolicy downloadHedge;
+
+    private HedgePolicy metadataHedge;
+
+    /**
+     * 对冲请求线程池 与并行传输线程池分开 调用方在并行传输线程中下载时不会互相等待
+     */
+    private ExecutorService hedgeExecutor;
+
+    /**
+     * 并行传输线程池
+     */
+    private ExecutorService taskExecutor;
+
+    /**
+     * 是否为默认创建的线程池
+     */
+    private boolean defaultTaskExecutor;
+
+    /**
+     * 命令执行指标JMX名称 未注册时为null
+     */
+    private ObjectName metricsObjectName;
+
     public FastDfsClient(final List<String> trackerServers, final FastDfsConfiguration configuration) {
         checkClient(trackerServers, configuration);
         this.configuration = configuration;
         this.defaultGroup = configuration.getDefaultGroup();
-        this.connectionManager = new FdfsConnectionManager(new FdfsConnectionPool(configuration.getConnection()));
+        this.connectionManager = new FdfsConnectionManager(createConnectionPool(configuration.getConnection()));
+        // 缓冲区池为JVM全局共享 默认值不覆盖其他客户端或直接设置的上限
+        long bufferPoolMaxMB = configuration.getConnection().getBufferPoolMaxMB();
+        if (bufferPoolMaxMB != FastDFSConstants.DEFAULT_BUFFER_POOL_MAX_MB) {
+            BufferPool.getDefault().setMaxPooledBytes(bufferPoolMaxMB * FastDFSConstants.MB);
+        }
         this.httpServerClient = new DefaultHttpServerClient(configuration.getHttp());
         this.trackerClient = new DefaultTrackerClient(new TrackerConnectionManager(trackerServers,
-                new FdfsConnectionPool(configuration.getConnection())));
+                createConnectionPool(configuration.getConnection())));
+        if (configuration.getCircuitBreaker().isEnabled()) {
+            this.connectionManager.setCircuitBreakers(new CircuitBreakerRegistry(configuration.getCircuitBreaker()));
+        }
+        if (configuration.getConnection().isMetricsEnabled()) {
+            DefaultFdfsMetrics metrics = new DefaultFdfsMetrics();
+            setMetrics(metrics);
+            registerMetrics(metrics);
+        }
+        RouteConfiguration route = configuration.getRoute();
+        if (route.isCacheEnabled()) {
+            this.routeCache = new StorageRouteCache(route.getCacheMaxSize(), route.getCacheExpireSecond() * 1000L);
+        }
+        if (route.isHedgeEnabled()) {
+            this.downloadHedge = new HedgePolicy(route.getHedgePercentile(), route.getHedgeMinDelayMillis());
+            this.metadataHedge = new HedgePolicy(route.getHedgePercentile(), route.getHedgeMinDelayMillis());
+            this.hedgeExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("fastdfs-hedge"));
+        }
+        if (route.isStoreSelectEnabled() || route.isReadBalanceEnabled() || route.isHedgeEnabled()) {
+            this.storeStateCache = new StorageStateCache(this,
+                    address -> this.connectionManager.getPool().getNumActive(address),
+                    route.getStoreRefreshSecond() * 1000L, route.getStoreReservedMB());
+        }
+        if (configuration.getConnection().isWarmUpEnabled()) {
+            warmUp(configuration.getConnection().getWarmUpTimeoutMillis());
+            if (storeStateCache != null) {
+                // 刷新时发现的新storage后台预热
+                storeStateCache.setStorageListener(addresses -> new ConnectionPoolWarmer(getTaskExecutor())
+                        .submit(connectionManager.getPool(), addresses, getMinIdlePerKey()));
+            }
+        }
+        if (storeStateCache != null) {
+            this.storeStateCache.start();
+        }
+    }
+
+    private ConnectionPool createConnectionPool(ConnectionConfiguration connection) {
+        if (connection.isLockFreePool()) {
+            return new LockFreeConnectionPool(connection);
+        }
+        return new FdfsConnectionPool(connection);
+    }
+
+    /**
+     * 注册命令执行指标JMX 名称重复时追加序号
+     *
+     * @param metrics
+     */
+    private void registerMetrics(DefaultFdfsMetrics metrics) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (int i = 1; metricsObjectName == null; i++) {
+            try {
+                ObjectName name = new ObjectName(i == 1 ? FastDFSConstants.METRICS_JMX_NAME_BASE
+                        : FastDFSConstants.METRICS_JMX_NAME_BASE + i);
+                server.registerMBean(metrics, name);
+                metricsObjectName = name;
+            } catch (InstanceAlreadyExistsException e) {
+                // 尝试下一个序号
+            } catch (Exception e) {
+                LOGGER.warn("register metrics mbean error", e);
+                return;
+            }
+        }
+    }
+
+    private void unregisterMetrics() {
+        if (metricsObjectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsObjectName);
+        } catch (Exception e) {
+            LOGGER.warn("unregister metrics mbean error", e);
+        }
+        metricsObjectName = null;
     }
 
     private void checkClient(List<String> trackerServers, FastDfsConfiguration configuration) {
@@ -128,6 +298,46 @@ public class FastDfsClient implements FastDfs {
         this.connectionManager = connectionManager;
     }
 
+    public FdfsMetrics getMetrics() {
+        return connectionManager.getMetrics();
+    }
+
+    /**
+     * 设置storage和tracker命令执行指标收集
+     *
+     * @param metrics 为null时不收集
+     */
+    public void setMetrics(FdfsMetrics metrics) {
+        connectionManager.setMetrics(metrics);
+        if (trackerClient instanceof DefaultTrackerClient) {
+            ((DefaultTrackerClient) trackerClient).getTrackerConnectionManager().setMetrics(metrics);
+        }
+    }
+
+    public StorageRouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    public void setRouteCache(StorageRouteCache routeCache) {
+        this.routeCache = routeCache;
+    }
+
+    public StorageStateCache getStoreStateCache() {
+        return storeStateCache;
+    }
+
+    public void setStoreStateCache(StorageStateCache storeStateCache) {
+        this.storeStateCache = storeStateCache;
+    }
+
+    public HedgePolicy getDownloadHedge() {
+        return downloadHedge;
+    }
+
+    public HedgePolicy getMetadataHedge() {
+        return metadataHedge;
+    }
+
     public HttpServerClient getHttpServerClient() {
         return httpServerClient;
     }
@@ -144,10 +354,111 @@ public class FastDfsClient implements FastDfs {
         this.multipartAttachment = accessor;
     }
 
+    /**
+     * 连接池预热 为每个tracker和ACTIVE storage预建minIdlePerKey个连接
+     * <pre>
+     * 在并行传输线程池中获取storage列表并建立连接 超过timeoutMillis未完成的取消
+     * 获取storage列表失败或超时时只预热tracker
+     * </pre>
+     *
+     * @param timeoutMillis
+     * @return 预建成功的连接数
+     */
+    public int warmUp(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        int minIdle = getMinIdlePerKey();
+        if (minIdle <= 0) {
+            return 0;
+        }
+        ConnectionPoolWarmer warmer = new ConnectionPoolWarmer(getTaskExecutor());
+        if (trackerClient instanceof DefaultTrackerClient) {
+            TrackerConnectionManager trackerConnectionManager =
+                    ((DefaultTrackerClient) trackerClient).getTrackerConnectionManager();
+            warmer.submit(trackerConnectionManager.getPool(),
+                    trackerConnectionManager.getTrackerLocator().getTrackerAddresses(), minIdle);
+        }
+        // 获取storage列表同样受deadline控制 tracker响应慢时不阻塞调用方
+        Future<List<InetSocketAddress>> discovery = getTaskExecutor().submit(this::listActiveStorages);
+        try {
+            long waitNanos = deadline - System.nanoTime();
+            warmer.submit(connectionManager.getPool(), discovery.get(Math.max(waitNanos, 0), TimeUnit.NANOSECONDS),
+                    minIdle);
+        } catch (TimeoutException e) {
+            discovery.cancel(true);
+            LOGGER.warn("warm up list storages timeout after {}ms", timeoutMillis);
+        } catch (InterruptedException e) {
+            discovery.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.warn("warm up list storages error", e.getCause());
+        }
+        return warmer.await(deadline);
+    }
+
+    /**
+     * 获取所有ACTIVE storage地址
+     *
+     * @return
+     */
+    private List<InetSocketAddress> listActiveStorages() {
+        List<InetSocketAddress> storages = new ArrayList<>();
+        for (GroupState group : trackerClient.listGroups()) {
+            for (StorageState storage : trackerClient.listStorages(group.getGroupName())) {
+                if (storage.isActive()) {
+                    storages.add(new InetSocketAddress(storage.getIpAddr(), storage.getStoragePort()));
+                }
+            }
+        }
+        return storages;
+    }
+
+    private int getMinIdlePerKey() {
+        GenericKeyedObjectPoolConfig pool = configuration.getConnection().getPool();
+        return pool.getMinIdlePerKey();
+    }
+
+    /**
+     * 获取并行传输线程池 未设置时创建默认的守护线程池
+     *
+     * @return
+     */
+    public synchronized ExecutorService getTaskExecutor() {
+        if (taskExecutor == null) {
+            taskExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("fastdfs-task"));
+            defaultTaskExecutor = true;
+        }
+        return taskExecutor;
+    }
+
+    /**
+     * 设置并行传输线程池 由调用方负责关闭
+     *
+     * @param taskExecutor
+     */
+    public synchronized void setTaskExecutor(ExecutorService taskExecutor) {
+        if (defaultTaskExecutor) {
+            this.taskExecutor.shutdown();
+            defaultTaskExecutor = false;
+        }
+        this.taskExecutor = taskExecutor;
+    }
+
     @Override
     public void shutdown() {
+        if (storeStateCache != null) {
+            storeStateCache.shutdown();
+        }
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdown();
+        }
         trackerClient.shutdown();
         connectionManager.getPool().close();
+        unregisterMetrics();
+        synchronized (this) {
+            if (defaultTaskExecutor) {
+                taskExecutor.shutdown();
+            }
+        }
         LOGGER.debug("fastdfs is shutting down");
     }
 
@@ -209,17 +520,33 @@ public class FastDfsClient implements FastDfs {
      */
     protected StorePath uploadFileAndMetaData(StorageNode client, InputStream inputStream, long fileSize,
                                               String fileExtName, Set<MetaData> metaDataSet, boolean isAppenderFile) {
-        // 上传文件
-        StorageUploadFileCommand command = new StorageUploadFileCommand(client.getStoreIndex(), inputStream,
-                fileExtName, fileSize, isAppenderFile);
-        StorePath path = connectionManager.executeFdfsCmd(client.getInetSocketAddress(), command);
-        // 上传metadata
-        if (hasMetaData(metaDataSet)) {
-            StorageSetMetadataCommand setMDCommand = new StorageSetMetadataCommand(path.getGroup(), path.getPath(),
-                    metaDataSet, StorageMetadataSetType.STORAGE_SET_METADATA_FLAG_OVERWRITE);
-            connectionManager.executeFdfsCmd(client.getInetSocketAddress(), setMDCommand);
+        // 上传文件和metadata
+        FdfsCommand<StorePath> command = withMetaData(new StorageUploadFileCommand(client.getStoreIndex(),
+                inputStream, fileExtName, fileSize, isAppenderFile), metaDataSet);
+        try {
+            return executeStorageCmd(client.getInetSocketAddress(), command);
+        } catch (FdfsConnectException e) {
+            if (storeStateCache == null || !configuration.getRoute().isStoreSelectEnabled()) {
+                throw e;
+            }
+            // 本地选择的storage无法连接 文件流未读取 回退到tracker重新获取storage
+            LOGGER.warn("can't connect to store storage {}, retry with tracker", client.getInetSocketAddress());
+            client = trackerClient.getStoreStorage(client.getGroupName());
+            command = withMetaData(new StorageUploadFileCommand(client.getStoreIndex(),
+                    inputStream, fileExtName, fileSize, isAppenderFile), metaDataSet);
+            return executeStorageCmd(client.getInetSocketAddress(), command);
         }
-        return path;
+    }
+
+    /**
+     * 有metadata时在上传的同一连接上设置metadata
+     *
+     * @param command
+     * @param metaDataSet
+     * @return
+     */
+    private FdfsCommand<StorePath> withMetaData(FdfsCommand<StorePath> command, Set<MetaData> metaDataSet) {
+        return hasMetaData(metaDataSet) ? new StorageUploadWithMetadataCommand(command, metaDataSet) : command;
     }
 
     @Override
@@ -247,19 +574,10 @@ public class FastDfsClient implements FastDfs {
         InputStream stream = getInputStream(request);
         StorageNodeInfo client = this.getUpdateStorage(groupName, request.masterPath());
 
-        StorageUploadSlaveFileCommand command = new StorageUploadSlaveFileCommand(stream,
-                request.fileSize(), request.masterPath(), request.prefix(), request.fileExtName());
-        StorePath path = connectionManager.executeFdfsCmd(client.getInetSocketAddress(), command);
-
-        Set<MetaData> metaData = request.metaData();
-        // 上传metadata
-        if (hasMetaData(metaData)) {
-            StorageSetMetadataCommand setMDCommand = new StorageSetMetadataCommand(path.getGroup(), path.getPath(),
-                    metaData, StorageMetadataSetType.STORAGE_SET_METADATA_FLAG_OVERWRITE);
-            connectionManager.executeFdfsCmd(client.getInetSocketAddress(), setMDCommand);
-        }
-        return path;
-
+        // 上传从文件和metadata
+        FdfsCommand<StorePath> command = withMetaData(new StorageUploadSlaveFileCommand(stream,
+                request.fileSize(), request.masterPath(), request.prefix(), request.fileExtName()), request.metaData());
+        return executeStorageCmd(client.getInetSocketAddress(), command);
     }
 
     @Override
@@ -446,22 +764,40 @@ public class FastDfsClient implements FastDfs {
     public Set<MetaData> getMetadata(MetaDataInfoRequest request) {
         String groupName = request.groupName();
         String path = request.path();
-        StorageNodeInfo client = this.getFetchStorage(groupName, path);
-        StorageGetMetadataCommand command = new StorageGetMetadataCommand(groupName, path);
-        return connectionManager.executeFdfsCmd(client.getInetSocketAddress(), command);
+        if (metadataHedge != null) {
+            return executeHedgedReadCmd(metadataHedge, groupName, path,
+                    () -> new StorageGetMetadataCommand(groupName, path));
+        }
+        return executeReadCmd(groupName, path, new StorageGetMetadataCommand(groupName, path));
+    }
+
+    @Override
+    public BatchResult<Set<MetaData>> getMetadatas(Collection<StorePath> storePaths) {
+        CodeUtils.validateNotNull(storePaths, "storePaths");
+        return executeBatchReadCmd(storePaths,
+                path -> new StorageGetMetadataCommand(path.getGroup(), path.getPath()));
     }
 
-    private void uploadMetaData(InetSocketAddress address, String groupName, String path,
+    /**
+     * 按类型上传元数据 type为空时不上传
+     *
+     * @param address
+     * @param groupName
+     * @param path
+     * @param type
+     * @param metaData
+     */
+    protected void uploadMetaData(InetSocketAddress address, String groupName, String path,
                                 StorageMetadataSetType type, Set<MetaData> metaData) {
         if (type == null) {
             return;
         }
         StorageSetMetadataCommand setMDCommand = new StorageSetMetadataCommand(groupName, path, metaData, type);
         if (type == StorageMetadataSetType.STORAGE_SET_METADATA_FLAG_OVERWRITE) {
-            connectionManager.executeFdfsCmd(address, setMDCommand);
+            executeStorageCmd(address, setMDCommand);
         }
         if (type == StorageMetadataSetType.STORAGE_SET_METADATA_FLAG_MERGE) {
-            connectionManager.executeFdfsCmd(address, setMDCommand);
+            executeStorageCmd(address, setMDCommand);
         }
     }
 
@@ -512,9 +848,14 @@ public class FastDfsClient implements FastDfs {
     public FileInfo queryFileInfo(FileInfoRequest request) {
         String groupName = request.groupName();
         String path = request.path();
-        StorageNodeInfo client = this.getFetchStorage(groupName, path);
-        StorageQueryFileInfoCommand command = new StorageQueryFileInfoCommand(groupName, path);
-        return connectionManager.executeFdfsCmd(client.getInetSocketAddress(), command);
+        return executeReadCmd(groupName, path, new StorageQueryFileInfoCommand(groupName, path));
+    }
+
+    @Override
+    public BatchResult<FileInfo> queryFileInfos(Collection<StorePath> storePaths) {
+        CodeUtils.validateNotNull(storePaths, "storePaths");
+        return executeBatchReadCmd(storePaths,
+                path -> new StorageQueryFileInfoCommand(path.getGroup(), path.getPath()));
     }
 
     @Override
@@ -529,7 +870,15 @@ public class FastDfsClient implements FastDfs {
         String path = request.path();
         StorageNodeInfo client = this.getUpdateStorage(groupName, path);
         StorageDeleteFileCommand command = new StorageDeleteFileCommand(groupName, path);
-        connectionManager.executeFdfsCmd(client.getInetSocketAddress(), command);
+        executeStorageCmd(client.getInetSocketAddress(), command);
+    }
+
+    @Override
+    public BatchResult<Void> deleteFiles(Collection<StorePath> storePaths) {
+        CodeUtils.validateNotNull(storePaths, "storePaths");
+        return executeBatchCmd(storePaths,
+                path -> this.getUpdateStorage(path.getGroup(), path.getPath()).getInetSocketAddress(), null,
+                path -> new StorageDeleteFileCommand(path.getGroup(), path.getPath()));
     }
 
     @Override
@@ -550,12 +899,362 @@ public class FastDfsClient implements FastDfs {
         String groupName = request.groupName();
         String path = request.path();
         CodeUtils.validateNotNull(callback, "callback");
-        StorageNodeInfo client = this.getFetchStorage(groupName, path);
+        if (downloadHedge != null && isHedgeDownload(request)) {
+            // 各请求先下载到内存 先返回的结果交给回调
+            byte[] bytes = executeHedgedReadCmd(downloadHedge, groupName, path,
+                    () -> new StorageDownloadCommand<>(groupName, path, request.offset(), request.fileSize(),
+                            new DownloadByteArray()));
+            try {
+                return callback.recv(new ByteArrayInputStream(bytes));
+            } catch (IOException e) {
+                throw new FdfsIOException("download callback error", e);
+            }
+        }
         StorageDownloadCommand<T> command = new StorageDownloadCommand<>(groupName, path,
                 request.offset(), request.fileSize(), callback);
-        return connectionManager.executeFdfsCmd(client.getInetSocketAddress(), command);
+        return executeReadCmd(groupName, path, command);
+    }
+
+    // region parallel download
+
+    @Override
+    public String downloadFileParallel(String groupName, String path, String fileName) {
+        return this.downloadFileParallel(ParallelDownloadFileRequest.builder()
+                .groupName(groupName).path(path).fileName(fileName).build());
+    }
+
+    @Override
+    public String downloadFileParallel(ParallelDownloadFileRequest request) {
+        String groupName = request.groupName();
+        String path = request.path();
+        String fileName = request.fileName();
+        long fileSize = this.queryFileInfo(groupName, path).getFileSize();
+        long partSize = request.partSize();
+        long partCount = (fileSize + partSize - 1) / partSize;
+        int parallelism = (int) Math.min(request.parallelism(), partCount);
+        if (parallelism <= 1) {
+            return this.downloadFile(groupName, path, new DownloadFileWriter(fileName));
+        }
+
+        StorageNodeInfo client = this.getFetchStorage(groupName, path);
+        List<InetSocketAddress> addresses = getDownloadAddresses(groupName, path, client.getInetSocketAddress());
+        File file = new File(fileName);
+        try (RandomAccessFile raf = openDownloadFile(file, fileSize)) {
+            ParallelDownloadContext context = new ParallelDownloadContext(groupName, path, fileSize, partSize,
+                    partCount, raf.getChannel(), client.getInetSocketAddress());
+            List<Future<?>> futures = new ArrayList<>(parallelism);
+            ExecutorService executor = getTaskExecutor();
+            for (int i = 0; i < parallelism; i++) {
+                InetSocketAddress address = addresses.get(i % addresses.size());
+                futures.add(executor.submit(() -> downloadParts(context, address)));
+            }
+            awaitAll(futures, context.aborted);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(file);
+            throw new FdfsIOException("parallel download file error", e);
+        } catch (RuntimeException e) {
+            FileUtils.deleteQuietly(file);
+            throw e;
+        }
+        return fileName;
+    }
+
+    /**
+     * 获取已同步该文件的storage地址 tracker返回的节点排在首位
+     * 已同步的判断与tracker一致 状态缓存可用时使用缓存 否则查询tracker
+     * appender文件或文件名无法解析时只从tracker返回的节点下载
+     *
+     * @param groupName
+     * @param path
+     * @param fetchAddress
+     * @return
+     */
+    private List<InetSocketAddress> getDownloadAddresses(String groupName, String path,
+                                                         InetSocketAddress fetchAddress) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        addresses.add(fetchAddress);
+        FileNameInfo info = FileNameInfo.decode(path);
+        if (info == null || info.isAppenderFile()) {
+            return addresses;
+        }
+        long syncMaxDelaySecond = configuration.getRoute().getReadSyncMaxDelaySecond();
+        List<InetSocketAddress> synced = storeStateCache == null ? null
+                : storeStateCache.listSyncedReplicas(groupName, path, syncMaxDelaySecond);
+        if (synced == null) {
+            synced = new ArrayList<>();
+            try {
+                for (StorageState storage : this.listStorages(groupName)) {
+                    if (storage.isActive() && StorageStateCache.hasSynced(storage, info, syncMaxDelaySecond)) {
+                        synced.add(new InetSocketAddress(storage.getIpAddr(), storage.getStoragePort()));
+                    }
+                }
+            } catch (FdfsException e) {
+                LOGGER.warn("list storages of group {} error, download from {} only", groupName, fetchAddress, e);
+            }
+        }
+        for (InetSocketAddress address : synced) {
+            if (!addresses.contains(address)) {
+                addresses.add(address);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * 创建本地文件并预分配文件大小
+     *
+     * @param file
+     * @param fileSize
+     * @return
+     * @throws IOException
+     */
+    private RandomAccessFile openDownloadFile(File file, long fileSize) throws IOException {
+        FileUtils.forceMkdirParent(file);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(fileSize);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        return raf;
     }
 
+    /**
+     * 循环领取分片下载 直到分片领取完毕或下载中止
+     * 非tracker返回的节点下载失败时(如文件尚未同步)改由tracker返回的节点重试 后续分片也不再使用该节点
+     *
+     * @param context
+     * @param address 优先下载的节点
+     */
+    private void downloadParts(ParallelDownloadContext context, InetSocketAddress address) {
+        long part;
+        while (!context.aborted.get() && (part = context.nextPart.getAndIncrement()) < context.partCount) {
+            long offset = part * context.partSize;
+            long size = Math.min(context.partSize, context.fileSize - offset);
+            try {
+                try {
+                    downloadRange(context, address, offset, size);
+                } catch (FdfsException e) {
+                    if (address.equals(context.fetchAddress)) {
+                        throw e;
+                    }
+                    LOGGER.warn("download range {}-{} from {} error, retry from {}", offset, offset + size,
+                            address, context.fetchAddress, e);
+                    address = context.fetchAddress;
+                    downloadRange(context, address, offset, size);
+                }
+            } catch (RuntimeException e) {
+                context.aborted.set(true);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 下载文件片段写入本地文件对应位置
+     *
+     * @param context
+     * @param address
+     * @param offset
+     * @param size
+     */
+    private void downloadRange(ParallelDownloadContext context, InetSocketAddress address, long offset, long size) {
+        StorageDownloadCommand<Long> command = new StorageDownloadCommand<>(context.groupName, context.path,
+                offset, size, new DownloadFileRangeWriter(context.channel, offset));
+        long written = executeStorageCmd(address, command);
+        if (written != size) {
+            throw new FdfsIOException("download range " + offset + "-" + (offset + size) + " from " + address
+                    + " expected " + size + " bytes but received " + written);
+        }
+    }
+
+    /**
+     * 等待所有任务完成 抛出首个任务异常
+     *
+     * @param futures
+     * @param aborted
+     */
+    private void awaitAll(List<Future<?>> futures, AtomicBoolean aborted) {
+        Throwable error = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                aborted.set(true);
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new FdfsClientException("parallel task interrupted", e);
+            }
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error != null) {
+            throw new FdfsClientException("parallel task error", error);
+        }
+    }
+
+    /**
+     * 并行下载上下文
+     */
+    private static final class ParallelDownloadContext {
+        private final String groupName;
+        private final String path;
+        private final long fileSize;
+        private final long partSize;
+        private final long partCount;
+        private final FileChannel channel;
+        private final InetSocketAddress fetchAddress;
+        private final AtomicLong nextPart = new AtomicLong();
+        private final AtomicBoolean aborted = new AtomicBoolean();
+
+        private ParallelDownloadContext(String groupName, String path, long fileSize, long partSize,
+                                        long partCount, FileChannel channel, InetSocketAddress fetchAddress) {
+            this.groupName = groupName;
+            this.path = path;
+            this.fileSize = fileSize;
+            this.partSize = partSize;
+            this.partCount = partCount;
+            this.channel = channel;
+            this.fetchAddress = fetchAddress;
+        }
+    }
+
+    // endregion parallel download
+
+    // region batch
+
+    /**
+     * 批量执行storage命令
+     * <pre>
+     * 1.并发查询每个文件所在的storage 查询失败的文件记为失败
+     * 2.按storage分组 每pipelineDepth个文件为一批 由batchParallelism个任务领取
+     * 3.每批借用一个连接流水线执行 连接异常时按{@link #executeStorageCmd}处理该storage
+     * 4.fallback不为空时 无法连接storage(命令未发送)的文件按fallback重新分组执行一次
+     * </pre>
+     *
+     * @param storePaths     重复的文件只执行一次
+     * @param locator        获取文件所在storage
+     * @param fallback       无法连接时重新获取storage 为null时不重试
+     * @param commandFactory 创建文件对应的命令
+     * @param <T>
+     * @return
+     */
+    private <T> BatchResult<T> executeBatchCmd(Collection<StorePath> storePaths,
+                                               Function<StorePath, InetSocketAddress> locator,
+                                               Function<StorePath, InetSocketAddress> fallback,
+                                               Function<StorePath, AbstractFdfsCommand<T>> commandFactory) {
+        BatchResult<T> result = new BatchResult<>();
+        List<StorePath> retries = executeBatch(new ArrayList<>(new LinkedHashSet<>(storePaths)), locator,
+                commandFactory, result);
+        if (fallback != null && !retries.isEmpty()) {
+            LOGGER.warn("can't connect to storage for {} files, retry with fallback", retries.size());
+            executeBatch(retries, fallback, commandFactory, result);
+        }
+        return result;
+    }
+
+    /**
+     * 批量执行读命令 开启readBalanceEnabled时在已同步的storage中本地选择 无法连接时回退到tracker
+     *
+     * @param storePaths
+     * @param commandFactory
+     * @param <T>
+     * @return
+     */
+    private <T> BatchResult<T> executeBatchReadCmd(Collection<StorePath> storePaths,
+                                                   Function<StorePath, AbstractFdfsCommand<T>> commandFactory) {
+        return executeBatchCmd(storePaths, path -> {
+            StorageNodeInfo storage = selectReadStorage(path.getGroup(), path.getPath());
+            if (storage == null) {
+                storage = this.getFetchStorage(path.getGroup(), path.getPath());
+            }
+            return storage.getInetSocketAddress();
+        }, path -> this.getFetchStorage(path.getGroup(), path.getPath()).getInetSocketAddress(), commandFactory);
+    }
+
+    /**
+     * 按storage分组流水线执行
+     *
+     * @return 无法连接storage的文件
+     */
+    private <T> List<StorePath> executeBatch(List<StorePath> paths, Function<StorePath, InetSocketAddress> locator,
+                                             Function<StorePath, AbstractFdfsCommand<T>> commandFactory,
+                                             BatchResult<T> result) {
+        ConnectionConfiguration connection = configuration.getConnection();
+        int parallelism = connection.getBatchParallelism();
+        int depth = Math.max(connection.getPipelineDepth(), 1);
+
+        Map<InetSocketAddress, List<StorePath>> nodes = new ConcurrentHashMap<>();
+        forEachParallel(paths, parallelism, path -> {
+            try {
+                InetSocketAddress address = locator.apply(path);
+                nodes.computeIfAbsent(address, k -> Collections.synchronizedList(new ArrayList<>())).add(path);
+            } catch (RuntimeException e) {
+                result.fail(path, e);
+            }
+        });
+
+        List<Map.Entry<InetSocketAddress, List<StorePath>>> batches = new ArrayList<>();
+        nodes.forEach((address, list) -> {
+            for (int i = 0; i < list.size(); i += depth) {
+                batches.add(new SimpleImmutableEntry<>(address, list.subList(i, Math.min(i + depth, list.size()))));
+            }
+        });
+        List<StorePath> unreachable = Collections.synchronizedList(new ArrayList<>());
+        forEachParallel(batches, parallelism, batch -> {
+            Map<StorePath, AbstractFdfsCommand<T>> commands = new LinkedHashMap<>();
+            for (StorePath path : batch.getValue()) {
+                commands.put(path, commandFactory.apply(path));
+            }
+            if (!connectionManager.executePipelined(batch.getKey(), commands, depth, result)) {
+                markStorageFailed(batch.getKey());
+                for (StorePath path : batch.getValue()) {
+                    if (result.getError(path) instanceof FdfsConnectException) {
+                        unreachable.add(path);
+                    }
+                }
+            }
+        });
+        return unreachable;
+    }
+
+    /**
+     * 由不超过parallelism个任务并发处理 等待全部完成
+     *
+     * @param items
+     * @param parallelism
+     * @param action      单项处理 需自行处理异常
+     * @param <E>
+     */
+    private <E> void forEachParallel(List<E> items, int parallelism, Consumer<E> action) {
+        int workers = Math.min(Math.max(parallelism, 1), items.size());
+        if (workers <= 1) {
+            items.forEach(action);
+            return;
+        }
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<>(workers);
+        ExecutorService executor = getTaskExecutor();
+        for (int i = 0; i < workers; i++) {
+            futures.add(executor.submit(() -> {
+                int index;
+                while (!aborted.get() && (index = next.getAndIncrement()) < items.size()) {
+                    action.accept(items.get(index));
+                }
+            }));
+        }
+        awaitAll(futures, aborted);
+    }
+
+    // endregion batch
+
     // region appender
 
     @Override
@@ -612,7 +1311,7 @@ public class FastDfsClient implements FastDfs {
         InputStream stream = getInputStream(request);
         StorageNodeInfo client = this.getUpdateStorage(groupName, path);
         StorageAppendFileCommand command = new StorageAppendFileCommand(stream, request.fileSize(), path);
-        connectionManager.executeFdfsCmd(client.getInetSocketAddress(), command);
+        executeStorageCmd(client.getInetSocketAddress(), command);
         uploadMetaData(client.getInetSocketAddress(), groupName, path, request.metaType(), request.metaData());
     }
 
@@ -630,7 +1329,7 @@ public class FastDfsClient implements FastDfs {
         InputStream stream = getInputStream(request);
         StorageNodeInfo client = this.getUpdateStorage(groupName, path);
         StorageModifyCommand command = new StorageModifyCommand(path, stream, request.fileSize(), request.offset());
-        connectionManager.executeFdfsCmd(client.getInetSocketAddress(), command);
+        executeStorageCmd(client.getInetSocketAddress(), command);
         uploadMetaData(client.getInetSocketAddress(), groupName, path, request.metaType(), request.metaData());
     }
 
@@ -652,7 +1351,7 @@ public class FastDfsClient implements FastDfs {
         String path = request.path();
         StorageNodeInfo client = this.getUpdateStorage(groupName, path);
         StorageTruncateCommand command = new StorageTruncateCommand(path, request.fileSize());
-        connectionManager.executeFdfsCmd(client.getInetSocketAddress(), command);
+        executeStorageCmd(client.getInetSocketAddress(), command);
     }
 
     @Override
@@ -667,7 +1366,7 @@ public class FastDfsClient implements FastDfs {
         String path = request.path();
         StorageNodeInfo client = this.getUpdateStorage(groupName, path);
         StorageRegenerateAppendFileCommand command = new StorageRegenerateAppendFileCommand(path);
-        return connectionManager.executeFdfsCmd(client.getInetSocketAddress(), command);
+        return executeStorageCmd(client.getInetSocketAddress(), command);
     }
 
     // endregion appender
@@ -769,6 +1468,148 @@ public class FastDfsClient implements FastDfs {
         return storePath;
     }
 
+    @Override
+    public StorePath uploadMultipartParallel(String groupName, File file) {
+        return this.uploadMultipartParallel(ParallelMultipartUploadRequest.builder()
+                .groupName(groupName).file(file).build());
+    }
+
+    @Override
+    public StorePath uploadMultipartParallel(ParallelMultipartUploadRequest request) {
+        if (request.channel() != null) {
+            return uploadMultipartParallel(request, request.channel());
+        }
+        try (FileChannel channel = FileChannel.open(request.file().toPath(), StandardOpenOption.READ)) {
+            return uploadMultipartParallel(request, channel);
+        } catch (IOException e) {
+            throw new FdfsIOException("parallel multipart upload error", e);
+        }
+    }
+
+    private StorePath uploadMultipartParallel(ParallelMultipartUploadRequest request, FileChannel channel) {
+        long fileSize;
+        try {
+            fileSize = channel.size();
+        } catch (IOException e) {
+            throw new FdfsIOException("parallel multipart upload error", e);
+        }
+        long partSize = request.partSize();
+        StorePath storePath = this.initMultipartUpload(InitMultipartUploadRequest.builder()
+                .groupName(getGroupName(request))
+                .fileSize(fileSize)
+                .partSize(partSize)
+                .fileExtName(request.fileExtName())
+                .metaData(request.metaData())
+                .build());
+        String group = storePath.getGroup();
+        String path = storePath.getPath();
+        try {
+            long partCount = (fileSize + partSize - 1) / partSize;
+            if (partCount > 0) {
+                StorageNodeInfo client = this.getUpdateStorage(group, path);
+                ParallelUploadContext context = new ParallelUploadContext(path, fileSize, partSize, partCount,
+                        request.maxRetries(), channel, client.getInetSocketAddress());
+                int parallelism = (int) Math.min(request.parallelism(), partCount);
+                List<Future<?>> futures = new ArrayList<>(parallelism);
+                ExecutorService executor = getTaskExecutor();
+                for (int i = 0; i < parallelism; i++) {
+                    futures.add(executor.submit(() -> uploadParts(context)));
+                }
+                awaitAll(futures, context.aborted);
+            }
+        } catch (RuntimeException e) {
+            abortMultipartUpload(group, path);
+            throw e;
+        }
+        return this.completeMultipartUpload(group, path, request.regenerate());
+    }
+
+    /**
+     * 循环领取分片上传 直到分片领取完毕或上传中止
+     *
+     * @param context
+     */
+    private void uploadParts(ParallelUploadContext context) {
+        long part;
+        while (!context.aborted.get() && (part = context.nextPart.getAndIncrement()) < context.partCount) {
+            long offset = part * context.partSize;
+            long size = Math.min(context.partSize, context.fileSize - offset);
+            try {
+                uploadPart(context, offset, size);
+            } catch (RuntimeException e) {
+                context.aborted.set(true);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 上传单个分片 服务端返回错误码时不重试
+     *
+     * @param context
+     * @param offset
+     * @param size
+     */
+    private void uploadPart(ParallelUploadContext context, long offset, long size) {
+        for (int retries = 0; ; retries++) {
+            try {
+                InputStream part = new FileChannelRangeInputStream(context.channel, offset, size);
+                StorageModifyCommand command = new StorageModifyCommand(context.path, part, size, offset);
+                executeStorageCmd(context.address, command);
+                return;
+            } catch (FdfsServerException e) {
+                throw e;
+            } catch (FdfsException e) {
+                if (retries >= context.maxRetries || context.aborted.get()) {
+                    throw e;
+                }
+                LOGGER.warn("upload part {}-{} of {} error, retry {}", offset, offset + size, context.path,
+                        retries + 1, e);
+            }
+        }
+    }
+
+    /**
+     * 中止分片上传 删除已上传的文件
+     *
+     * @param groupName
+     * @param path
+     */
+    private void abortMultipartUpload(String groupName, String path) {
+        try {
+            multipartAttachment.remove(groupName, path);
+            this.deleteFile(groupName, path);
+        } catch (RuntimeException e) {
+            LOGGER.warn("abort multipart upload, delete file {}/{} error", groupName, path, e);
+        }
+    }
+
+    /**
+     * 并行上传上下文
+     */
+    private static final class ParallelUploadContext {
+        private final String path;
+        private final long fileSize;
+        private final long partSize;
+        private final long partCount;
+        private final int maxRetries;
+        private final FileChannel channel;
+        private final InetSocketAddress address;
+        private final AtomicLong nextPart = new AtomicLong();
+        private final AtomicBoolean aborted = new AtomicBoolean();
+
+        private ParallelUploadContext(String path, long fileSize, long partSize, long partCount,
+                                      int maxRetries, FileChannel channel, InetSocketAddress address) {
+            this.path = path;
+            this.fileSize = fileSize;
+            this.partSize = partSize;
+            this.partCount = partCount;
+            this.maxRetries = maxRetries;
+            this.channel = channel;
+            this.address = address;
+        }
+    }
+
     // endregion multipart
 
     /**
@@ -777,7 +1618,7 @@ public class FastDfsClient implements FastDfs {
      * @param args
      * @return
      */
-    private String getGroupName(GroupArgs args) {
+    protected String getGroupName(GroupArgs args) {
         String groupName = args.groupName();
         if (StringUtils.isNotBlank(groupName)) {
             return groupName;
@@ -791,7 +1632,7 @@ public class FastDfsClient implements FastDfs {
      * @param args
      * @return
      */
-    private InputStream getInputStream(final AbstractFileArgs args) {
+    protected InputStream getInputStream(final AbstractFileArgs args) {
         final InputStream stream = getStream(args.stream(), args.file());
         return progressStream(args.listener(), stream);
     }
@@ -814,6 +1655,139 @@ public class FastDfsClient implements FastDfs {
         return input;
     }
 
+    /**
+     * 在storage上执行命令
+     * 非服务端错误码的异常(连接、IO等)移除该storage的路由缓存
+     *
+     * @param address
+     * @param command
+     * @param <T>
+     * @return
+     */
+    protected <T> T executeStorageCmd(InetSocketAddress address, FdfsCommand<T> command) {
+        try {
+            return connectionManager.executeFdfsCmd(address, command);
+        } catch (FdfsServerException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            markStorageFailed(address);
+            throw e;
+        }
+    }
+
+    /**
+     * storage无法连接 从路由缓存移除并标记失败
+     *
+     * @param address
+     */
+    private void markStorageFailed(InetSocketAddress address) {
+        StorageRouteCache cache = this.routeCache;
+        if (cache != null) {
+            cache.invalidate(address);
+        }
+        StorageStateCache stateCache = this.storeStateCache;
+        if (stateCache != null) {
+            stateCache.markFailed(address);
+        }
+    }
+
+    /**
+     * 在下载storage上执行读命令
+     * 开启readBalanceEnabled时在已同步该文件的storage中本地选择 无法选择或无法连接时回退到tracker
+     *
+     * @param groupName
+     * @param path
+     * @param command
+     * @param <T>
+     * @return
+     */
+    protected <T> T executeReadCmd(String groupName, String path, FdfsCommand<T> command) {
+        StorageNodeInfo storage = selectReadStorage(groupName, path);
+        if (storage != null) {
+            try {
+                return executeStorageCmd(storage.getInetSocketAddress(), command);
+            } catch (FdfsConnectException e) {
+                // 连接失败时命令未发送 回退到tracker
+                LOGGER.warn("can't connect to fetch storage {}, retry with tracker", storage.getInetSocketAddress());
+            }
+        }
+        StorageNodeInfo client = this.getFetchStorage(groupName, path);
+        return executeStorageCmd(client.getInetSocketAddress(), command);
+    }
+
+    /**
+     * 在下载storage上执行读命令 超过对冲延迟未返回时向另一已同步该文件的storage发送相同命令
+     * 请求在对冲线程池中执行 首个请求失败且无其他storage时回退到tracker
+     *
+     * @param hedge
+     * @param groupName
+     * @param path
+     * @param command   创建命令 每个请求使用新的命令
+     * @param <T>
+     * @return 先成功的结果
+     */
+    protected <T> T executeHedgedReadCmd(HedgePolicy hedge, String groupName, String path,
+                                         Supplier<FdfsCommand<T>> command) {
+        StorageNodeInfo storage = selectReadStorage(groupName, path);
+        if (storage == null) {
+            storage = this.getFetchStorage(groupName, path);
+        }
+        InetSocketAddress primary = storage.getInetSocketAddress();
+        // 首个请求失败且无其他已同步的storage时 与executeReadCmd一致回退到tracker
+        return hedge.execute(hedgeExecutor, primary,
+                () -> selectHedgeStorage(groupName, path, primary),
+                () -> this.getFetchStorage(groupName, path).getInetSocketAddress(),
+                address -> executeStorageCmd(address, command.get()));
+    }
+
+    /**
+     * 是否对下载发送对冲请求 下载长度不超过hedgeMaxBytes时才缓存到内存
+     * 未指定下载长度时由文件名解析文件大小 不需要查询storage appender文件和从文件无法确定大小 不对冲
+     *
+     * @param request
+     * @return
+     */
+    private boolean isHedgeDownload(DownloadFileRequest request) {
+        long size = request.fileSize();
+        if (size <= 0) {
+            FileNameInfo info = FileNameInfo.decode(request.path());
+            long contentSize = info == null ? -1 : info.getContentSize();
+            size = contentSize < 0 ? -1 : contentSize - request.offset();
+        }
+        return size > 0 && size <= configuration.getRoute().getHedgeMaxBytes();
+    }
+
+    /**
+     * 选择对冲请求的storage
+     *
+     * @return 无其他已同步该文件的storage时返回null
+     */
+    private InetSocketAddress selectHedgeStorage(String groupName, String path, InetSocketAddress primary) {
+        StorageStateCache cache = this.storeStateCache;
+        if (cache == null) {
+            return null;
+        }
+        StorageNodeInfo storage = cache.selectReplica(groupName, path,
+                configuration.getRoute().getReadSyncMaxDelaySecond(), primary);
+        return storage == null ? null : storage.getInetSocketAddress();
+    }
+
+    /**
+     * 根据缓存的group/storage状态在本地选择下载storage
+     *
+     * @param groupName
+     * @param path
+     * @return 未开启或无法确定已同步的storage时返回null
+     */
+    private StorageNodeInfo selectReadStorage(String groupName, String path) {
+        StorageStateCache cache = this.storeStateCache;
+        RouteConfiguration route = configuration.getRoute();
+        if (cache == null || !route.isReadBalanceEnabled()) {
+            return null;
+        }
+        return cache.selectReplica(groupName, path, route.getReadSyncMaxDelaySecond());
+    }
+
     @Override
     public List<String> getTrackerServers() {
         return trackerClient.getTrackerServers();
@@ -831,22 +1805,53 @@ public class FastDfsClient implements FastDfs {
 
     @Override
     public StorageNode getStoreStorage() {
-        return trackerClient.getStoreStorage();
+        StorageNode storage = selectStoreStorage(null);
+        return storage != null ? storage : trackerClient.getStoreStorage();
     }
 
     @Override
     public StorageNode getStoreStorage(String groupName) {
-        return trackerClient.getStoreStorage(groupName);
+        StorageNode storage = selectStoreStorage(groupName);
+        return storage != null ? storage : trackerClient.getStoreStorage(groupName);
+    }
+
+    /**
+     * 根据缓存的group/storage状态在本地选择上传storage
+     *
+     * @param groupName
+     * @return 未开启或状态不可用时返回null
+     */
+    private StorageNode selectStoreStorage(String groupName) {
+        StorageStateCache cache = this.storeStateCache;
+        return cache == null || !configuration.getRoute().isStoreSelectEnabled() ? null : cache.select(groupName);
     }
 
     @Override
     public StorageNodeInfo getFetchStorage(String groupName, String filename) {
-        return trackerClient.getFetchStorage(groupName, filename);
+        StorageRouteCache cache = this.routeCache;
+        if (cache == null) {
+            return trackerClient.getFetchStorage(groupName, filename);
+        }
+        StorageNodeInfo storage = cache.getFetchStorage(groupName, filename);
+        if (storage == null) {
+            storage = trackerClient.getFetchStorage(groupName, filename);
+            cache.putFetchStorage(groupName, filename, storage);
+        }
+        return storage;
     }
 
     @Override
     public StorageNodeInfo getUpdateStorage(String groupName, String filename) {
-        return trackerClient.getUpdateStorage(groupName, filename);
+        StorageRouteCache cache = this.routeCache;
+        if (cache == null) {
+            return trackerClient.getUpdateStorage(groupName, filename);
+        }
+        StorageNodeInfo storage = cache.getUpdateStorage(groupName, filename);
+        if (storage == null) {
+            storage = trackerClient.getUpdateStorage(groupName, filename);
+            cache.putUpdateStorage(groupName, filename, storage);
+        }
+        return storage;
     }
 
     @Override
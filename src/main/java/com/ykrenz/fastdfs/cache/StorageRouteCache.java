@@ -0,0 +1,76 @@
+package com.ykrenz.fastdfs.cache;
+
+import com.ykrenz.fastdfs.model.fdfs.FileNameInfo;
+import com.ykrenz.fastdfs.model.fdfs.StorageNodeInfo;
+
+import java.net.InetSocketAddress;
+
+/**
+ * tracker路由结果缓存
+ * <pre>
+ * 下载storage按group+path缓存
+ * 更新storage为文件的源storage 按group+文件名中编码的源storage缓存 同一源storage的文件共享缓存
+ * 文件名无法解析时按group+path缓存
+ * storage命令执行失败时移除该storage的所有缓存
+ * </pre>
+ *
+ * @author ykren
+ */
+public class StorageRouteCache {
+
+    private static final String FETCH_PREFIX = "fetch:";
+    private static final String UPDATE_PREFIX = "update:";
+    private static final String SOURCE_PREFIX = "update-source:";
+
+    private final TimedLRUCache<String, StorageNodeInfo> cache;
+
+    public StorageRouteCache(int maxSize, long expireMillis) {
+        this.cache = new TimedLRUCache<>(maxSize, expireMillis);
+    }
+
+    public StorageNodeInfo getFetchStorage(String groupName, String path) {
+        return cache.get(fetchKey(groupName, path));
+    }
+
+    public void putFetchStorage(String groupName, String path, StorageNodeInfo storage) {
+        cache.put(fetchKey(groupName, path), storage);
+    }
+
+    public StorageNodeInfo getUpdateStorage(String groupName, String path) {
+        return cache.get(updateKey(groupName, path));
+    }
+
+    public void putUpdateStorage(String groupName, String path, StorageNodeInfo storage) {
+        cache.put(updateKey(groupName, path), storage);
+    }
+
+    /**
+     * 移除指定storage的所有缓存
+     *
+     * @param address
+     */
+    public void invalidate(InetSocketAddress address) {
+        cache.removeIf(storage -> storage.getPort() == address.getPort()
+                && storage.getIp().equals(address.getHostString()));
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private String fetchKey(String groupName, String path) {
+        return FETCH_PREFIX + groupName + "/" + path;
+    }
+
+    private String updateKey(String groupName, String path) {
+        FileNameInfo info = FileNameInfo.decode(path);
+        if (info == null) {
+            return UPDATE_PREFIX + groupName + "/" + path;
+        }
+        return SOURCE_PREFIX + groupName + "/" + info.getSourceId();
+    }
+}
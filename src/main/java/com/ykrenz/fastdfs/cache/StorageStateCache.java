@@ -0,0 +1,413 @@
+package com.ykrenz.fastdfs.cache;
+
+import com.ykrenz.fastdfs.TrackerClient;
+import com.ykrenz.fastdfs.common.NamedThreadFactory;
+import com.ykrenz.fastdfs.model.fdfs.FileNameInfo;
+import com.ykrenz.fastdfs.model.fdfs.GroupState;
+import com.ykrenz.fastdfs.model.fdfs.StorageNode;
+import com.ykrenz.fastdfs.model.fdfs.StorageNodeInfo;
+import com.ykrenz.fastdfs.model.fdfs.StorageState;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * group/storage状态缓存 用于本地选择上传storage和下载storage
+ * <pre>
+ * 定时通过tracker刷新listGroups/listStorages
+ * 上传: 未指定group时选择剩余空间最大的group(与tracker store_lookup=2一致)
+ * group内在ACTIVE且剩余空间充足的storage中 优先选择连接池活动连接少的 其次为上个刷新周期上传次数少的
+ * 下载: 在group内ACTIVE且已同步该文件的storage中选择连接池活动连接少的 负载相同时随机选择
+ * 已同步的判断与tracker一致 为源storage 或同步时间戳晚于文件创建时间 或文件创建已超过最大同步延迟
+ * 状态超过3个刷新周期未更新或无可用storage时返回null 由调用方回退到tracker
+ * </pre>
+ *
+ * @author ykren
+ */
+public class StorageStateCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageStateCache.class);
+
+    /**
+     * 超过刷新间隔的倍数视为过期
+     */
+    private static final int STALE_FACTOR = 3;
+
+    private final TrackerClient trackerClient;
+
+    /**
+     * storage当前活动连接数
+     */
+    private final ToIntFunction<InetSocketAddress> activeConnections;
+
+    private final long refreshMillis;
+
+    private final long reservedMB;
+
+    /**
+     * 执行失败的storage 下次刷新前不再选择
+     */
+    private final Set<InetSocketAddress> failed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * 发现新的ACTIVE storage时回调
+     */
+    private volatile Consumer<Collection<InetSocketAddress>> storageListener;
+
+    private ScheduledExecutorService scheduler;
+
+    public StorageStateCache(TrackerClient trackerClient, ToIntFunction<InetSocketAddress> activeConnections,
+                             long refreshMillis, long reservedMB) {
+        this.trackerClient = trackerClient;
+        this.activeConnections = activeConnections;
+        this.refreshMillis = refreshMillis;
+        this.reservedMB = reservedMB;
+    }
+
+    /**
+     * 启动定时刷新
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("fastdfs-store-refresh"));
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止定时刷新
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            LOGGER.warn("refresh storage state error", e);
+        }
+    }
+
+    /**
+     * 通过tracker刷新group/storage状态
+     */
+    public void refresh() {
+        List<GroupState> groups = trackerClient.listGroups();
+        Map<String, List<StorageState>> storages = new HashMap<>();
+        for (GroupState group : groups) {
+            storages.put(group.getGroupName(), trackerClient.listStorages(group.getGroupName()));
+        }
+        update(groups, storages);
+    }
+
+    /**
+     * 更新group/storage状态
+     *
+     * @param groups
+     * @param storages 按组名分组的storage状态
+     */
+    public void update(List<GroupState> groups, Map<String, List<StorageState>> storages) {
+        Snapshot previous = this.snapshot;
+        Map<String, List<Candidate>> candidates = new HashMap<>();
+        Map<String, List<Replica>> replicas = new HashMap<>();
+        Set<InetSocketAddress> activeAddresses = new HashSet<>();
+        String bestGroup = null;
+        long bestFreeMB = -1;
+        for (GroupState group : groups) {
+            String groupName = group.getGroupName();
+            List<StorageState> states = storages.get(groupName);
+            if (states == null) {
+                continue;
+            }
+            List<Candidate> list = new ArrayList<>();
+            List<Replica> groupReplicas = new ArrayList<>();
+            for (StorageState state : states) {
+                if (!state.isActive()) {
+                    continue;
+                }
+                InetSocketAddress address = new InetSocketAddress(state.getIpAddr(), state.getStoragePort());
+                activeAddresses.add(address);
+                groupReplicas.add(new Replica(state, address));
+                if (state.getFreeMB() < reservedMB) {
+                    continue;
+                }
+                long uploads = state.getTotalUploadCount();
+                long recentUploads = 0;
+                if (previous != null) {
+                    Long last = previous.uploadCounts.get(address);
+                    recentUploads = last == null ? 0 : Math.max(0, uploads - last);
+                }
+                list.add(new Candidate(state, address, recentUploads));
+            }
+            if (!groupReplicas.isEmpty()) {
+                replicas.put(groupName, Collections.unmodifiableList(groupReplicas));
+            }
+            if (list.isEmpty()) {
+                continue;
+            }
+            candidates.put(groupName, Collections.unmodifiableList(list));
+            if (group.getFreeMB() > bestFreeMB) {
+                bestFreeMB = group.getFreeMB();
+                bestGroup = groupName;
+            }
+        }
+        this.snapshot = new Snapshot(candidates, replicas, activeAddresses, bestGroup,
+                System.currentTimeMillis());
+        failed.clear();
+        notifyNewStorages(previous, activeAddresses);
+    }
+
+    private void notifyNewStorages(Snapshot previous, Set<InetSocketAddress> activeAddresses) {
+        Consumer<Collection<InetSocketAddress>> listener = this.storageListener;
+        if (listener == null) {
+            return;
+        }
+        List<InetSocketAddress> added = new ArrayList<>();
+        for (InetSocketAddress address : activeAddresses) {
+            if (previous == null || !previous.activeAddresses.contains(address)) {
+                added.add(address);
+            }
+        }
+        if (!added.isEmpty()) {
+            listener.accept(added);
+        }
+    }
+
+    /**
+     * 设置发现新的ACTIVE storage时的回调 在刷新线程上调用
+     *
+     * @param storageListener
+     */
+    public void setStorageListener(Consumer<Collection<InetSocketAddress>> storageListener) {
+        this.storageListener = storageListener;
+    }
+
+    /**
+     * 选择上传storage
+     *
+     * @param groupName 为空时选择剩余空间最大的group
+     * @return 状态过期或无可用storage时返回null
+     */
+    public StorageNode select(String groupName) {
+        Snapshot current = this.snapshot;
+        if (isStale(current)) {
+            return null;
+        }
+        String group = StringUtils.isBlank(groupName) ? current.bestGroup : groupName;
+        List<Candidate> candidates = group == null ? null : current.groups.get(group);
+        if (candidates == null) {
+            return null;
+        }
+        int size = candidates.size();
+        // 轮询起点 负载相同时分散到不同storage
+        int start = Math.floorMod(counter.getAndIncrement(), size);
+        Candidate best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Candidate candidate = candidates.get((start + i) % size);
+            if (failed.contains(candidate.address)) {
+                continue;
+            }
+            int load = activeConnections.applyAsInt(candidate.address);
+            if (best == null || load < bestLoad
+                    || (load == bestLoad && candidate.recentUploads < best.recentUploads)) {
+                best = candidate;
+                bestLoad = load;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        StorageNode node = new StorageNode(best.state.getIpAddr(), best.state.getStoragePort(),
+                (byte) best.state.getCurrentWritePath());
+        node.setGroupName(group);
+        return node;
+    }
+
+    /**
+     * 选择下载storage
+     *
+     * @param groupName
+     * @param path              文件路径
+     * @param syncMaxDelaySecond 文件创建超过该时长视为已同步到所有storage
+     * @return 状态过期、文件名无法解析、appender文件或无已同步的storage时返回null
+     */
+    public StorageNodeInfo selectReplica(String groupName, String path, long syncMaxDelaySecond) {
+        return selectReplica(groupName, path, syncMaxDelaySecond, null);
+    }
+
+    /**
+     * 选择下载storage
+     *
+     * @param groupName
+     * @param path              文件路径
+     * @param syncMaxDelaySecond 文件创建超过该时长视为已同步到所有storage
+     * @param exclude           不选择的storage 可为null
+     * @return 状态过期、文件名无法解析、appender文件或无已同步的storage时返回null
+     */
+    public StorageNodeInfo selectReplica(String groupName, String path, long syncMaxDelaySecond,
+                                         InetSocketAddress exclude) {
+        Snapshot current = this.snapshot;
+        if (isStale(current)) {
+            return null;
+        }
+        List<Replica> replicas = current.replicas.get(groupName);
+        FileNameInfo info = FileNameInfo.decode(path);
+        // appender文件创建后仍会修改 由tracker选择
+        if (replicas == null || info == null || info.isAppenderFile()) {
+            return null;
+        }
+        int size = replicas.size();
+        // 随机起点 避免不同读命令交替执行时轮询总落在同一storage
+        int start = ThreadLocalRandom.current().nextInt(size);
+        Replica best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (failed.contains(replica.address) || replica.address.equals(exclude)
+                    || !hasSynced(replica.state, info, syncMaxDelaySecond)) {
+                continue;
+            }
+            int load = activeConnections.applyAsInt(replica.address);
+            if (load < bestLoad) {
+                best = replica;
+                bestLoad = load;
+            }
+        }
+        return best == null ? null : new StorageNodeInfo(best.state.getIpAddr(), best.state.getStoragePort());
+    }
+
+    /**
+     * 获取group内已同步该文件的storage
+     *
+     * @param groupName
+     * @param path               文件路径
+     * @param syncMaxDelaySecond 文件创建超过该时长视为已同步到所有storage
+     * @return 状态过期、文件名无法解析或appender文件时返回null
+     */
+    public List<InetSocketAddress> listSyncedReplicas(String groupName, String path, long syncMaxDelaySecond) {
+        Snapshot current = this.snapshot;
+        if (isStale(current)) {
+            return null;
+        }
+        FileNameInfo info = FileNameInfo.decode(path);
+        if (info == null || info.isAppenderFile()) {
+            return null;
+        }
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (Replica replica : current.replicas.getOrDefault(groupName, Collections.emptyList())) {
+            if (!failed.contains(replica.address) && hasSynced(replica.state, info, syncMaxDelaySecond)) {
+                addresses.add(replica.address);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * storage是否已有该文件 规则与tracker一致
+     * 为源storage 或同步时间戳晚于文件创建时间 或文件创建已超过最大同步延迟
+     *
+     * @param state              storage状态
+     * @param info               文件名信息
+     * @param syncMaxDelaySecond 最大同步延迟 秒
+     * @return
+     */
+    public static boolean hasSynced(StorageState state, FileNameInfo info, long syncMaxDelaySecond) {
+        if (System.currentTimeMillis() / 1000 - info.getCreateTime() > syncMaxDelaySecond
+                || state.getIpAddr().equals(info.getSourceIpAddr())) {
+            return true;
+        }
+        return state.getLastSyncedTimestamp() != null
+                && state.getLastSyncedTimestamp().getTime() / 1000 > info.getCreateTime();
+    }
+
+    private boolean isStale(Snapshot current) {
+        return current == null || System.currentTimeMillis() - current.refreshTime > refreshMillis * STALE_FACTOR;
+    }
+
+    /**
+     * 标记storage执行失败 下次刷新前不再选择
+     *
+     * @param address
+     */
+    public void markFailed(InetSocketAddress address) {
+        if (snapshot != null) {
+            failed.add(address);
+        }
+    }
+
+    private static class Candidate {
+        private final StorageState state;
+        private final InetSocketAddress address;
+        /**
+         * 上个刷新周期内的上传次数
+         */
+        private final long recentUploads;
+
+        private Candidate(StorageState state, InetSocketAddress address, long recentUploads) {
+            this.state = state;
+            this.address = address;
+            this.recentUploads = recentUploads;
+        }
+    }
+
+    private static class Replica {
+        private final StorageState state;
+        private final InetSocketAddress address;
+
+        private Replica(StorageState state, InetSocketAddress address) {
+            this.state = state;
+            this.address = address;
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<String, List<Candidate>> groups;
+        private final Map<String, List<Replica>> replicas;
+        private final Map<InetSocketAddress, Long> uploadCounts = new HashMap<>();
+        private final Set<InetSocketAddress> activeAddresses;
+        private final String bestGroup;
+        private final long refreshTime;
+
+        private Snapshot(Map<String, List<Candidate>> groups, Map<String, List<Replica>> replicas,
+                         Set<InetSocketAddress> activeAddresses, String bestGroup, long refreshTime) {
+            this.groups = groups;
+            this.replicas = replicas;
+            this.activeAddresses = activeAddresses;
+            this.bestGroup = bestGroup;
+            this.refreshTime = refreshTime;
+            for (List<Candidate> candidates : groups.values()) {
+                for (Candidate candidate : candidates) {
+                    uploadCounts.put(candidate.address, candidate.state.getTotalUploadCount());
+                }
+            }
+        }
+    }
+}
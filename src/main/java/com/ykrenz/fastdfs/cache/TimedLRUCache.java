@@ -0,0 +1,82 @@
+package com.ykrenz.fastdfs.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 带过期时间的线程安全LRU缓存
+ *
+ * @author ykren
+ */
+public class TimedLRUCache<K, V> implements FdfsCache<K, V> {
+
+    /**
+     * 过期时间 纳秒
+     */
+    private final long expireNanos;
+
+    private final Map<K, Entry<V>> cache;
+
+    public TimedLRUCache(int maxSize, long expireMillis) {
+        this.expireNanos = expireMillis * 1000_000L;
+        this.cache = new LinkedHashMap<K, Entry<V>>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public synchronized void put(K key, V value) {
+        cache.put(key, new Entry<>(value, System.nanoTime() + expireNanos));
+    }
+
+    @Override
+    public synchronized V get(K key) {
+        Entry<V> entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt - System.nanoTime() <= 0) {
+            cache.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public synchronized V remove(K key) {
+        Entry<V> entry = cache.remove(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * 移除满足条件的缓存
+     *
+     * @param filter
+     */
+    public synchronized void removeIf(Predicate<V> filter) {
+        cache.values().removeIf(entry -> filter.test(entry.value));
+    }
+
+    @Override
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expireAt;
+
+        private Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.ykrenz.fastdfs.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.ykrenz.fastdfs.model.fdfs.FastDFSConstants.DEFAULT_BUFFER_POOL_MAX_MB;
+import static com.ykrenz.fastdfs.model.fdfs.FastDFSConstants.DEFAULT_BUFFER_SIZE;
+import static com.ykrenz.fastdfs.model.fdfs.FastDFSConstants.DEFAULT_STREAM_BUFFER_SIZE;
+import static com.ykrenz.fastdfs.model.fdfs.FastDFSConstants.KB;
+import static com.ykrenz.fastdfs.model.fdfs.FastDFSConstants.MB;
+
+/**
+ * 传输缓冲区池
+ * <pre>
+ * 按8KB、64KB、512KB分级复用byte[] 申请长度向上取整到所属级别 超过最大级别时直接分配不复用
+ * 池中缓冲区总长度不超过maxPooledBytes 超出时归还的缓冲区直接丢弃 为0时不复用
+ * 未归还的缓冲区由GC回收 不影响正确性
+ * 文件流读写都是堆内数组 这里不使用直接内存
+ * </pre>
+ *
+ * @author ykren
+ */
+public class BufferPool {
+
+    /**
+     * 缓冲区级别
+     */
+    private static final int[] SIZE_CLASSES = {DEFAULT_BUFFER_SIZE, 64 * KB, DEFAULT_STREAM_BUFFER_SIZE};
+
+    private static final BufferPool DEFAULT = new BufferPool(DEFAULT_BUFFER_POOL_MAX_MB * MB);
+
+    private final List<Queue<byte[]>> pools = new ArrayList<>(SIZE_CLASSES.length);
+
+    private volatile long maxPooledBytes;
+
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    private final AtomicLong acquireCount = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong releaseCount = new AtomicLong();
+
+    private final AtomicLong discardCount = new AtomicLong();
+
+    public BufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            pools.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * 全局共享的缓冲区池
+     *
+     * @return
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 申请缓冲区
+     *
+     * @param size 最小长度
+     * @return 长度不小于size的缓冲区 内容不保证为0
+     */
+    public byte[] acquire(int size) {
+        acquireCount.incrementAndGet();
+        int index = sizeClass(size);
+        if (index < 0) {
+            return new byte[size];
+        }
+        byte[] buffer = pools.get(index).poll();
+        if (buffer == null) {
+            return new byte[SIZE_CLASSES[index]];
+        }
+        pooledBytes.addAndGet(-buffer.length);
+        hitCount.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区 归还后不能再使用
+     *
+     * @param buffer
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        releaseCount.incrementAndGet();
+        int index = sizeClass(buffer.length);
+        if (index < 0 || SIZE_CLASSES[index] != buffer.length) {
+            discardCount.incrementAndGet();
+            return;
+        }
+        if (pooledBytes.addAndGet(buffer.length) > maxPooledBytes) {
+            pooledBytes.addAndGet(-buffer.length);
+            discardCount.incrementAndGet();
+            return;
+        }
+        pools.get(index).offer(buffer);
+    }
+
+    /**
+     * 清空池中缓冲区
+     */
+    public void clear() {
+        for (Queue<byte[]> pool : pools) {
+            byte[] buffer;
+            while ((buffer = pool.poll()) != null) {
+                pooledBytes.addAndGet(-buffer.length);
+            }
+        }
+    }
+
+    private static int sizeClass(int size) {
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (size <= SIZE_CLASSES[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getMaxPooledBytes() {
+        return maxPooledBytes;
+    }
+
+    /**
+     * 设置池中缓冲区总长度上限 超出部分在后续申请时消耗
+     *
+     * @param maxPooledBytes
+     */
+    public void setMaxPooledBytes(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * 池中缓冲区总长度
+     *
+     * @return
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * 累计申请次数
+     *
+     * @return
+     */
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    /**
+     * 累计从池中复用次数
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 累计归还次数
+     *
+     * @return
+     */
+    public long getReleaseCount() {
+        return releaseCount.get();
+    }
+
+    /**
+     * 累计归还时因超出上限或长度不符丢弃次数
+     *
+     * @return
+     */
+    public long getDiscardCount() {
+        return discardCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool [pooledBytes=" + getPooledBytes() + ", maxPooledBytes=" + maxPooledBytes
+                + ", acquireCount=" + getAcquireCount() + ", hitCount=" + getHitCount()
+                + ", releaseCount=" + getReleaseCount() + ", discardCount=" + getDiscardCount() + "]";
+    }
+}
@@ -0,0 +1,59 @@
+package com.ykrenz.fastdfs.common;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * channel传输工具类
+ *
+ * @author ykren
+ */
+public final class ChannelUtils {
+    private ChannelUtils() {
+    }
+
+    /**
+     * 探测读取缓存长度
+     */
+    private static final int PROBE_BUFFER_SIZE = 1024;
+
+    /**
+     * 从channel读取count长度的数据写入文件的position位置
+     * <p>
+     * transferFrom在源channel暂无数据和到达末尾时都可能返回0 此时读取一次进行区分
+     *
+     * @param src      源channel
+     * @param dest     目标文件
+     * @param position 文件写入位置
+     * @param count    读取长度
+     * @return 实际写入长度
+     * @throws IOException 源channel提前结束时抛出EOFException
+     */
+    public static long transferFrom(ReadableByteChannel src, FileChannel dest, long position, long count)
+            throws IOException {
+        long transferred = 0;
+        ByteBuffer probe = null;
+        while (transferred < count) {
+            long l = dest.transferFrom(src, position + transferred, count - transferred);
+            if (l == 0) {
+                if (probe == null) {
+                    probe = ByteBuffer.allocate(PROBE_BUFFER_SIZE);
+                }
+                probe.clear();
+                probe.limit((int) Math.min(PROBE_BUFFER_SIZE, count - transferred));
+                if (src.read(probe) < 0) {
+                    throw new EOFException("expected " + count + " bytes but only " + transferred + " received");
+                }
+                probe.flip();
+                while (probe.hasRemaining()) {
+                    l += dest.write(probe, position + transferred + l);
+                }
+            }
+            transferred += l;
+        }
+        return transferred;
+    }
+}
@@ -53,12 +53,14 @@ public final class Crc32 {
      */
     public static long file(File f) throws IOException {
         int len;
-        byte[] buff = new byte[64 * 1024];
+        byte[] buff = BufferPool.getDefault().acquire(64 * 1024);
         CRC32 crc32 = new CRC32();
         try (FileInputStream fi = new FileInputStream(f)) {
             while ((len = fi.read(buff)) != -1) {
                 crc32.update(buff, 0, len);
             }
+        } finally {
+            BufferPool.getDefault().release(buff);
         }
         return crc32.getValue();
     }
@@ -0,0 +1,33 @@
+package com.ykrenz.fastdfs.common;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按前缀命名的守护线程工厂
+ *
+ * @author ykren
+ */
+public class NamedThreadFactory implements ThreadFactory {
+
+    /**
+     * 线程名前缀
+     */
+    private final String prefix;
+
+    /**
+     * 线程序号
+     */
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    public NamedThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + "-" + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
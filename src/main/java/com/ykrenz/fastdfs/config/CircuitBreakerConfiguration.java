@@ -0,0 +1,108 @@
+package com.ykrenz.fastdfs.config;
+
+import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
+
+/**
+ * storage熔断配置
+ *
+ * @author ykren
+ */
+public class CircuitBreakerConfiguration {
+
+    /**
+     * 是否开启storage熔断
+     */
+    private boolean enabled;
+    /**
+     * 统计窗口
+     */
+    private long windowMillis = FastDFSConstants.DEFAULT_CIRCUIT_WINDOW_MILLIS;
+    /**
+     * 窗口内请求数达到该值才按比例判断
+     */
+    private int minimumCalls = FastDFSConstants.DEFAULT_CIRCUIT_MINIMUM_CALLS;
+    /**
+     * 失败比例达到该值时熔断 百分比
+     */
+    private int failureRateThreshold = FastDFSConstants.DEFAULT_CIRCUIT_FAILURE_RATE_THRESHOLD;
+    /**
+     * 服务端处理耗时超过该值视为慢请求
+     */
+    private long slowCallMillis = FastDFSConstants.DEFAULT_CIRCUIT_SLOW_CALL_MILLIS;
+    /**
+     * 慢请求比例达到该值时熔断 百分比
+     */
+    private int slowCallRateThreshold = FastDFSConstants.DEFAULT_CIRCUIT_SLOW_CALL_RATE_THRESHOLD;
+    /**
+     * 连续失败达到该次数时熔断
+     */
+    private int consecutiveFailures = FastDFSConstants.DEFAULT_CIRCUIT_CONSECUTIVE_FAILURES;
+    /**
+     * 熔断后经过该时长允许一个探测请求
+     */
+    private long openMillis = FastDFSConstants.DEFAULT_CIRCUIT_OPEN_MILLIS;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public void setWindowMillis(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getSlowCallMillis() {
+        return slowCallMillis;
+    }
+
+    public void setSlowCallMillis(long slowCallMillis) {
+        this.slowCallMillis = slowCallMillis;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public void setOpenMillis(long openMillis) {
+        this.openMillis = openMillis;
+    }
+}
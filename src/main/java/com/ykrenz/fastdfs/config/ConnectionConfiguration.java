@@ -23,6 +23,55 @@ public class ConnectionConfiguration {
      * tracker不可用后多少秒后重试
      */
     private int retryAfterSecond = FastDFSConstants.DEFAULT_RETRY_AFTER_SECOND;
+    /**
+     * 是否使用基于NIO SocketChannel的连接
+     */
+    private boolean nio;
+    /**
+     * 传输缓冲区池最大保留MB 0为不复用
+     * 缓冲区池为JVM全局共享的BufferPool.getDefault() 非默认值时创建客户端会修改全局上限 多个客户端以最后创建的为准
+     */
+    private long bufferPoolMaxMB = FastDFSConstants.DEFAULT_BUFFER_POOL_MAX_MB;
+    /**
+     * testOnBorrow/testWhileIdle时只检测空闲超过该时长的连接 0为每次都检测
+     */
+    private long validateAfterIdleMillis = FastDFSConstants.DEFAULT_VALIDATE_AFTER_IDLE_MILLIS;
+    /**
+     * 是否收集命令执行指标并注册JMX
+     */
+    private boolean metricsEnabled;
+    /**
+     * 是否使用无锁连接池LockFreeConnectionPool 默认使用commons-pool2实现的FdfsConnectionPool
+     */
+    private boolean lockFreePool;
+    /**
+     * 创建客户端时是否预建tracker和storage连接
+     */
+    private boolean warmUpEnabled;
+    /**
+     * 预热最长等待毫秒数
+     */
+    private long warmUpTimeoutMillis = FastDFSConstants.DEFAULT_WARM_UP_TIMEOUT_MILLIS;
+    /**
+     * 是否开启tracker后台健康检查
+     */
+    private boolean healthCheckEnabled;
+    /**
+     * tracker健康检查间隔毫秒数
+     */
+    private long healthCheckIntervalMillis = FastDFSConstants.DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS;
+    /**
+     * tracker健康检查失败后最长退避毫秒数
+     */
+    private long healthCheckMaxBackoffMillis = FastDFSConstants.DEFAULT_HEALTH_CHECK_MAX_BACKOFF_MILLIS;
+    /**
+     * 批量操作并发数 同时查询tracker或执行storage命令的最大任务数
+     */
+    private int batchParallelism = FastDFSConstants.DEFAULT_BATCH_PARALLELISM;
+    /**
+     * 批量操作时单个连接上连续发送的请求数
+     */
+    private int pipelineDepth = FastDFSConstants.DEFAULT_PIPELINE_DEPTH;
 
     /**
      * 连接池配置
@@ -41,6 +90,8 @@ public class ConnectionConfiguration {
             this.setJmxNameBase(FastDFSConstants.JMX_NAME_BASE);
             this.setJmxNamePrefix(FastDFSConstants.JMX_NAME_PREFIX);
             this.setTestOnBorrow(FastDFSConstants.TEST_ON_BORROW);
+            this.setTestWhileIdle(FastDFSConstants.TEST_WHILE_IDLE);
+            this.setNumTestsPerEvictionRun(FastDFSConstants.NUM_TESTS_PER_EVICTION_RUN);
         }
     }
 
@@ -76,6 +127,102 @@ public class ConnectionConfiguration {
         this.retryAfterSecond = retryAfterSecond;
     }
 
+    public boolean isNio() {
+        return nio;
+    }
+
+    public void setNio(boolean nio) {
+        this.nio = nio;
+    }
+
+    public long getBufferPoolMaxMB() {
+        return bufferPoolMaxMB;
+    }
+
+    public void setBufferPoolMaxMB(long bufferPoolMaxMB) {
+        this.bufferPoolMaxMB = bufferPoolMaxMB;
+    }
+
+    public long getValidateAfterIdleMillis() {
+        return validateAfterIdleMillis;
+    }
+
+    public void setValidateAfterIdleMillis(long validateAfterIdleMillis) {
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    public boolean isLockFreePool() {
+        return lockFreePool;
+    }
+
+    public void setLockFreePool(boolean lockFreePool) {
+        this.lockFreePool = lockFreePool;
+    }
+
+    public boolean isWarmUpEnabled() {
+        return warmUpEnabled;
+    }
+
+    public void setWarmUpEnabled(boolean warmUpEnabled) {
+        this.warmUpEnabled = warmUpEnabled;
+    }
+
+    public long getWarmUpTimeoutMillis() {
+        return warmUpTimeoutMillis;
+    }
+
+    public void setWarmUpTimeoutMillis(long warmUpTimeoutMillis) {
+        this.warmUpTimeoutMillis = warmUpTimeoutMillis;
+    }
+
+    public boolean isHealthCheckEnabled() {
+        return healthCheckEnabled;
+    }
+
+    public void setHealthCheckEnabled(boolean healthCheckEnabled) {
+        this.healthCheckEnabled = healthCheckEnabled;
+    }
+
+    public long getHealthCheckIntervalMillis() {
+        return healthCheckIntervalMillis;
+    }
+
+    public void setHealthCheckIntervalMillis(long healthCheckIntervalMillis) {
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+    }
+
+    public long getHealthCheckMaxBackoffMillis() {
+        return healthCheckMaxBackoffMillis;
+    }
+
+    public void setHealthCheckMaxBackoffMillis(long healthCheckMaxBackoffMillis) {
+        this.healthCheckMaxBackoffMillis = healthCheckMaxBackoffMillis;
+    }
+
+    public int getBatchParallelism() {
+        return batchParallelism;
+    }
+
+    public void setBatchParallelism(int batchParallelism) {
+        this.batchParallelism = batchParallelism;
+    }
+
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    public void setPipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+    }
+
     public ConnectionPoolConfiguration getPool() {
         return pool;
     }
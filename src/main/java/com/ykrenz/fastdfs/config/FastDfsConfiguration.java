@@ -20,6 +20,14 @@ public class FastDfsConfiguration {
      * 连接配置
      */
     private ConnectionConfiguration connection = new ConnectionConfiguration();
+    /**
+     * storage路由配置
+     */
+    private RouteConfiguration route = new RouteConfiguration();
+    /**
+     * storage熔断配置
+     */
+    private CircuitBreakerConfiguration circuitBreaker = new CircuitBreakerConfiguration();
 
     public String getDefaultGroup() {
         return defaultGroup;
@@ -45,4 +53,20 @@ public class FastDfsConfiguration {
         this.connection = connection;
     }
 
+    public RouteConfiguration getRoute() {
+        return route;
+    }
+
+    public void setRoute(RouteConfiguration route) {
+        this.route = route;
+    }
+
+    public CircuitBreakerConfiguration getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreakerConfiguration circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
 }
@@ -0,0 +1,156 @@
+package com.ykrenz.fastdfs.config;
+
+import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
+
+/**
+ * storage路由配置
+ *
+ * @author ykren
+ */
+public class RouteConfiguration {
+
+    /**
+     * 是否缓存tracker返回的下载和更新storage
+     */
+    private boolean cacheEnabled;
+    /**
+     * 路由缓存最大数量
+     */
+    private int cacheMaxSize = FastDFSConstants.DEFAULT_ROUTE_CACHE_MAX_SIZE;
+    /**
+     * 路由缓存过期时间
+     */
+    private int cacheExpireSecond = FastDFSConstants.DEFAULT_ROUTE_CACHE_EXPIRE_SECOND;
+    /**
+     * 是否根据缓存的group/storage状态在本地选择上传storage
+     */
+    private boolean storeSelectEnabled;
+    /**
+     * group/storage状态刷新间隔
+     */
+    private int storeRefreshSecond = FastDFSConstants.DEFAULT_STORE_REFRESH_SECOND;
+    /**
+     * 剩余空间低于该值的storage不参与本地选择
+     */
+    private long storeReservedMB = FastDFSConstants.DEFAULT_STORE_RESERVED_MB;
+    /**
+     * 是否根据缓存的group/storage状态在本地选择下载storage
+     */
+    private boolean readBalanceEnabled;
+    /**
+     * 文件创建超过该时长视为已同步到group内所有storage 应与storage_sync_file_max_delay一致
+     */
+    private long readSyncMaxDelaySecond = FastDFSConstants.DEFAULT_READ_SYNC_MAX_DELAY_SECOND;
+    /**
+     * 是否对downloadFile和getMetadata发送对冲请求 下载内容缓存在内存中 长度受hedgeMaxBytes限制
+     */
+    private boolean hedgeEnabled;
+    /**
+     * 对冲延迟为近期请求耗时的该百分位
+     */
+    private double hedgePercentile = FastDFSConstants.DEFAULT_HEDGE_PERCENTILE;
+    /**
+     * 对冲最小延迟
+     */
+    private long hedgeMinDelayMillis = FastDFSConstants.DEFAULT_HEDGE_MIN_DELAY_MILLIS;
+    /**
+     * 只对下载长度不超过该值的downloadFile发送对冲请求 未指定长度时由文件名解析文件大小 其余下载直接流式传输
+     */
+    private long hedgeMaxBytes = FastDFSConstants.DEFAULT_HEDGE_MAX_BYTES;
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    public int getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public void setCacheMaxSize(int cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    public int getCacheExpireSecond() {
+        return cacheExpireSecond;
+    }
+
+    public void setCacheExpireSecond(int cacheExpireSecond) {
+        this.cacheExpireSecond = cacheExpireSecond;
+    }
+
+    public boolean isStoreSelectEnabled() {
+        return storeSelectEnabled;
+    }
+
+    public void setStoreSelectEnabled(boolean storeSelectEnabled) {
+        this.storeSelectEnabled = storeSelectEnabled;
+    }
+
+    public int getStoreRefreshSecond() {
+        return storeRefreshSecond;
+    }
+
+    public void setStoreRefreshSecond(int storeRefreshSecond) {
+        this.storeRefreshSecond = storeRefreshSecond;
+    }
+
+    public long getStoreReservedMB() {
+        return storeReservedMB;
+    }
+
+    public void setStoreReservedMB(long storeReservedMB) {
+        this.storeReservedMB = storeReservedMB;
+    }
+
+    public boolean isReadBalanceEnabled() {
+        return readBalanceEnabled;
+    }
+
+    public void setReadBalanceEnabled(boolean readBalanceEnabled) {
+        this.readBalanceEnabled = readBalanceEnabled;
+    }
+
+    public long getReadSyncMaxDelaySecond() {
+        return readSyncMaxDelaySecond;
+    }
+
+    public void setReadSyncMaxDelaySecond(long readSyncMaxDelaySecond) {
+        this.readSyncMaxDelaySecond = readSyncMaxDelaySecond;
+    }
+
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    public void setHedgeEnabled(boolean hedgeEnabled) {
+        this.hedgeEnabled = hedgeEnabled;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getHedgeMinDelayMillis() {
+        return hedgeMinDelayMillis;
+    }
+
+    public void setHedgeMinDelayMillis(long hedgeMinDelayMillis) {
+        this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+    }
+
+    public long getHedgeMaxBytes() {
+        return hedgeMaxBytes;
+    }
+
+    public void setHedgeMaxBytes(long hedgeMaxBytes) {
+        this.hedgeMaxBytes = hedgeMaxBytes;
+    }
+}
@@ -0,0 +1,62 @@
+package com.ykrenz.fastdfs.conn;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * SocketChannel连接的输入流
+ * <p>
+ * 读取委托给socket输入流 同时暴露底层channel
+ * 直接读取channel时使用{@link #openReadChannel()} 保持soTimeout控制
+ * 等待数据的Selector在首次使用时打开 随连接关闭 每次下载只切换阻塞模式和注册
+ *
+ * @author ykren
+ */
+public class ChannelInputStream extends FilterInputStream {
+
+    private final SocketChannel channel;
+
+    private Selector selector;
+
+    public ChannelInputStream(InputStream in, SocketChannel channel) {
+        super(in);
+        this.channel = channel;
+    }
+
+    /**
+     * 获取底层channel
+     *
+     * @return
+     */
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * 打开受soTimeout控制的读取channel 使用完毕后需关闭以恢复阻塞模式
+     *
+     * @return
+     * @throws IOException
+     */
+    public ReadableByteChannel openReadChannel() throws IOException {
+        if (selector == null) {
+            selector = Selector.open();
+        }
+        return new TimeoutReadableByteChannel(channel, selector, channel.socket().getSoTimeout());
+    }
+
+    /**
+     * 关闭Selector 连接关闭时调用
+     */
+    void closeSelector() throws IOException {
+        if (selector != null) {
+            selector.close();
+            selector = null;
+        }
+    }
+
+}
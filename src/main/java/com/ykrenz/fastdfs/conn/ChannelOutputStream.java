@@ -0,0 +1,38 @@
+package com.ykrenz.fastdfs.conn;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.SocketChannel;
+
+/**
+ * SocketChannel连接的输出流
+ * <p>
+ * 写入委托给socket输出流 同时暴露底层channel
+ *
+ * @author ykren
+ */
+public class ChannelOutputStream extends FilterOutputStream {
+
+    private final SocketChannel channel;
+
+    public ChannelOutputStream(OutputStream out, SocketChannel channel) {
+        super(out);
+        this.channel = channel;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    /**
+     * 获取底层channel
+     *
+     * @return
+     */
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+}
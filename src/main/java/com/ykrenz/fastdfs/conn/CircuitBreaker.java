@@ -0,0 +1,259 @@
+package com.ykrenz.fastdfs.conn;
+
+import com.ykrenz.fastdfs.config.CircuitBreakerConfiguration;
+import com.ykrenz.fastdfs.exception.FdfsConnectException;
+import com.ykrenz.fastdfs.exception.FdfsIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个storage的熔断器
+ * <pre>
+ * CLOSED    正常放行 按统计窗口记录请求结果 连续失败或窗口内失败、慢请求比例达到阈值时熔断
+ * OPEN      拒绝请求 经过openMillis后转为HALF_OPEN
+ * HALF_OPEN 只放行一个探测请求 成功且不慢时恢复CLOSED 否则重新熔断
+ * 失败只包括连接异常和socket读写异常(含读取超时、连接被关闭) 见{@link #isFailure(Throwable)}
+ * 服务端错误码说明storage正常响应 按成功处理
+ * 获取连接池连接超时、本地文件读写和回调异常与storage无关 不计入统计
+ * 慢请求按服务端处理耗时判断 不含文件传输时间
+ * </pre>
+ *
+ * @author ykren
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * 熔断状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final InetSocketAddress address;
+
+    private final CircuitBreakerConfiguration config;
+
+    private final long windowNanos;
+
+    private final long slowCallNanos;
+
+    private final long openNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    private volatile long openedAt;
+
+    /**
+     * HALF_OPEN时是否已放行探测请求
+     */
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window(System.nanoTime()));
+
+    private final LongAdder rejected = new LongAdder();
+
+    public CircuitBreaker(InetSocketAddress address, CircuitBreakerConfiguration config) {
+        this.address = address;
+        this.config = config;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(config.getWindowMillis());
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallMillis());
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(config.getOpenMillis());
+    }
+
+    /**
+     * 是否放行请求 放行后须调用{@link #onSuccess(long)}、{@link #onFailure()}或{@link #onIgnore()}
+     *
+     * @return
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                rejected.increment();
+                return false;
+            }
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        if (state.get() == State.HALF_OPEN && probing.compareAndSet(false, true)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 请求成功
+     *
+     * @param serverNanos 服务端处理耗时
+     */
+    public void onSuccess(long serverNanos) {
+        onResult(false, serverNanos > slowCallNanos);
+    }
+
+    /**
+     * 请求失败
+     */
+    public void onFailure() {
+        onResult(true, false);
+    }
+
+    /**
+     * 请求结束但结果与storage无关 不计入统计 HALF_OPEN时释放探测名额
+     */
+    public void onIgnore() {
+        if (state.get() == State.HALF_OPEN) {
+            probing.set(false);
+        }
+    }
+
+    /**
+     * 是否为storage失败
+     * <pre>
+     * 连接异常 或socket读写异常引起的FdfsIOException
+     * socket读写异常包括SocketException、读取超时、连接被关闭和响应未读完时连接结束(EOFException)
+     * 线程中断导致的channel关闭不计入
+     * </pre>
+     *
+     * @param error
+     * @return
+     */
+    public static boolean isFailure(Throwable error) {
+        if (error instanceof FdfsConnectException) {
+            return true;
+        }
+        if (!(error instanceof FdfsIOException)) {
+            return false;
+        }
+        for (Throwable cause = error.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ClosedByInterruptException) {
+                return false;
+            }
+            if (cause instanceof SocketException || cause instanceof SocketTimeoutException
+                    || cause instanceof ClosedChannelException || cause instanceof EOFException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onResult(boolean failure, boolean slow) {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            if (failure || slow) {
+                open();
+            } else {
+                close();
+            }
+            return;
+        }
+        if (current != State.CLOSED) {
+            // 熔断前发出的请求
+            return;
+        }
+        int consecutive;
+        if (failure) {
+            consecutive = consecutiveFailures.incrementAndGet();
+        } else {
+            consecutiveFailures.set(0);
+            consecutive = 0;
+        }
+        Window w = currentWindow();
+        w.calls.increment();
+        if (failure) {
+            w.failures.increment();
+        }
+        if (slow) {
+            w.slowCalls.increment();
+        }
+        if (consecutive >= config.getConsecutiveFailures() || w.exceeds()) {
+            open();
+        }
+    }
+
+    private Window currentWindow() {
+        Window w = window.get();
+        long now = System.nanoTime();
+        if (now - w.start >= windowNanos) {
+            window.compareAndSet(w, new Window(now));
+            w = window.get();
+        }
+        return w;
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        State previous = state.getAndSet(State.OPEN);
+        probing.set(false);
+        if (previous != State.OPEN) {
+            LOGGER.warn("storage {} circuit breaker open, reject requests for {}ms", address, config.getOpenMillis());
+        }
+    }
+
+    private void close() {
+        window.set(new Window(System.nanoTime()));
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+        probing.set(false);
+        LOGGER.info("storage {} circuit breaker closed", address);
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return 累计拒绝的请求数
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * 统计窗口
+     */
+    private final class Window {
+        private final long start;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder slowCalls = new LongAdder();
+
+        private Window(long start) {
+            this.start = start;
+        }
+
+        /**
+         * 失败或慢请求比例是否达到阈值
+         */
+        private boolean exceeds() {
+            long total = calls.sum();
+            if (total < config.getMinimumCalls()) {
+                return false;
+            }
+            return failures.sum() * 100 >= total * config.getFailureRateThreshold()
+                    || slowCalls.sum() * 100 >= total * config.getSlowCallRateThreshold();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.ykrenz.fastdfs.conn;
+
+import com.ykrenz.fastdfs.config.CircuitBreakerConfiguration;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按地址管理熔断器
+ *
+ * @author ykren
+ */
+public class CircuitBreakerRegistry {
+
+    private final CircuitBreakerConfiguration config;
+
+    private final Map<InetSocketAddress, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry(CircuitBreakerConfiguration config) {
+        this.config = config;
+    }
+
+    /**
+     * 获取地址的熔断器 不存在时创建
+     *
+     * @param address
+     * @return
+     */
+    public CircuitBreaker get(InetSocketAddress address) {
+        CircuitBreaker breaker = breakers.get(address);
+        return breaker != null ? breaker : breakers.computeIfAbsent(address, k -> new CircuitBreaker(k, config));
+    }
+
+    /**
+     * 地址是否已熔断
+     *
+     * @param address
+     * @return
+     */
+    public boolean isOpen(InetSocketAddress address) {
+        CircuitBreaker breaker = breakers.get(address);
+        return breaker != null && breaker.getState() != CircuitBreaker.State.CLOSED;
+    }
+
+    public Collection<CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableCollection(breakers.values());
+    }
+}
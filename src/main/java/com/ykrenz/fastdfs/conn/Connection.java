@@ -1,5 +1,7 @@
 package com.ykrenz.fastdfs.conn;
 
+import com.ykrenz.fastdfs.model.proto.SendBuffer;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -56,4 +58,15 @@ public interface Connection {
      */
     Charset getCharset();
 
+    /**
+     * 获取发送缓冲区 同一连接上的请求复用
+     * <p>
+     * 默认每次返回新的缓冲区 实现类应持有并复用
+     *
+     * @return 发送缓冲区
+     */
+    default SendBuffer getSendBuffer() {
+        return new SendBuffer();
+    }
+
 }
@@ -0,0 +1,26 @@
+package com.ykrenz.fastdfs.conn;
+
+import com.ykrenz.fastdfs.config.ConnectionConfiguration;
+import org.apache.commons.pool2.KeyedObjectPool;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 按地址池化的连接池
+ * <pre>
+ * {@link FdfsConnectionManager}通过该接口借还连接
+ * {@link FdfsConnectionPool} 基于commons-pool2 GenericKeyedObjectPool 默认实现
+ * {@link LockFreeConnectionPool} 无锁实现 高并发访问少量地址时减少竞争
+ * </pre>
+ *
+ * @author ykren
+ */
+public interface ConnectionPool extends KeyedObjectPool<InetSocketAddress, Connection> {
+
+    /**
+     * 连接配置
+     *
+     * @return
+     */
+    ConnectionConfiguration getConnection();
+}
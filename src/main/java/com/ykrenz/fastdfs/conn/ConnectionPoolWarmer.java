@@ -0,0 +1,101 @@
+package com.ykrenz.fastdfs.conn;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 连接池预热
+ * <pre>
+ * 为每个地址并行预建连接 直到空闲和活动连接数达到minIdle
+ * 每个连接一个任务 在截止时间前未完成的任务取消 预热失败不影响正常使用 只记录日志
+ * </pre>
+ *
+ * @author ykren
+ */
+public class ConnectionPoolWarmer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolWarmer.class);
+
+    private final ExecutorService executor;
+
+    private final List<Future<Boolean>> futures = new ArrayList<>();
+
+    public ConnectionPoolWarmer(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 提交预建连接任务
+     *
+     * @param pool
+     * @param addresses
+     * @param minIdle
+     * @return this
+     */
+    public synchronized ConnectionPoolWarmer submit(ConnectionPool pool, Collection<InetSocketAddress> addresses,
+                                                    int minIdle) {
+        for (InetSocketAddress address : addresses) {
+            int missing = minIdle - pool.getNumIdle(address) - pool.getNumActive(address);
+            for (int i = 0; i < missing; i++) {
+                futures.add(executor.submit(() -> addConnection(pool, address)));
+            }
+        }
+        return this;
+    }
+
+    private static boolean addConnection(ConnectionPool pool, InetSocketAddress address) {
+        try {
+            pool.addObject(address);
+            return true;
+        } catch (Exception e) {
+            LOGGER.debug("warm up connection to {} error", address, e);
+            return false;
+        }
+    }
+
+    /**
+     * 等待已提交的任务完成
+     *
+     * @param deadlineNanos 截止时间 {@link System#nanoTime()}
+     * @return 预建成功的连接数
+     */
+    public synchronized int await(long deadlineNanos) {
+        int created = 0;
+        int failed = 0;
+        for (Future<Boolean> future : futures) {
+            try {
+                if (future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    created++;
+                } else {
+                    failed++;
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                failed++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                failed++;
+            } catch (ExecutionException e) {
+                failed++;
+            }
+        }
+        futures.clear();
+        if (failed > 0) {
+            LOGGER.warn("warm up connections created {} failed or timed out {}", created, failed);
+        } else {
+            LOGGER.debug("warm up connections created {}", created);
+        }
+        return created;
+    }
+}
@@ -2,7 +2,8 @@ package com.ykrenz.fastdfs.conn;
 
 import com.ykrenz.fastdfs.model.proto.CmdConstants;
 import com.ykrenz.fastdfs.model.proto.OtherConstants;
-import com.ykrenz.fastdfs.model.proto.mapper.BytesUtil;
+import com.ykrenz.fastdfs.model.proto.ProtoHead;
+import com.ykrenz.fastdfs.model.proto.SendBuffer;
 import com.ykrenz.fastdfs.exception.FdfsConnectException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +14,6 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.charset.Charset;
-import java.util.Arrays;
 
 /**
  * 默认连接实现
@@ -22,6 +22,16 @@ import java.util.Arrays;
  */
 public class DefaultConnection implements Connection {
 
+    /**
+     * ACTIVE_TEST报文头 只读
+     */
+    private static final byte[] ACTIVE_TEST_HEADER = new ProtoHead(CmdConstants.FDFS_PROTO_CMD_ACTIVE_TEST).toByte();
+
+    /**
+     * QUIT报文头 只读
+     */
+    private static final byte[] QUIT_HEADER = new ProtoHead(CmdConstants.FDFS_PROTO_CMD_QUIT).toByte();
+
     /**
      * 封装socket
      */
@@ -32,6 +42,16 @@ public class DefaultConnection implements Connection {
      */
     private final Charset charset;
 
+    /**
+     * 发送缓冲区
+     */
+    private final SendBuffer sendBuffer = new SendBuffer();
+
+    /**
+     * ACTIVE_TEST响应报文头
+     */
+    private final byte[] activeTestResponse = new byte[ProtoHead.HEAD_LENGTH];
+
     /**
      * 日志
      */
@@ -45,13 +65,28 @@ public class DefaultConnection implements Connection {
      * @param connectTimeout
      */
     public DefaultConnection(InetSocketAddress address, int soTimeout, int connectTimeout, Charset charset) {
+        this(new Socket(), address, soTimeout, connectTimeout, charset);
+    }
+
+    /**
+     * 使用指定socket创建与服务端连接
+     *
+     * @param socket
+     * @param address
+     * @param soTimeout
+     * @param connectTimeout
+     * @param charset
+     */
+    protected DefaultConnection(Socket socket, InetSocketAddress address, int soTimeout, int connectTimeout,
+                                Charset charset) {
+        this.socket = socket;
+        this.charset = charset;
         try {
-            socket = new Socket();
             socket.setSoTimeout(soTimeout);
             LOGGER.debug("connect to {} soTimeout={} connectTimeout={}", address, soTimeout, connectTimeout);
-            this.charset = charset;
             socket.connect(address, connectTimeout);
         } catch (IOException e) {
+            closeQuietly();
             throw new FdfsConnectException("can't create connection to" + address, e);
         }
     }
@@ -62,23 +97,23 @@ public class DefaultConnection implements Connection {
     @Override
     public synchronized void close() {
         LOGGER.debug("disconnect from {}", socket);
-        byte[] header = new byte[OtherConstants.FDFS_PROTO_PKG_LEN_SIZE + 2];
-        Arrays.fill(header, (byte) 0);
-
-        byte[] hexLen = BytesUtil.long2buff(0);
-        System.arraycopy(hexLen, 0, header, 0, hexLen.length);
-        header[OtherConstants.PROTO_HEADER_CMD_INDEX] = CmdConstants.FDFS_PROTO_CMD_QUIT;
-        header[OtherConstants.PROTO_HEADER_STATUS_INDEX] = (byte) 0;
         try {
-            socket.getOutputStream().write(header);
+            getOutputStream().write(QUIT_HEADER);
         } catch (IOException e) {
             LOGGER.debug("I/O exception write header to close connection", e);
         } finally {
-            try {
-                socket.close();
-            } catch (IOException e) {
-                LOGGER.debug("I/O error closing connection", e);
-            }
+            closeQuietly();
+        }
+    }
+
+    /**
+     * 关闭socket
+     */
+    protected void closeQuietly() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.debug("I/O error closing connection", e);
         }
     }
 
@@ -97,15 +132,9 @@ public class DefaultConnection implements Connection {
     public boolean isValid() {
         LOGGER.debug("check connection status of {} ", this);
         try {
-            byte[] header = new byte[OtherConstants.FDFS_PROTO_PKG_LEN_SIZE + 2];
-            Arrays.fill(header, (byte) 0);
-
-            byte[] hexLen = BytesUtil.long2buff(0);
-            System.arraycopy(hexLen, 0, header, 0, hexLen.length);
-            header[OtherConstants.PROTO_HEADER_CMD_INDEX] = CmdConstants.FDFS_PROTO_CMD_ACTIVE_TEST;
-            header[OtherConstants.PROTO_HEADER_STATUS_INDEX] = (byte) 0;
-            socket.getOutputStream().write(header);
-            if (socket.getInputStream().read(header) != header.length) {
+            byte[] header = activeTestResponse;
+            getOutputStream().write(ACTIVE_TEST_HEADER);
+            if (getInputStream().read(header) != header.length) {
                 return false;
             }
 
@@ -148,4 +177,23 @@ public class DefaultConnection implements Connection {
         return charset;
     }
 
+    /**
+     * 获取发送缓冲区
+     *
+     * @return
+     */
+    @Override
+    public SendBuffer getSendBuffer() {
+        return sendBuffer;
+    }
+
+    /**
+     * 获取socket
+     *
+     * @return
+     */
+    protected Socket getSocket() {
+        return socket;
+    }
+
 }
@@ -1,12 +1,29 @@
 package com.ykrenz.fastdfs.conn;
 
+import com.ykrenz.fastdfs.exception.FdfsCircuitOpenException;
 import com.ykrenz.fastdfs.exception.FdfsClientException;
 import com.ykrenz.fastdfs.exception.FdfsException;
+import com.ykrenz.fastdfs.exception.FdfsIOException;
+import com.ykrenz.fastdfs.exception.FdfsServerException;
+import com.ykrenz.fastdfs.metrics.CommandSample;
+import com.ykrenz.fastdfs.metrics.FdfsMetrics;
+import com.ykrenz.fastdfs.model.fdfs.BatchResult;
+import com.ykrenz.fastdfs.model.fdfs.StorePath;
+import com.ykrenz.fastdfs.model.proto.AbstractFdfsCommand;
 import com.ykrenz.fastdfs.model.proto.FdfsCommand;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.ykrenz.fastdfs.model.fdfs.FastDFSConstants.DEFAULT_BUFFER_SIZE;
 
 /**
  * 连接池管理
@@ -24,7 +41,15 @@ public class FdfsConnectionManager {
     /**
      * 连接池
      */
-    private FdfsConnectionPool pool;
+    private ConnectionPool pool;
+    /**
+     * 指标收集
+     */
+    private volatile FdfsMetrics metrics = FdfsMetrics.NOOP;
+    /**
+     * 熔断器 为null时不熔断
+     */
+    private volatile CircuitBreakerRegistry circuitBreakers;
     /**
      * 日志
      */
@@ -35,7 +60,7 @@ public class FdfsConnectionManager {
      *
      * @param pool
      */
-    public FdfsConnectionManager(FdfsConnectionPool pool) {
+    public FdfsConnectionManager(ConnectionPool pool) {
         super();
         this.pool = pool;
     }
@@ -48,10 +73,88 @@ public class FdfsConnectionManager {
      * @return
      */
     public <T> T executeFdfsCmd(InetSocketAddress address, FdfsCommand<T> command) {
+        CommandSample sample = newSample(address, command);
         // 获取连接
-        Connection conn = getConnection(address);
+        Connection conn = getConnection(address, sample);
         // 执行交易
-        return execute(address, conn, command);
+        return execute(address, conn, command, sample);
+    }
+
+    /**
+     * 在同一连接上流水线执行多个命令
+     * <pre>
+     * 每次连续发送depth个请求后按顺序接收响应 窗口内的请求只需一次网络往返
+     * 仅适用于请求和响应都不含文件内容的命令
+     * 服务端错误码只记为对应文件失败 连接或IO异常时该文件及剩余文件均记为失败并移除连接
+     * </pre>
+     *
+     * @param address
+     * @param commands 文件及对应命令 按迭代顺序发送
+     * @param depth    窗口大小
+     * @param result   记录每个文件的结果
+     * @return 连接是否正常
+     */
+    public <T> boolean executePipelined(InetSocketAddress address,
+                                        Map<StorePath, ? extends AbstractFdfsCommand<T>> commands,
+                                        int depth, BatchResult<T> result) {
+        if (commands.isEmpty()) {
+            return true;
+        }
+        List<StorePath> paths = new ArrayList<>(commands.keySet());
+        List<AbstractFdfsCommand<T>> cmds = new ArrayList<>(commands.values());
+        int size = cmds.size();
+        CommandSample[] samples = new CommandSample[size];
+        samples[0] = newSample(address, cmds.get(0));
+        Connection conn;
+        try {
+            conn = getConnection(address, samples[0]);
+        } catch (RuntimeException e) {
+            paths.forEach(path -> result.fail(path, e));
+            return false;
+        }
+        int index = 0;
+        RuntimeException error = null;
+        try {
+            OutputStream out = new BufferedOutputStream(conn.getOutputStream(), DEFAULT_BUFFER_SIZE);
+            while (index < size) {
+                int end = Math.min(index + Math.max(depth, 1), size);
+                for (int i = index; i < end; i++) {
+                    if (samples[i] == null) {
+                        samples[i] = newSample(address, cmds.get(i));
+                    }
+                    cmds.get(i).sendRequest(out, conn, samples[i]);
+                }
+                out.flush();
+                for (; index < end; index++) {
+                    CommandSample sample = samples[index];
+                    try {
+                        result.success(paths.get(index), cmds.get(index).receiveResponse(conn, sample));
+                    } catch (FdfsServerException e) {
+                        sample.failed(e);
+                        result.fail(paths.get(index), e);
+                    }
+                    record(sample);
+                }
+            }
+        } catch (IOException e) {
+            error = new FdfsIOException("socket io exception occured while sending cmd", e);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        if (error == null) {
+            returnConnect(address, conn);
+            return true;
+        }
+        LOGGER.error("execute pipelined fdfs command error", error);
+        removeConnect(address, conn);
+        // 只有出错的命令计入指标 其余命令未执行完成
+        CommandSample sample = samples[index] != null ? samples[index] : newSample(address, cmds.get(index));
+        sample.failed(error);
+        record(sample);
+        for (int i = index; i < size; i++) {
+            result.fail(paths.get(i), error);
+        }
+        return false;
     }
 
     /**
@@ -62,14 +165,32 @@ public class FdfsConnectionManager {
      * @return
      */
     protected <T> T execute(InetSocketAddress address, Connection conn, FdfsCommand<T> command) throws FdfsException {
+        return execute(address, conn, command, newSample(address, command));
+    }
+
+    /**
+     * 执行交易 结束后记录指标
+     *
+     * @param address
+     * @param conn
+     * @param command
+     * @param sample
+     * @return
+     */
+    protected <T> T execute(InetSocketAddress address, Connection conn, FdfsCommand<T> command,
+                            CommandSample sample) throws FdfsException {
         boolean isException = false;
         try {
             // 执行交易
             LOGGER.debug("对地址{}发出交易请求{}", address, command.getClass().getSimpleName());
-            return command.execute(conn);
+            return command.execute(conn, sample);
         } catch (FdfsException e) {
             LOGGER.error("execute fdfs command error", e);
             isException = true;
+            sample.failed(e);
+            throw e;
+        } catch (RuntimeException e) {
+            sample.failed(e);
             throw e;
         } finally {
             if (isException) {
@@ -81,6 +202,44 @@ public class FdfsConnectionManager {
                 LOGGER.debug("return connect {}", conn);
                 returnConnect(address, conn);
             }
+            record(sample);
+        }
+    }
+
+    /**
+     * 创建指标样本
+     *
+     * @param address
+     * @param command
+     * @return
+     */
+    protected CommandSample newSample(InetSocketAddress address, FdfsCommand<?> command) {
+        return new CommandSample(command.getClass().getSimpleName(), address);
+    }
+
+    /**
+     * 记录指标 收集异常不影响交易
+     *
+     * @param sample
+     */
+    private void record(CommandSample sample) {
+        sample.finish();
+        CircuitBreakerRegistry breakers = this.circuitBreakers;
+        if (breakers != null) {
+            CircuitBreaker breaker = breakers.get(sample.getAddress());
+            // 服务端错误码说明storage正常响应 获取连接超时、本地IO等异常不计入
+            if (sample.isSuccess() || sample.getError() instanceof FdfsServerException) {
+                breaker.onSuccess(sample.getServerNanos());
+            } else if (CircuitBreaker.isFailure(sample.getError())) {
+                breaker.onFailure();
+            } else {
+                breaker.onIgnore();
+            }
+        }
+        try {
+            metrics.record(sample);
+        } catch (RuntimeException e) {
+            LOGGER.warn("record metrics error", e);
         }
     }
 
@@ -139,14 +298,64 @@ public class FdfsConnectionManager {
         return conn;
     }
 
-    public FdfsConnectionPool getPool() {
+    /**
+     * 获取连接 记录等待耗时 获取失败时记录指标
+     *
+     * @param address
+     * @param sample
+     * @return
+     */
+    protected Connection getConnection(InetSocketAddress address, CommandSample sample) {
+        CircuitBreakerRegistry breakers = this.circuitBreakers;
+        if (breakers != null && !breakers.get(address).tryAcquire()) {
+            throw new FdfsCircuitOpenException("circuit breaker of " + address + " is open");
+        }
+        try {
+            Connection conn = getConnection(address);
+            sample.borrowed();
+            return conn;
+        } catch (RuntimeException e) {
+            sample.borrowed();
+            sample.failed(e);
+            record(sample);
+            throw e;
+        }
+    }
+
+    public CircuitBreakerRegistry getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
+    /**
+     * 设置熔断器 为null时不熔断
+     *
+     * @param circuitBreakers
+     */
+    public void setCircuitBreakers(CircuitBreakerRegistry circuitBreakers) {
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    public ConnectionPool getPool() {
         return pool;
     }
 
-    public void setPool(FdfsConnectionPool pool) {
+    public void setPool(ConnectionPool pool) {
         this.pool = pool;
     }
 
+    public FdfsMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 设置指标收集
+     *
+     * @param metrics 为null时不收集
+     */
+    public void setMetrics(FdfsMetrics metrics) {
+        this.metrics = metrics == null ? FdfsMetrics.NOOP : metrics;
+    }
+
     /**
      * 打印连接池情况
      *
@@ -156,24 +365,52 @@ public class FdfsConnectionManager {
 
         LOGGER.debug("==============Begin Dump Pool Info==========");
         LOGGER.debug("Address={}", address);
-        LOGGER.debug("连接池最大连接数配置{}", pool.getMaxTotal());
-        LOGGER.debug("每个Key最大连接数配置{}", pool.getMaxTotalPerKey());
-        LOGGER.debug("每个key对应连接池最大空闲连接数{}", pool.getMaxIdlePerKey());
-        LOGGER.debug("每个key对应连接池最小空闲连接数{}", pool.getMinIdlePerKey());
         LOGGER.debug("活动连接{}", pool.getNumActive(address));
         LOGGER.debug("空闲连接{}", pool.getNumIdle(address));
-        LOGGER.debug("获取前测试连接状态{}", pool.getTestOnBorrow());
-        LOGGER.debug("归还前测试连接状态{}", pool.getTestOnReturn());
-        LOGGER.debug("空闲时测试连接状态{}", pool.getTestWhileIdle());
-        LOGGER.debug("连接获取总数统计{}", pool.getBorrowedCount());
-        LOGGER.debug("连接返回总数统计{}", pool.getReturnedCount());
-        LOGGER.debug("连接销毁总数统计{}", pool.getDestroyedCount());
-        LOGGER.debug("JmxName={}", pool.getJmxName());
+        if (pool instanceof GenericKeyedObjectPool) {
+            GenericKeyedObjectPool<?, ?> genericPool = (GenericKeyedObjectPool<?, ?>) pool;
+            LOGGER.debug("连接池最大连接数配置{}", genericPool.getMaxTotal());
+            LOGGER.debug("每个Key最大连接数配置{}", genericPool.getMaxTotalPerKey());
+            LOGGER.debug("每个key对应连接池最大空闲连接数{}", genericPool.getMaxIdlePerKey());
+            LOGGER.debug("每个key对应连接池最小空闲连接数{}", genericPool.getMinIdlePerKey());
+            LOGGER.debug("获取前测试连接状态{}", genericPool.getTestOnBorrow());
+            LOGGER.debug("归还前测试连接状态{}", genericPool.getTestOnReturn());
+            LOGGER.debug("空闲时测试连接状态{}", genericPool.getTestWhileIdle());
+            LOGGER.debug("连接获取总数统计{}", genericPool.getBorrowedCount());
+            LOGGER.debug("连接返回总数统计{}", genericPool.getReturnedCount());
+            LOGGER.debug("连接销毁总数统计{}", genericPool.getDestroyedCount());
+            LOGGER.debug("JmxName={}", genericPool.getJmxName());
+        } else {
+            LOGGER.debug("{}", pool);
+        }
         LOGGER.debug("==============END Dump Pool ================");
     }
 
+    /**
+     * 打印连接池整体和各地址连接情况以及命令执行指标
+     */
     public void dumpFullPoolInfo() {
-        //pool.get
+        LOGGER.info("==============Begin Dump Full Pool Info==========");
+        if (pool instanceof GenericKeyedObjectPool) {
+            GenericKeyedObjectPool<?, ?> genericPool = (GenericKeyedObjectPool<?, ?>) pool;
+            LOGGER.info("活动连接{} 空闲连接{} 等待获取连接线程{}", genericPool.getNumActive(), genericPool.getNumIdle(),
+                    genericPool.getNumWaiters());
+            LOGGER.info("连接获取总数{} 连接返回总数{} 连接创建总数{} 连接销毁总数{}", genericPool.getBorrowedCount(),
+                    genericPool.getReturnedCount(), genericPool.getCreatedCount(), genericPool.getDestroyedCount());
+            LOGGER.info("平均获取连接等待{}ms 最大获取连接等待{}ms", genericPool.getMeanBorrowWaitTimeMillis(),
+                    genericPool.getMaxBorrowWaitTimeMillis());
+            Map<String, Integer> waiters = genericPool.getNumWaitersByKey();
+            for (Map.Entry<String, Integer> entry : genericPool.getNumActivePerKey().entrySet()) {
+                LOGGER.info("Address={} 活动连接{} 等待获取连接线程{}", entry.getKey(), entry.getValue(),
+                        waiters.get(entry.getKey()));
+            }
+        } else {
+            LOGGER.info("{}", pool);
+        }
+        if (metrics != FdfsMetrics.NOOP) {
+            LOGGER.info("{}", metrics);
+        }
+        LOGGER.info("==============END Dump Full Pool ================");
     }
 
 }
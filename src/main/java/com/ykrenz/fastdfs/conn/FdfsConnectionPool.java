@@ -14,7 +14,7 @@ import java.net.InetSocketAddress;
  *
  * @author tobato
  */
-public class FdfsConnectionPool extends GenericKeyedObjectPool<InetSocketAddress, Connection> {
+public class FdfsConnectionPool extends GenericKeyedObjectPool<InetSocketAddress, Connection> implements ConnectionPool {
 
     private ConnectionConfiguration connection;
 
@@ -28,6 +28,7 @@ public class FdfsConnectionPool extends GenericKeyedObjectPool<InetSocketAddress
         this.connection = connection;
     }
 
+    @Override
     public ConnectionConfiguration getConnection() {
         return connection;
     }
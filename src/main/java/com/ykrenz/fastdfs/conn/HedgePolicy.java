@@ -0,0 +1,240 @@
+package com.ykrenz.fastdfs.conn;
+
+import com.ykrenz.fastdfs.exception.FdfsClientException;
+import com.ykrenz.fastdfs.exception.FdfsServerException;
+import com.ykrenz.fastdfs.metrics.LatencyHistogram;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 对冲请求
+ * <pre>
+ * 请求在首个storage上超过延迟仍未返回时 向另一storage发送相同请求 取先成功的结果
+ * 延迟为近期成功请求耗时的百分位 样本不足时使用最小延迟 不低于最小延迟
+ * 首个请求在延迟前失败(服务端错误码除外)时立即发送到另一storage 无另一storage时发送到failover
+ * 落后的请求不中断 在后台执行完成后归还连接 结果丢弃
+ * 对冲请求数不超过总请求数的{@value #MAX_HEDGE_PERCENT}% 避免整体变慢时放大负载
+ * 调用方线程只等待结果 请求都在executor中执行 executor不能是调用方所在的有界线程池 否则可能互相等待
+ * </pre>
+ *
+ * @author ykren
+ */
+public class HedgePolicy {
+
+    /**
+     * 计算百分位所需最少样本数
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    /**
+     * 每个统计窗口的样本数 超过后切换到新窗口
+     */
+    private static final int WINDOW_SAMPLES = 1000;
+
+    /**
+     * 对冲请求占比上限
+     */
+    private static final int MAX_HEDGE_PERCENT = 10;
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private volatile LatencyHistogram current = new LatencyHistogram();
+
+    private volatile LatencyHistogram previous;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder hedges = new LongAdder();
+
+    private final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * @param percentile     对冲延迟百分位 0-1
+     * @param minDelayMillis 最小延迟
+     */
+    public HedgePolicy(double percentile, long minDelayMillis) {
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+    }
+
+    /**
+     * 执行对冲请求 首个请求失败且无对冲storage时抛出异常
+     *
+     * @see #execute(Executor, InetSocketAddress, Supplier, Supplier, Function)
+     */
+    public <T> T execute(Executor executor, InetSocketAddress primary, Supplier<InetSocketAddress> backup,
+                         Function<InetSocketAddress, T> call) {
+        return execute(executor, primary, backup, null, call);
+    }
+
+    /**
+     * 执行对冲请求
+     *
+     * @param executor 执行请求的线程池 需要能同时执行两个请求
+     * @param primary  首选storage
+     * @param backup   获取对冲storage 无可用storage时返回null
+     * @param failover 首个请求失败且无对冲storage时获取重试的storage 可以为null
+     * @param call     在指定storage上执行请求 每次调用需使用新的命令
+     * @param <T>
+     * @return 先成功的结果
+     */
+    public <T> T execute(Executor executor, InetSocketAddress primary, Supplier<InetSocketAddress> backup,
+                         Supplier<InetSocketAddress> failover, Function<InetSocketAddress, T> call) {
+        requests.increment();
+        CompletionService<T> service = new ExecutorCompletionService<>(executor);
+        Future<T> first = service.submit(() -> timed(call, primary));
+        long deadline = System.nanoTime() + getDelayNanos();
+        int running = 1;
+        boolean hedged = false;
+        RuntimeException error = null;
+        try {
+            while (running > 0) {
+                Future<T> done = hedged ? service.take()
+                        : service.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    // 超过延迟仍未返回
+                    hedged = true;
+                    if (allowHedge()) {
+                        running += submitHedge(service, primary, backup, call);
+                    }
+                    continue;
+                }
+                running--;
+                try {
+                    T result = done.get();
+                    if (done != first) {
+                        hedgeWins.increment();
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    RuntimeException cause = unwrap(e);
+                    if (cause instanceof FdfsServerException) {
+                        throw cause;
+                    }
+                    if (error == null) {
+                        error = cause;
+                    }
+                    if (!hedged) {
+                        // 首个请求在延迟前失败 立即发送到另一storage
+                        hedged = true;
+                        running += submitHedge(service, primary, backup, call);
+                        if (running == 0) {
+                            running += submitFailover(service, failover, call, error);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FdfsClientException("hedged request interrupted", e);
+        }
+        throw error;
+    }
+
+    private <T> int submitHedge(CompletionService<T> service, InetSocketAddress primary,
+                                Supplier<InetSocketAddress> backup, Function<InetSocketAddress, T> call) {
+        InetSocketAddress address = backup.get();
+        if (address == null || address.equals(primary)) {
+            return 0;
+        }
+        hedges.increment();
+        service.submit(() -> timed(call, address));
+        return 1;
+    }
+
+    private <T> int submitFailover(CompletionService<T> service, Supplier<InetSocketAddress> failover,
+                                   Function<InetSocketAddress, T> call, RuntimeException error) {
+        if (failover == null) {
+            return 0;
+        }
+        InetSocketAddress address;
+        try {
+            address = failover.get();
+        } catch (RuntimeException e) {
+            error.addSuppressed(e);
+            return 0;
+        }
+        if (address == null) {
+            return 0;
+        }
+        service.submit(() -> timed(call, address));
+        return 1;
+    }
+
+    private <T> T timed(Function<InetSocketAddress, T> call, InetSocketAddress address) {
+        long start = System.nanoTime();
+        T result = call.apply(address);
+        record(System.nanoTime() - start);
+        return result;
+    }
+
+    private RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof RuntimeException ? (RuntimeException) cause
+                : new FdfsClientException("hedged request error", cause);
+    }
+
+    private boolean allowHedge() {
+        return hedges.sum() * 100 < requests.sum() * MAX_HEDGE_PERCENT;
+    }
+
+    /**
+     * 记录成功请求耗时
+     *
+     * @param nanos
+     */
+    private void record(long nanos) {
+        LatencyHistogram histogram = current;
+        histogram.record(nanos);
+        if (histogram.getCount() >= WINDOW_SAMPLES) {
+            synchronized (this) {
+                if (current == histogram) {
+                    previous = histogram;
+                    current = new LatencyHistogram();
+                }
+            }
+        }
+    }
+
+    /**
+     * 当前对冲延迟
+     *
+     * @return 纳秒
+     */
+    public long getDelayNanos() {
+        LatencyHistogram histogram = current;
+        if (histogram.getCount() < MIN_SAMPLES) {
+            histogram = previous;
+        }
+        if (histogram == null || histogram.getCount() < MIN_SAMPLES) {
+            return minDelayNanos;
+        }
+        return Math.max(minDelayNanos, TimeUnit.MICROSECONDS.toNanos(histogram.getPercentileMicros(percentile)));
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return 对冲请求先返回的次数
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+}
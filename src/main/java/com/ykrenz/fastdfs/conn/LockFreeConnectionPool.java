@@ -0,0 +1,454 @@
+package com.ykrenz.fastdfs.conn;
+
+import com.ykrenz.fastdfs.common.NamedThreadFactory;
+import com.ykrenz.fastdfs.config.ConnectionConfiguration;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁连接池
+ * <pre>
+ * 每个地址一个无锁空闲栈(后进先出 优先复用最近归还的连接)和一个信号量
+ * 信号量许可数为maxTotalPerKey 借出时获取 归还或销毁时释放 许可不足时按maxWaitMillis等待
+ * 空闲连接数不超过maxIdlePerKey 超出时归还的连接直接关闭
+ * 只有配置了maxTotal(大于0)时才有全局计数
+ * 借还不创建PooledObject 不加锁 统计使用LongAdder
+ *
+ * 与{@link FdfsConnectionPool}的差异:
+ * 1.借出连接不做归属校验 同一连接不能重复归还
+ * 2.空闲检测按timeBetweenEvictionRunsMillis运行 只关闭超过minEvictableIdleTimeMillis且超出minIdlePerKey的连接
+ *   之后为已使用过的地址补足minIdlePerKey
+ * testOnBorrow和testWhileIdle时只校验空闲超过validateAfterIdleMillis的连接 新建连接不校验
+ * </pre>
+ *
+ * @author ykren
+ */
+public class LockFreeConnectionPool implements ConnectionPool {
+
+    /**
+     * 日志
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockFreeConnectionPool.class);
+
+    private final ConnectionConfiguration connection;
+
+    private final PooledConnectionFactory factory;
+
+    private final ConcurrentMap<InetSocketAddress, KeyedConnections> pools = new ConcurrentHashMap<>();
+
+    /**
+     * 全局借出许可 maxTotal不大于0时为null
+     */
+    private final Semaphore totalPermits;
+
+    private final int maxTotalPerKey;
+
+    private final int maxIdlePerKey;
+
+    private final int minIdlePerKey;
+
+    private final long maxWaitMillis;
+
+    private final boolean blockWhenExhausted;
+
+    private final boolean testOnBorrow;
+
+    private final boolean testOnReturn;
+
+    private final boolean testWhileIdle;
+
+    private final long minEvictableIdleTimeMillis;
+
+    private final long validateAfterIdleMillis;
+
+    private final ScheduledExecutorService evictor;
+
+    private volatile boolean closed;
+
+    private final LongAdder borrowedCount = new LongAdder();
+
+    private final LongAdder returnedCount = new LongAdder();
+
+    private final LongAdder createdCount = new LongAdder();
+
+    private final LongAdder destroyedCount = new LongAdder();
+
+    public LockFreeConnectionPool(ConnectionConfiguration connection) {
+        this.connection = connection;
+        this.factory = new PooledConnectionFactory(connection);
+        GenericKeyedObjectPoolConfig config = connection.getPool();
+        this.totalPermits = config.getMaxTotal() > 0 ? new Semaphore(config.getMaxTotal()) : null;
+        this.maxTotalPerKey = config.getMaxTotalPerKey() > 0 ? config.getMaxTotalPerKey() : Integer.MAX_VALUE;
+        this.maxIdlePerKey = config.getMaxIdlePerKey() >= 0 ? config.getMaxIdlePerKey() : Integer.MAX_VALUE;
+        this.minIdlePerKey = Math.max(0, config.getMinIdlePerKey());
+        this.maxWaitMillis = config.getMaxWaitMillis();
+        this.blockWhenExhausted = config.getBlockWhenExhausted();
+        this.testOnBorrow = config.getTestOnBorrow();
+        this.testOnReturn = config.getTestOnReturn();
+        this.testWhileIdle = config.getTestWhileIdle();
+        this.minEvictableIdleTimeMillis = config.getMinEvictableIdleTimeMillis();
+        this.validateAfterIdleMillis = connection.getValidateAfterIdleMillis();
+        long evictPeriod = config.getTimeBetweenEvictionRunsMillis();
+        if (evictPeriod > 0) {
+            this.evictor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("fastdfs-pool-evictor"));
+            this.evictor.scheduleWithFixedDelay(this::evict, evictPeriod, evictPeriod, TimeUnit.MILLISECONDS);
+        } else {
+            this.evictor = null;
+        }
+    }
+
+    @Override
+    public ConnectionConfiguration getConnection() {
+        return connection;
+    }
+
+    @Override
+    public Connection borrowObject(InetSocketAddress key) throws Exception {
+        assertOpen();
+        KeyedConnections connections = connectionsOf(key);
+        acquire(connections.permits);
+        if (totalPermits != null) {
+            try {
+                acquire(totalPermits);
+            } catch (Exception e) {
+                connections.permits.release();
+                throw e;
+            }
+        }
+        try {
+            Connection conn = pollIdle(connections);
+            if (conn == null) {
+                conn = factory.create(key);
+                createdCount.increment();
+            }
+            borrowedCount.increment();
+            return conn;
+        } catch (RuntimeException e) {
+            releasePermits(connections);
+            throw e;
+        }
+    }
+
+    /**
+     * 从空闲栈取出连接 testOnBorrow时校验空闲超过validateAfterIdleMillis的连接 丢弃不可用的连接
+     *
+     * @param connections
+     * @return 没有可用空闲连接时返回null
+     */
+    private Connection pollIdle(KeyedConnections connections) {
+        IdleConnection idle;
+        while ((idle = connections.idle.pollFirst()) != null) {
+            connections.idleCount.decrementAndGet();
+            if (!testOnBorrow || !needValidate(idle, System.currentTimeMillis()) || validate(idle.connection)) {
+                return idle.connection;
+            }
+            destroy(idle.connection);
+        }
+        return null;
+    }
+
+    private void acquire(Semaphore permits) throws InterruptedException {
+        if (!blockWhenExhausted) {
+            if (!permits.tryAcquire()) {
+                throw new NoSuchElementException("Pool exhausted");
+            }
+        } else if (maxWaitMillis < 0) {
+            permits.acquire();
+        } else if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+            throw new NoSuchElementException("Timeout waiting for idle object");
+        }
+    }
+
+    private void releasePermits(KeyedConnections connections) {
+        connections.permits.release();
+        if (totalPermits != null) {
+            totalPermits.release();
+        }
+    }
+
+    @Override
+    public void returnObject(InetSocketAddress key, Connection conn) {
+        KeyedConnections connections = pools.get(key);
+        if (connections == null) {
+            destroy(conn);
+            return;
+        }
+        returnedCount.increment();
+        try {
+            if (closed || conn.isClosed() || (testOnReturn && !validate(conn))) {
+                destroy(conn);
+            } else if (connections.idleCount.incrementAndGet() > maxIdlePerKey) {
+                connections.idleCount.decrementAndGet();
+                destroy(conn);
+            } else {
+                connections.idle.offerFirst(new IdleConnection(conn, System.currentTimeMillis()));
+                if (closed) {
+                    clear(key);
+                }
+            }
+        } finally {
+            releasePermits(connections);
+        }
+    }
+
+    @Override
+    public void invalidateObject(InetSocketAddress key, Connection conn) {
+        destroy(conn);
+        KeyedConnections connections = pools.get(key);
+        if (connections != null) {
+            releasePermits(connections);
+        }
+    }
+
+    /**
+     * 新建一个空闲连接
+     *
+     * @param key
+     */
+    @Override
+    public void addObject(InetSocketAddress key) {
+        assertOpen();
+        KeyedConnections connections = connectionsOf(key);
+        Connection conn = factory.create(key);
+        createdCount.increment();
+        if (connections.idleCount.incrementAndGet() > maxIdlePerKey) {
+            connections.idleCount.decrementAndGet();
+            destroy(conn);
+            return;
+        }
+        connections.idle.offerFirst(new IdleConnection(conn, System.currentTimeMillis()));
+    }
+
+    @Override
+    public int getNumIdle(InetSocketAddress key) {
+        KeyedConnections connections = pools.get(key);
+        return connections == null ? 0 : connections.idleCount.get();
+    }
+
+    @Override
+    public int getNumActive(InetSocketAddress key) {
+        KeyedConnections connections = pools.get(key);
+        return connections == null ? 0 : maxTotalPerKey - connections.permits.availablePermits();
+    }
+
+    @Override
+    public int getNumIdle() {
+        int count = 0;
+        for (KeyedConnections connections : pools.values()) {
+            count += connections.idleCount.get();
+        }
+        return count;
+    }
+
+    @Override
+    public int getNumActive() {
+        int count = 0;
+        for (KeyedConnections connections : pools.values()) {
+            count += maxTotalPerKey - connections.permits.availablePermits();
+        }
+        return count;
+    }
+
+    /**
+     * 等待获取连接的线程数
+     *
+     * @param key
+     * @return
+     */
+    public int getNumWaiters(InetSocketAddress key) {
+        KeyedConnections connections = pools.get(key);
+        return connections == null ? 0 : connections.permits.getQueueLength();
+    }
+
+    @Override
+    public void clear() {
+        for (InetSocketAddress key : pools.keySet()) {
+            clear(key);
+        }
+    }
+
+    @Override
+    public void clear(InetSocketAddress key) {
+        KeyedConnections connections = pools.get(key);
+        if (connections == null) {
+            return;
+        }
+        IdleConnection idle;
+        while ((idle = connections.idle.pollFirst()) != null) {
+            connections.idleCount.decrementAndGet();
+            destroy(idle.connection);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        clear();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 关闭空闲超时的连接 testWhileIdle时校验其余空闲超过validateAfterIdleMillis的连接 作为保活
+     * <pre>
+     * 从栈底(最早归还)向栈顶扫描 先从栈中移除再处理 避免与借出线程竞争同一连接
+     * 保留的连接放回栈底 保持原空闲时间
+     * </pre>
+     */
+    void evict() {
+        long now = System.currentTimeMillis();
+        for (KeyedConnections connections : pools.values()) {
+            Iterator<IdleConnection> iterator = connections.idle.descendingIterator();
+            while (iterator.hasNext() && !closed) {
+                IdleConnection idle = iterator.next();
+                boolean expired = minEvictableIdleTimeMillis > 0
+                        && now - idle.idleSince > minEvictableIdleTimeMillis
+                        && connections.idleCount.get() > minIdlePerKey;
+                if (!expired && (!testWhileIdle || !needValidate(idle, now))) {
+                    // 之后的连接空闲时间更短
+                    break;
+                }
+                if (!connections.idle.remove(idle)) {
+                    // 已被借出
+                    continue;
+                }
+                connections.idleCount.decrementAndGet();
+                if (expired || !validate(idle.connection)) {
+                    destroy(idle.connection);
+                } else {
+                    connections.idleCount.incrementAndGet();
+                    connections.idle.offerLast(idle);
+                }
+            }
+        }
+        ensureMinIdle();
+    }
+
+    /**
+     * 为已使用过的地址补足minIdlePerKey个连接
+     */
+    private void ensureMinIdle() {
+        for (InetSocketAddress key : pools.keySet()) {
+            int missing = minIdlePerKey - getNumIdle(key) - getNumActive(key);
+            try {
+                for (int i = 0; i < missing && !closed; i++) {
+                    addObject(key);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.debug("ensure min idle connection to {} error", key, e);
+            }
+        }
+    }
+
+    private KeyedConnections connectionsOf(InetSocketAddress key) {
+        KeyedConnections connections = pools.get(key);
+        if (connections == null) {
+            connections = pools.computeIfAbsent(key, k -> new KeyedConnections(maxTotalPerKey));
+        }
+        return connections;
+    }
+
+    private boolean needValidate(IdleConnection idle, long now) {
+        return now - idle.idleSince >= validateAfterIdleMillis || idle.connection.isClosed();
+    }
+
+    private boolean validate(Connection conn) {
+        try {
+            return conn.isValid();
+        } catch (RuntimeException e) {
+            LOGGER.debug("validate connection error", e);
+            return false;
+        }
+    }
+
+    private void destroy(Connection conn) {
+        destroyedCount.increment();
+        try {
+            conn.close();
+        } catch (RuntimeException e) {
+            LOGGER.debug("close connection error", e);
+        }
+    }
+
+    private void assertOpen() {
+        if (closed) {
+            throw new IllegalStateException("Pool not open");
+        }
+    }
+
+    public long getBorrowedCount() {
+        return borrowedCount.sum();
+    }
+
+    public long getReturnedCount() {
+        return returnedCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "LockFreeConnectionPool [numActive=" + getNumActive() + ", numIdle=" + getNumIdle()
+                + ", borrowedCount=" + getBorrowedCount() + ", returnedCount=" + getReturnedCount()
+                + ", createdCount=" + getCreatedCount() + ", destroyedCount=" + getDestroyedCount() + "]";
+    }
+
+    /**
+     * 单个地址的空闲连接和借出许可
+     */
+    private static final class KeyedConnections {
+
+        private final Semaphore permits;
+
+        private final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        KeyedConnections(int maxTotalPerKey) {
+            this.permits = new Semaphore(maxTotalPerKey);
+        }
+    }
+
+    /**
+     * 空闲连接及开始空闲时间
+     */
+    private static final class IdleConnection {
+
+        private final Connection connection;
+
+        private final long idleSince;
+
+        IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+}
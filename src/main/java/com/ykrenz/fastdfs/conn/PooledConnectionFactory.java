@@ -31,11 +31,21 @@ public class PooledConnectionFactory extends BaseKeyedPooledObjectFactory<InetSo
      * 字符集
      */
     private Charset charset;
+    /**
+     * 是否使用SocketChannel连接
+     */
+    private boolean nio;
+    /**
+     * 空闲超过该时长才检测连接
+     */
+    private long validateAfterIdleMillis;
 
     public PooledConnectionFactory(ConnectionConfiguration connection) {
         this.soTimeout = connection.getSocketTimeout();
         this.connectTimeout = connection.getConnectTimeout();
         this.charset = connection.getCharset() == null ? StandardCharsets.UTF_8 : Charset.forName(connection.getCharset());
+        this.nio = connection.isNio();
+        this.validateAfterIdleMillis = connection.getValidateAfterIdleMillis();
     }
 
     /**
@@ -43,6 +53,9 @@ public class PooledConnectionFactory extends BaseKeyedPooledObjectFactory<InetSo
      */
     @Override
     public Connection create(InetSocketAddress address) {
+        if (nio) {
+            return new SocketChannelConnection(address, soTimeout, connectTimeout, charset);
+        }
         return new DefaultConnection(address, soTimeout, connectTimeout, charset);
     }
 
@@ -78,6 +91,22 @@ public class PooledConnectionFactory extends BaseKeyedPooledObjectFactory<InetSo
         this.charset = charset;
     }
 
+    public boolean isNio() {
+        return nio;
+    }
+
+    public void setNio(boolean nio) {
+        this.nio = nio;
+    }
+
+    public long getValidateAfterIdleMillis() {
+        return validateAfterIdleMillis;
+    }
+
+    public void setValidateAfterIdleMillis(long validateAfterIdleMillis) {
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+    }
+
     /**
      * 从池中移出
      *
@@ -91,12 +120,19 @@ public class PooledConnectionFactory extends BaseKeyedPooledObjectFactory<InetSo
 
     /***
      * 验证池中对象是否可用
+     * <pre>
+     * 距上次归还不足validateAfterIdleMillis的连接视为可用 不发送ACTIVE_TEST
+     * 新建连接同样视为可用 执行命令时出现异常会从池中移除
+     * </pre>
      * @param key
      * @param p
      * @return
      */
     @Override
     public boolean validateObject(InetSocketAddress key, PooledObject<Connection> p) {
+        if (p.getIdleTimeMillis() < validateAfterIdleMillis) {
+            return !p.getObject().isClosed();
+        }
         return p.getObject().isValid();
     }
 
@@ -0,0 +1,111 @@
+package com.ykrenz.fastdfs.conn;
+
+import com.ykrenz.fastdfs.exception.FdfsConnectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+
+/**
+ * 基于NIO SocketChannel的连接实现
+ * <pre>
+ * channel工作在阻塞模式下 输入输出流与{@link DefaultConnection}行为一致(读取仍受soTimeout控制)
+ * 同时对外暴露SocketChannel 便于文件上传下载直接在channel上传输
+ * 注意: 直接在channel上读取时不受soTimeout控制 应通过{@link ChannelInputStream#openReadChannel()}读取
+ * </pre>
+ *
+ * @author ykren
+ */
+public class SocketChannelConnection extends DefaultConnection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SocketChannelConnection.class);
+
+    /**
+     * 封装channel
+     */
+    private final SocketChannel channel;
+
+    /**
+     * 输入流
+     */
+    private final ChannelInputStream inputStream;
+
+    /**
+     * 输出流
+     */
+    private final ChannelOutputStream outputStream;
+
+    /**
+     * 创建与服务端连接
+     *
+     * @param address
+     * @param soTimeout
+     * @param connectTimeout
+     * @param charset
+     */
+    public SocketChannelConnection(InetSocketAddress address, int soTimeout, int connectTimeout, Charset charset) {
+        super(openSocket(address), address, soTimeout, connectTimeout, charset);
+        try {
+            Socket socket = getSocket();
+            this.channel = socket.getChannel();
+            this.inputStream = new ChannelInputStream(socket.getInputStream(), channel);
+            this.outputStream = new ChannelOutputStream(socket.getOutputStream(), channel);
+        } catch (IOException e) {
+            closeQuietly();
+            throw new FdfsConnectException("can't create connection to" + address, e);
+        }
+    }
+
+    /**
+     * 打开阻塞模式的SocketChannel
+     *
+     * @param address
+     * @return
+     */
+    private static Socket openSocket(InetSocketAddress address) {
+        try {
+            return SocketChannel.open().socket();
+        } catch (IOException e) {
+            throw new FdfsConnectException("can't open socket channel to" + address, e);
+        }
+    }
+
+    @Override
+    protected void closeQuietly() {
+        // 父类构造失败时输入流尚未创建
+        if (inputStream != null) {
+            try {
+                inputStream.closeSelector();
+            } catch (IOException e) {
+                LOGGER.debug("I/O error closing selector", e);
+            }
+        }
+        super.closeQuietly();
+    }
+
+    /**
+     * 获取SocketChannel
+     *
+     * @return
+     */
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return outputStream;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return inputStream;
+    }
+
+}
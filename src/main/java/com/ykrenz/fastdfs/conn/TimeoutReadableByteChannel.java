@@ -0,0 +1,103 @@
+package com.ykrenz.fastdfs.conn;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 受读取超时控制的SocketChannel读取
+ * <pre>
+ * 阻塞模式的SocketChannel直接读取时不受soTimeout控制
+ * 这里将channel切换为非阻塞模式 通过连接持有的Selector等待数据 超过timeout未收到数据时抛出SocketTimeoutException
+ * 关闭时从Selector注销并恢复阻塞模式 不关闭底层channel和Selector
+ * </pre>
+ *
+ * @author ykren
+ */
+public class TimeoutReadableByteChannel implements ReadableByteChannel {
+
+    private final SocketChannel channel;
+
+    private final Selector selector;
+
+    private final long timeoutMillis;
+
+    private final SelectionKey key;
+
+    private boolean open = true;
+
+    /**
+     * @param channel
+     * @param selector      连接持有的Selector 同一时间只注册一个channel
+     * @param timeoutMillis 0为不超时
+     * @throws IOException
+     */
+    public TimeoutReadableByteChannel(SocketChannel channel, Selector selector, long timeoutMillis)
+            throws IOException {
+        this.channel = channel;
+        this.selector = selector;
+        this.timeoutMillis = timeoutMillis;
+        channel.configureBlocking(false);
+        try {
+            this.key = channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.configureBlocking(true);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            int n = channel.read(dst);
+            if (n != 0) {
+                return n;
+            }
+            long waitMillis = 0;
+            if (timeoutMillis > 0) {
+                waitMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (waitMillis <= 0) {
+                    throw new SocketTimeoutException("read timed out after " + timeoutMillis + "ms");
+                }
+            }
+            selector.select(waitMillis);
+            selector.selectedKeys().clear();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && channel.isOpen();
+    }
+
+    /**
+     * 注销并恢复阻塞模式 注销在下一次select时生效 这里立即执行一次selectNow
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        key.cancel();
+        selector.selectNow();
+        if (channel.isOpen()) {
+            channel.configureBlocking(true);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.ykrenz.fastdfs.conn;
 
+import com.ykrenz.fastdfs.config.ConnectionConfiguration;
 import com.ykrenz.fastdfs.exception.FdfsClientException;
 import com.ykrenz.fastdfs.exception.FdfsException;
 import com.ykrenz.fastdfs.exception.FdfsUnavailableException;
+import com.ykrenz.fastdfs.metrics.CommandSample;
+import com.ykrenz.fastdfs.model.fdfs.TrackerAddressHolder;
 import com.ykrenz.fastdfs.model.fdfs.TrackerLocator;
 import com.ykrenz.fastdfs.model.proto.FdfsCommand;
 
@@ -21,13 +24,26 @@ public class TrackerConnectionManager extends FdfsConnectionManager {
      */
     private TrackerLocator trackerLocator;
 
+    /**
+     * 后台健康检查 未开启时为null
+     */
+    private TrackerHealthChecker healthChecker;
+
     /**
      * 构造函数
      */
-    public TrackerConnectionManager(List<String> trackerServers, FdfsConnectionPool pool) {
+    public TrackerConnectionManager(List<String> trackerServers, ConnectionPool pool) {
         super(pool);
+        ConnectionConfiguration connection = pool.getConnection();
         this.trackerLocator = new TrackerLocator(trackerServers);
-        this.trackerLocator.setRetryAfterSecond(pool.getConnection().getRetryAfterSecond());
+        this.trackerLocator.setRetryAfterSecond(connection.getRetryAfterSecond());
+        if (connection.isHealthCheckEnabled()) {
+            this.healthChecker = new TrackerHealthChecker(this::getTrackerLocator,
+                    new PooledConnectionFactory(connection), connection.getHealthCheckIntervalMillis(),
+                    connection.getHealthCheckMaxBackoffMillis());
+            this.trackerLocator.setHealthChecked(true);
+            this.healthChecker.start();
+        }
     }
 
     public TrackerLocator getTrackerLocator() {
@@ -36,6 +52,23 @@ public class TrackerConnectionManager extends FdfsConnectionManager {
 
     public void setTrackerLocator(TrackerLocator trackerLocator) {
         this.trackerLocator = trackerLocator;
+        if (healthChecker != null) {
+            trackerLocator.setHealthChecked(true);
+        }
+    }
+
+    public TrackerHealthChecker getHealthChecker() {
+        return healthChecker;
+    }
+
+    /**
+     * 停止健康检查并关闭连接池
+     */
+    public void shutdown() {
+        if (healthChecker != null) {
+            healthChecker.shutdown();
+        }
+        getPool().close();
     }
 
     /**
@@ -45,23 +78,29 @@ public class TrackerConnectionManager extends FdfsConnectionManager {
      * @return
      */
     public <T> T executeFdfsTrackerCmd(FdfsCommand<T> command) {
-        InetSocketAddress address = null;
         while (true) {
+            TrackerAddressHolder holder = trackerLocator.selectTracker();
+            InetSocketAddress address = holder.getAddress();
+            LOGGER.debug("获取到Tracker连接地址{}", address);
+            // 记录耗时和进行中的请求数 用于选择tracker
+            holder.requestStarted();
+            long start = System.nanoTime();
             try {
                 // 获取连接
-                address = trackerLocator.getTrackerAddress();
-                LOGGER.debug("获取到Tracker连接地址{}", address);
-                Connection conn = getConnection(address);
-                trackerLocator.setActive(address);
+                CommandSample sample = newSample(address, command);
+                Connection conn = getConnection(address, sample);
+                holder.setActive();
                 // 执行交易
-                return execute(address, conn, command);
+                return execute(address, conn, command, sample);
             } catch (FdfsUnavailableException e) {
                 throw e;
             } catch (FdfsException e) {
                 LOGGER.error("execute tracker cmd error", e);
-                trackerLocator.setInActive(address);
+                holder.setInActive();
             } catch (Exception e) {
                 throw new FdfsClientException("execute cmd error", e);
+            } finally {
+                holder.requestFinished(System.nanoTime() - start);
             }
         }
     }
@@ -0,0 +1,225 @@
+package com.ykrenz.fastdfs.conn;
+
+import com.ykrenz.fastdfs.common.NamedThreadFactory;
+import com.ykrenz.fastdfs.model.fdfs.TrackerAddressHolder;
+import com.ykrenz.fastdfs.model.fdfs.TrackerLocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * tracker后台健康检查
+ * <pre>
+ * 定时新建连接发送ACTIVE_TEST 提前标记tracker可用或不可用 开启后不可用的tracker只由健康检查恢复
+ * 请求不再选择已知不可用的tracker 不用等待连接超时
+ * 检查失败后按指数退避重试 退避时长在[delay/2, delay]之间随机 避免多个客户端同时探测恢复中的tracker
+ * 每个tracker同一时间只有一个探测
+ * </pre>
+ *
+ * @author ykren
+ */
+public class TrackerHealthChecker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrackerHealthChecker.class);
+
+    /**
+     * 退避最多翻倍次数
+     */
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    private final Supplier<TrackerLocator> trackerLocator;
+
+    private final PooledConnectionFactory factory;
+
+    private final long intervalMillis;
+
+    private final long maxBackoffMillis;
+
+    private final Map<InetSocketAddress, ProbeState> states = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private ExecutorService probeExecutor;
+
+    public TrackerHealthChecker(Supplier<TrackerLocator> trackerLocator, PooledConnectionFactory factory,
+                                long intervalMillis, long maxBackoffMillis) {
+        this.trackerLocator = trackerLocator;
+        this.factory = factory;
+        this.intervalMillis = intervalMillis;
+        this.maxBackoffMillis = Math.max(intervalMillis, maxBackoffMillis);
+    }
+
+    /**
+     * 启动定时检查
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        probeExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("fastdfs-tracker-probe"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("fastdfs-tracker-health"));
+        scheduler.scheduleWithFixedDelay(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止定时检查
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            probeExecutor.shutdownNow();
+            scheduler = null;
+            probeExecutor = null;
+        }
+    }
+
+    /**
+     * 提交到期的探测
+     */
+    private void tick() {
+        try {
+            long now = System.nanoTime();
+            ExecutorService executor = probeExecutor;
+            for (TrackerAddressHolder holder : holders()) {
+                ProbeState state = stateOf(holder);
+                if (now - state.nextProbeNanos >= 0 && state.running.compareAndSet(false, true)) {
+                    executor.execute(() -> probe(holder, state));
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("tracker health check error", e);
+        }
+    }
+
+    /**
+     * 立即并行检查全部tracker 等待检查完成
+     *
+     * @return 可用的tracker数
+     */
+    public int checkNow() {
+        List<Future<Boolean>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newCachedThreadPool(new NamedThreadFactory("fastdfs-tracker-probe"));
+        try {
+            int available = 0;
+            for (TrackerAddressHolder holder : holders()) {
+                ProbeState state = stateOf(holder);
+                if (state.running.compareAndSet(false, true)) {
+                    futures.add(executor.submit(() -> probe(holder, state)));
+                } else if (holder.isAvailable()) {
+                    // 正在后台探测 取当前状态
+                    available++;
+                }
+            }
+            for (Future<Boolean> future : futures) {
+                if (future.get()) {
+                    available++;
+                }
+            }
+            return available;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<TrackerAddressHolder> holders() {
+        List<TrackerAddressHolder> holders = trackerLocator.get().getTrackerAddressHolders();
+        // 清理已移除tracker的状态
+        Set<InetSocketAddress> addresses = new HashSet<>();
+        for (TrackerAddressHolder holder : holders) {
+            addresses.add(holder.getAddress());
+        }
+        states.keySet().retainAll(addresses);
+        return holders;
+    }
+
+    private ProbeState stateOf(TrackerAddressHolder holder) {
+        return states.computeIfAbsent(holder.getAddress(), k -> new ProbeState());
+    }
+
+    /**
+     * 探测tracker并更新状态
+     */
+    private boolean probe(TrackerAddressHolder holder, ProbeState state) {
+        try {
+            boolean healthy = isHealthy(holder.getAddress());
+            if (healthy) {
+                if (!holder.isAvailable()) {
+                    LOGGER.info("tracker {} recovered", holder.getAddress());
+                }
+                holder.setActive();
+                state.failures = 0;
+                state.nextProbeNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            } else {
+                if (holder.isAvailable()) {
+                    LOGGER.warn("tracker {} is unavailable", holder.getAddress());
+                }
+                holder.setInActive();
+                state.failures++;
+                state.nextProbeNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis(state.failures));
+            }
+            return healthy;
+        } finally {
+            state.running.set(false);
+        }
+    }
+
+    private boolean isHealthy(InetSocketAddress address) {
+        Connection conn = null;
+        try {
+            conn = factory.create(address);
+            return conn.isValid();
+        } catch (Exception e) {
+            LOGGER.debug("probe tracker {} error", address, e);
+            return false;
+        } finally {
+            if (conn != null) {
+                conn.close();
+            }
+        }
+    }
+
+    /**
+     * 第n次失败后的退避时长
+     *
+     * @param failures 连续失败次数
+     * @return 毫秒
+     */
+    long backoffMillis(int failures) {
+        long delay = Math.min(maxBackoffMillis, intervalMillis << Math.min(failures - 1, MAX_BACKOFF_SHIFT));
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    /**
+     * 单个tracker的探测状态
+     */
+    private static class ProbeState {
+        /**
+         * 同一tracker只允许一个探测
+         */
+        final AtomicBoolean running = new AtomicBoolean();
+        volatile int failures;
+        volatile long nextProbeNanos = System.nanoTime();
+    }
+}
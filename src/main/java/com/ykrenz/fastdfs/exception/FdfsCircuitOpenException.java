@@ -0,0 +1,24 @@
+package com.ykrenz.fastdfs.exception;
+
+/**
+ * storage已熔断 请求未发送
+ * <p>
+ * 继承{@link FdfsConnectException} 调用方按无法连接处理 可重新路由到其他storage
+ *
+ * @author ykren
+ */
+public class FdfsCircuitOpenException extends FdfsConnectException {
+
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message
+     */
+    public FdfsCircuitOpenException(String message) {
+        super(message, null);
+    }
+
+}
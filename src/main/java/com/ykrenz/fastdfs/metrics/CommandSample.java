@@ -0,0 +1,159 @@
+package com.ykrenz.fastdfs.metrics;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 单次命令执行的耗时和流量
+ * <pre>
+ * 由连接管理器创建 依次记录:
+ * borrow  从连接池获取连接
+ * send    发送报文头、参数和文件内容
+ * server  发送完成到收到响应报文头 即服务端处理时间
+ * receive 接收并解析响应报文体
+ * 同一连接上执行多个请求的命令各阶段累加
+ * </pre>
+ *
+ * @author ykren
+ */
+public class CommandSample {
+
+    private final String command;
+
+    private final InetSocketAddress address;
+
+    private final long startNanos;
+
+    private long markNanos;
+
+    private long borrowNanos;
+
+    private long sendNanos;
+
+    private long serverNanos;
+
+    private long receiveNanos;
+
+    private long totalNanos;
+
+    private long bytesOut;
+
+    private long bytesIn;
+
+    private Throwable error;
+
+    public CommandSample(String command, InetSocketAddress address) {
+        this.command = command;
+        this.address = address;
+        this.startNanos = System.nanoTime();
+        this.markNanos = startNanos;
+    }
+
+    private long lap() {
+        long now = System.nanoTime();
+        long elapsed = now - markNanos;
+        markNanos = now;
+        return elapsed;
+    }
+
+    /**
+     * 已获取连接
+     */
+    public void borrowed() {
+        borrowNanos += lap();
+    }
+
+    /**
+     * 请求发送完成
+     *
+     * @param bytes 发送字节数
+     */
+    public void sent(long bytes) {
+        sendNanos += lap();
+        bytesOut += bytes;
+    }
+
+    /**
+     * 收到响应报文头
+     */
+    public void responded() {
+        serverNanos += lap();
+    }
+
+    /**
+     * 响应接收完成
+     *
+     * @param bytes 接收字节数
+     */
+    public void received(long bytes) {
+        receiveNanos += lap();
+        bytesIn += bytes;
+    }
+
+    /**
+     * 执行失败
+     *
+     * @param error
+     */
+    public void failed(Throwable error) {
+        this.error = error;
+    }
+
+    /**
+     * 执行结束
+     */
+    public void finish() {
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public long getBorrowNanos() {
+        return borrowNanos;
+    }
+
+    public long getSendNanos() {
+        return sendNanos;
+    }
+
+    public long getServerNanos() {
+        return serverNanos;
+    }
+
+    public long getReceiveNanos() {
+        return receiveNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "CommandSample [command=" + command + ", address=" + address + ", borrowNanos=" + borrowNanos
+                + ", sendNanos=" + sendNanos + ", serverNanos=" + serverNanos + ", receiveNanos=" + receiveNanos
+                + ", totalNanos=" + totalNanos + ", bytesOut=" + bytesOut + ", bytesIn=" + bytesIn
+                + ", success=" + isSuccess() + "]";
+    }
+}
@@ -0,0 +1,102 @@
+package com.ykrenz.fastdfs.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 按命令和地址统计的快照
+ *
+ * @author ykren
+ */
+public class CommandStatsSnapshot {
+
+    private final String command;
+
+    private final String address;
+
+    private final long count;
+
+    private final long errors;
+
+    private final long bytesOut;
+
+    private final long bytesIn;
+
+    private final LatencySnapshot borrow;
+
+    private final LatencySnapshot send;
+
+    private final LatencySnapshot server;
+
+    private final LatencySnapshot receive;
+
+    private final LatencySnapshot total;
+
+    @ConstructorProperties({"command", "address", "count", "errors", "bytesOut", "bytesIn",
+            "borrow", "send", "server", "receive", "total"})
+    public CommandStatsSnapshot(String command, String address, long count, long errors, long bytesOut, long bytesIn,
+                                LatencySnapshot borrow, LatencySnapshot send, LatencySnapshot server,
+                                LatencySnapshot receive, LatencySnapshot total) {
+        this.command = command;
+        this.address = address;
+        this.count = count;
+        this.errors = errors;
+        this.bytesOut = bytesOut;
+        this.bytesIn = bytesIn;
+        this.borrow = borrow;
+        this.send = send;
+        this.server = server;
+        this.receive = receive;
+        this.total = total;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public LatencySnapshot getBorrow() {
+        return borrow;
+    }
+
+    public LatencySnapshot getSend() {
+        return send;
+    }
+
+    public LatencySnapshot getServer() {
+        return server;
+    }
+
+    public LatencySnapshot getReceive() {
+        return receive;
+    }
+
+    public LatencySnapshot getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "CommandStatsSnapshot [command=" + command + ", address=" + address + ", count=" + count
+                + ", errors=" + errors + ", bytesOut=" + bytesOut + ", bytesIn=" + bytesIn + ", borrow=" + borrow
+                + ", send=" + send + ", server=" + server + ", receive=" + receive + ", total=" + total + "]";
+    }
+}
@@ -0,0 +1,151 @@
+package com.ykrenz.fastdfs.metrics;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 默认指标收集 不依赖第三方库
+ * <pre>
+ * 按命令类型和服务端地址分别统计执行次数、失败次数、收发字节数
+ * 以及获取连接、发送、服务端处理、接收、总耗时的直方图
+ * 可通过JMX查看 见{@link FdfsMetricsMXBean}
+ * </pre>
+ *
+ * @author ykren
+ */
+public class DefaultFdfsMetrics implements FdfsMetrics, FdfsMetricsMXBean {
+
+    private final ConcurrentMap<Key, CommandStats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(CommandSample sample) {
+        Key key = new Key(sample.getCommand(), sample.getAddress());
+        CommandStats commandStats = stats.get(key);
+        if (commandStats == null) {
+            commandStats = stats.computeIfAbsent(key, k -> new CommandStats());
+        }
+        commandStats.record(sample);
+    }
+
+    @Override
+    public long getCommandCount() {
+        long count = 0;
+        for (CommandStats commandStats : stats.values()) {
+            count += commandStats.total.getCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getErrorCount() {
+        long count = 0;
+        for (CommandStats commandStats : stats.values()) {
+            count += commandStats.errors.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public List<CommandStatsSnapshot> getCommandStats() {
+        List<CommandStatsSnapshot> snapshots = new ArrayList<>(stats.size());
+        stats.forEach((key, commandStats) -> snapshots.add(commandStats.snapshot(key)));
+        snapshots.sort((a, b) -> {
+            int c = a.getCommand().compareTo(b.getCommand());
+            return c != 0 ? c : a.getAddress().compareTo(b.getAddress());
+        });
+        return snapshots;
+    }
+
+    @Override
+    public void reset() {
+        stats.clear();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("DefaultFdfsMetrics [");
+        for (CommandStatsSnapshot snapshot : getCommandStats()) {
+            sb.append(System.lineSeparator()).append(snapshot);
+        }
+        return sb.append("]").toString();
+    }
+
+    private static String addressString(InetSocketAddress address) {
+        if (address == null) {
+            return "";
+        }
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    private static final class Key {
+
+        private final String command;
+
+        private final InetSocketAddress address;
+
+        Key(String command, InetSocketAddress address) {
+            this.command = command;
+            this.address = address;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return command.equals(key.command) && Objects.equals(address, key.address);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * command.hashCode() + Objects.hashCode(address);
+        }
+    }
+
+    private static final class CommandStats {
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LongAdder bytesOut = new LongAdder();
+
+        private final LongAdder bytesIn = new LongAdder();
+
+        private final LatencyHistogram borrow = new LatencyHistogram();
+
+        private final LatencyHistogram send = new LatencyHistogram();
+
+        private final LatencyHistogram server = new LatencyHistogram();
+
+        private final LatencyHistogram receive = new LatencyHistogram();
+
+        private final LatencyHistogram total = new LatencyHistogram();
+
+        void record(CommandSample sample) {
+            if (!sample.isSuccess()) {
+                errors.increment();
+            }
+            bytesOut.add(sample.getBytesOut());
+            bytesIn.add(sample.getBytesIn());
+            borrow.record(sample.getBorrowNanos());
+            send.record(sample.getSendNanos());
+            server.record(sample.getServerNanos());
+            receive.record(sample.getReceiveNanos());
+            total.record(sample.getTotalNanos());
+        }
+
+        CommandStatsSnapshot snapshot(Key key) {
+            return new CommandStatsSnapshot(key.command, addressString(key.address), total.getCount(), errors.sum(),
+                    bytesOut.sum(), bytesIn.sum(), borrow.snapshot(), send.snapshot(), server.snapshot(),
+                    receive.snapshot(), total.snapshot());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ykrenz.fastdfs.metrics;
+
+/**
+ * 命令执行指标收集SPI
+ * <pre>
+ * 每个命令执行结束后(包括获取连接失败)调用 在执行命令的线程上同步调用 实现需线程安全且尽量轻量
+ * 默认实现{@link DefaultFdfsMetrics}
+ * </pre>
+ *
+ * @author ykren
+ */
+public interface FdfsMetrics {
+
+    /**
+     * 不收集
+     */
+    FdfsMetrics NOOP = sample -> {
+    };
+
+    /**
+     * 记录一次命令执行
+     *
+     * @param sample
+     */
+    void record(CommandSample sample);
+}
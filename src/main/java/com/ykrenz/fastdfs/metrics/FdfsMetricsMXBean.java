@@ -0,0 +1,37 @@
+package com.ykrenz.fastdfs.metrics;
+
+import java.util.List;
+
+/**
+ * 命令执行指标JMX接口
+ *
+ * @author ykren
+ */
+public interface FdfsMetricsMXBean {
+
+    /**
+     * 累计执行次数
+     *
+     * @return
+     */
+    long getCommandCount();
+
+    /**
+     * 累计失败次数
+     *
+     * @return
+     */
+    long getErrorCount();
+
+    /**
+     * 按命令和地址的统计
+     *
+     * @return
+     */
+    List<CommandStatsSnapshot> getCommandStats();
+
+    /**
+     * 清空统计
+     */
+    void reset();
+}
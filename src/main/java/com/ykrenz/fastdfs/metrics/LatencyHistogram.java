@@ -0,0 +1,103 @@
+package com.ykrenz.fastdfs.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图
+ * <pre>
+ * 按微秒以2的幂分桶 第i个桶为[2^(i-1), 2^i)微秒 最后一个桶包含所有更大的值
+ * 百分位在所在桶内按排名线性插值 不超过最大值
+ * </pre>
+ *
+ * @author ykren
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 36;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sumMicros = new LongAdder();
+
+    private volatile long maxMicros;
+
+    /**
+     * 记录耗时
+     *
+     * @param nanos
+     */
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        int index = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(index);
+        count.increment();
+        sumMicros.add(micros);
+        if (micros > maxMicros) {
+            synchronized (this) {
+                if (micros > maxMicros) {
+                    maxMicros = micros;
+                }
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 百分位耗时
+     *
+     * @param percentile 0-1
+     * @return 微秒
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (seen + counts[i] >= rank && counts[i] > 0) {
+                if (i == 0) {
+                    return 0;
+                }
+                long lower = 1L << (i - 1);
+                long upper = (1L << i) - 1;
+                long value = lower + (upper - lower) * (rank - seen) / counts[i];
+                return Math.min(maxMicros, value);
+            }
+            seen += counts[i];
+        }
+        return maxMicros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    public double getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sumMicros.sum() / n;
+    }
+
+    /**
+     * 统计快照
+     *
+     * @return
+     */
+    public LatencySnapshot snapshot() {
+        return new LatencySnapshot(getCount(), getMeanMicros() / 1000, getPercentileMicros(0.5) / 1000.0,
+                getPercentileMicros(0.9) / 1000.0, getPercentileMicros(0.99) / 1000.0, getMaxMicros() / 1000.0);
+    }
+}
@@ -0,0 +1,94 @@
+package com.ykrenz.fastdfs.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 文件片段输入流
+ * <pre>
+ * 通过位置读取FileChannel中[position, position + length)的内容 不改变FileChannel的position
+ * 多个片段可共享同一FileChannel并发读取 关闭流时不关闭FileChannel
+ * </pre>
+ *
+ * @author ykren
+ */
+public class FileChannelRangeInputStream extends InputStream {
+
+    /**
+     * 文件
+     */
+    private final FileChannel channel;
+
+    /**
+     * 当前读取位置
+     */
+    private long position;
+
+    /**
+     * 结束位置
+     */
+    private final long end;
+
+    public FileChannelRangeInputStream(FileChannel channel, long position, long length) {
+        this.channel = channel;
+        this.position = position;
+        this.end = position + length;
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return 当前读取位置
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * 跳过已通过channel直接传输的内容
+     *
+     * @param position 新的读取位置
+     */
+    public void setPosition(long position) {
+        this.position = Math.min(position, end);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= end) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+        int n = channel.read(buffer, position);
+        if (n > 0) {
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+}
@@ -3,7 +3,6 @@ package com.ykrenz.fastdfs.model;
 import com.ykrenz.fastdfs.exception.FdfsIOException;
 import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -15,7 +14,7 @@ public final class InputStreamWrapper {
         if (is instanceof FileInputStream) {
             return is;
         }
-        return new BufferedInputStream(is, FastDFSConstants.DEFAULT_STREAM_BUFFER_SIZE);
+        return new PooledBufferedInputStream(is, FastDFSConstants.DEFAULT_STREAM_BUFFER_SIZE);
     }
 
     public static InputStream wrap(File file) {
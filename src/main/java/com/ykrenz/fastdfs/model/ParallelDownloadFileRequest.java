@@ -0,0 +1,89 @@
+package com.ykrenz.fastdfs.model;
+
+import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
+
+import java.util.Objects;
+
+import static com.ykrenz.fastdfs.common.CodeUtils.validateGreaterZero;
+import static com.ykrenz.fastdfs.common.CodeUtils.validateNotBlankString;
+
+/**
+ * 并行下载文件参数
+ *
+ * @author ykren
+ */
+public class ParallelDownloadFileRequest extends GroupPathArgs {
+    /**
+     * 本地文件名
+     */
+    protected String fileName;
+    /**
+     * 分片大小
+     */
+    protected long partSize = FastDFSConstants.DEFAULT_TRANSFER_PART_SIZE;
+    /**
+     * 并发数
+     */
+    protected int parallelism = FastDFSConstants.DEFAULT_TRANSFER_PARALLELISM;
+
+    public String fileName() {
+        return fileName;
+    }
+
+    public long partSize() {
+        return partSize;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 参数构建类
+     */
+    public static final class Builder extends GroupPathArgs.Builder<Builder, ParallelDownloadFileRequest> {
+
+        @Override
+        protected void validate(ParallelDownloadFileRequest args) {
+            super.validate(args);
+            validateNotBlankString(args.fileName, "fileName");
+            validateGreaterZero(args.partSize, "partSize");
+            validateGreaterZero(args.parallelism, "parallelism");
+        }
+
+        public Builder fileName(String fileName) {
+            operations.add(args -> args.fileName = fileName);
+            return this;
+        }
+
+        public Builder partSize(long partSize) {
+            operations.add(args -> args.partSize = partSize);
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            operations.add(args -> args.parallelism = parallelism);
+            return this;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        ParallelDownloadFileRequest that = (ParallelDownloadFileRequest) o;
+        return partSize == that.partSize &&
+                parallelism == that.parallelism &&
+                Objects.equals(fileName, that.fileName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), fileName, partSize, parallelism);
+    }
+}
@@ -0,0 +1,208 @@
+package com.ykrenz.fastdfs.model;
+
+import com.ykrenz.fastdfs.common.CodeUtils;
+import com.ykrenz.fastdfs.common.FastDfsUtils;
+import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.ykrenz.fastdfs.common.CodeUtils.validateGreaterZero;
+import static com.ykrenz.fastdfs.common.CodeUtils.validateNotLessZero;
+
+/**
+ * 并行分片上传参数
+ *
+ * @author ykren
+ */
+public class ParallelMultipartUploadRequest extends GroupArgs {
+    /**
+     * 本地文件
+     */
+    protected File file;
+    /**
+     * 文件channel 由调用方负责关闭
+     */
+    protected transient FileChannel channel;
+    /**
+     * 文件后缀
+     */
+    protected String fileExtName;
+    /**
+     * 分片大小
+     */
+    protected long partSize = FastDFSConstants.DEFAULT_TRANSFER_PART_SIZE;
+    /**
+     * 并发数
+     */
+    protected int parallelism = FastDFSConstants.DEFAULT_TRANSFER_PARALLELISM;
+    /**
+     * 单个分片失败重试次数
+     */
+    protected int maxRetries = FastDFSConstants.DEFAULT_TRANSFER_RETRIES;
+    /**
+     * 完成后是否改为普通文件 version>=6.02
+     */
+    protected boolean regenerate;
+    /**
+     * 文件元数据
+     */
+    protected Set<MetaData> metaData = new HashSet<>();
+
+    public File file() {
+        return file;
+    }
+
+    public FileChannel channel() {
+        return channel;
+    }
+
+    public String fileExtName() {
+        return fileExtName;
+    }
+
+    public long partSize() {
+        return partSize;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public int maxRetries() {
+        return maxRetries;
+    }
+
+    public boolean regenerate() {
+        return regenerate;
+    }
+
+    public Set<MetaData> metaData() {
+        return metaData;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 参数构建类
+     */
+    public static final class Builder extends GroupArgs.Builder<Builder, ParallelMultipartUploadRequest> {
+
+        @Override
+        protected void validate(ParallelMultipartUploadRequest args) {
+            if (args.file == null && args.channel == null) {
+                throw new IllegalArgumentException("upload content cannot be empty. ");
+            }
+            if (args.file != null && args.channel != null) {
+                throw new IllegalArgumentException("parameters file and channel must be unique. ");
+            }
+            if (args.file != null) {
+                CodeUtils.validateFile(args.file);
+            }
+            validateGreaterZero(args.partSize, "partSize");
+            validateGreaterZero(args.parallelism, "parallelism");
+            validateNotLessZero(args.maxRetries, "maxRetries");
+        }
+
+        /**
+         * 上传文件
+         *
+         * @param file
+         * @return
+         */
+        public Builder file(File file) {
+            operations.add(args -> args.file = file);
+            // file为null时由validate统一校验
+            return fileExtName(file == null ? null : getExtension(file.getName()));
+        }
+
+        /**
+         * 上传文件channel 按位置读取 不改变channel的position
+         *
+         * @param channel
+         * @param fileExtName
+         * @return
+         */
+        public Builder channel(FileChannel channel, String fileExtName) {
+            operations.add(args -> args.channel = channel);
+            return fileExtName(fileExtName);
+        }
+
+        private Builder fileExtName(String fileExtName) {
+            String handlerFileExtName = FastDfsUtils.handlerFilename(fileExtName);
+            operations.add(args -> args.fileExtName = handlerFileExtName);
+            return this;
+        }
+
+        public Builder partSize(long partSize) {
+            operations.add(args -> args.partSize = partSize);
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            operations.add(args -> args.parallelism = parallelism);
+            return this;
+        }
+
+        public Builder maxRetries(int maxRetries) {
+            operations.add(args -> args.maxRetries = maxRetries);
+            return this;
+        }
+
+        /**
+         * 完成后改为普通文件 version>=6.02
+         *
+         * @param regenerate
+         * @return
+         */
+        public Builder regenerate(boolean regenerate) {
+            operations.add(args -> args.regenerate = regenerate);
+            return this;
+        }
+
+        public Builder metaData(String name, String value) {
+            operations.add(args -> args.metaData.add(new MetaData(name, value)));
+            return this;
+        }
+
+        /**
+         * 元数据信息
+         *
+         * @param metaData
+         * @return
+         */
+        public Builder metaData(Set<MetaData> metaData) {
+            operations.add(args -> args.metaData.addAll(metaData == null ? Collections.emptySet() : metaData));
+            return this;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        ParallelMultipartUploadRequest that = (ParallelMultipartUploadRequest) o;
+        return partSize == that.partSize &&
+                parallelism == that.parallelism &&
+                maxRetries == that.maxRetries &&
+                regenerate == that.regenerate &&
+                Objects.equals(file, that.file) &&
+                Objects.equals(channel, that.channel) &&
+                Objects.equals(fileExtName, that.fileExtName) &&
+                Objects.equals(metaData, that.metaData);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), file, channel, fileExtName, partSize, parallelism, maxRetries,
+                regenerate, metaData);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ykrenz.fastdfs.model;
+
+import com.ykrenz.fastdfs.common.BufferPool;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 缓冲区从{@link BufferPool}申请的BufferedInputStream 关闭时归还
+ *
+ * @author ykren
+ */
+public class PooledBufferedInputStream extends BufferedInputStream {
+
+    private final BufferPool bufferPool;
+
+    /**
+     * 申请的缓冲区 mark超出长度时父类会替换buf 归还时以申请的为准
+     */
+    private byte[] pooled;
+
+    public PooledBufferedInputStream(InputStream in, int size) {
+        this(in, size, BufferPool.getDefault());
+    }
+
+    public PooledBufferedInputStream(InputStream in, int size, BufferPool bufferPool) {
+        super(in, 1);
+        this.bufferPool = bufferPool;
+        this.pooled = bufferPool.acquire(size);
+        this.buf = pooled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            release();
+        }
+    }
+
+    private synchronized void release() {
+        if (pooled != null) {
+            bufferPool.release(pooled);
+            pooled = null;
+        }
+    }
+}
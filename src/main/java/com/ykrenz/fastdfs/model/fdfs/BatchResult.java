@@ -0,0 +1,100 @@
+package com.ykrenz.fastdfs.model.fdfs;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 批量操作结果
+ * <pre>
+ * 每个文件的结果或异常 互不影响 重试后以最后一次为准
+ * 成功结果可能为null 如删除文件、查询不存在的文件
+ * </pre>
+ *
+ * @param <T>
+ * @author ykren
+ */
+public class BatchResult<T> {
+
+    private final Map<StorePath, T> results = new HashMap<>();
+
+    private final Map<StorePath, RuntimeException> errors = new HashMap<>();
+
+    /**
+     * 记录成功结果
+     *
+     * @param storePath
+     * @param result
+     */
+    public synchronized void success(StorePath storePath, T result) {
+        errors.remove(storePath);
+        results.put(storePath, result);
+    }
+
+    /**
+     * 记录失败异常
+     *
+     * @param storePath
+     * @param error
+     */
+    public synchronized void fail(StorePath storePath, RuntimeException error) {
+        results.remove(storePath);
+        errors.put(storePath, error);
+    }
+
+    /**
+     * @return 成功的文件及结果
+     */
+    public synchronized Map<StorePath, T> getResults() {
+        return Collections.unmodifiableMap(new HashMap<>(results));
+    }
+
+    /**
+     * @return 失败的文件及异常
+     */
+    public synchronized Map<StorePath, RuntimeException> getErrors() {
+        return Collections.unmodifiableMap(new HashMap<>(errors));
+    }
+
+    /**
+     * @param storePath
+     * @return 文件失败异常 未失败时返回null
+     */
+    public synchronized RuntimeException getError(StorePath storePath) {
+        return errors.get(storePath);
+    }
+
+    /**
+     * 获取文件结果 失败时抛出对应异常
+     *
+     * @param storePath
+     * @return
+     */
+    public synchronized T get(StorePath storePath) {
+        RuntimeException error = errors.get(storePath);
+        if (error != null) {
+            throw error;
+        }
+        return results.get(storePath);
+    }
+
+    /**
+     * @return 是否全部成功
+     */
+    public synchronized boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    public synchronized int getSuccessCount() {
+        return results.size();
+    }
+
+    public synchronized int getErrorCount() {
+        return errors.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BatchResult [successCount=" + results.size() + ", errorCount=" + errors.size() + "]";
+    }
+}
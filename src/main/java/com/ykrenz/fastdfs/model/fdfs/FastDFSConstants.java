@@ -9,6 +9,20 @@ public final class FastDFSConstants {
     public static final int KB = 1024;
     public static final int DEFAULT_BUFFER_SIZE = 8 * KB;
     public static final int DEFAULT_STREAM_BUFFER_SIZE = 512 * KB;
+    public static final int MB = 1024 * KB;
+
+    /**
+     * 并行传输分片大小 8MB
+     */
+    public static final long DEFAULT_TRANSFER_PART_SIZE = 8L * MB;
+    /**
+     * 并行传输并发数 4
+     */
+    public static final int DEFAULT_TRANSFER_PARALLELISM = 4;
+    /**
+     * 并行传输单个分片失败重试次数 2
+     */
+    public static final int DEFAULT_TRANSFER_RETRIES = 2;
 
     /**
      * 读取时间 30s
@@ -58,10 +72,110 @@ public final class FastDFSConstants {
      * JMX_NAME_PREFIX
      */
     public static final String JMX_NAME_PREFIX = "fdfsPool";
+    /**
+     * 命令执行指标JMX名称
+     */
+    public static final String METRICS_JMX_NAME_BASE = "com.ykren.fastdfs.conn:type=FdfsMetrics,name=fdfsMetrics";
     /**
      * TEST_ON_BORROW
      */
     public static final boolean TEST_ON_BORROW = true;
+    /**
+     * 清理空闲连接任务同时检测空闲连接 作为保活
+     */
+    public static final boolean TEST_WHILE_IDLE = true;
+    /**
+     * 清理空闲连接任务每次检测全部空闲连接
+     */
+    public static final int NUM_TESTS_PER_EVICTION_RUN = -1;
+    /**
+     * 连接空闲超过该时长才在获取时检测 3s
+     */
+    public static final long DEFAULT_VALIDATE_AFTER_IDLE_MILLIS = 3000;
+    /**
+     * 连接池预热最长等待 5s
+     */
+    public static final long DEFAULT_WARM_UP_TIMEOUT_MILLIS = 5000;
+    /**
+     * tracker健康检查间隔 5s
+     */
+    public static final long DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS = 5000;
+    /**
+     * tracker健康检查失败后最长退避 60s
+     */
+    public static final long DEFAULT_HEALTH_CHECK_MAX_BACKOFF_MILLIS = 60000;
+    /**
+     * 批量操作并发数 8
+     */
+    public static final int DEFAULT_BATCH_PARALLELISM = 8;
+    /**
+     * 批量操作单个连接流水线窗口 32
+     */
+    public static final int DEFAULT_PIPELINE_DEPTH = 32;
+    /**
+     * 路由缓存最大数量 10000
+     */
+    public static final int DEFAULT_ROUTE_CACHE_MAX_SIZE = 10000;
+    /**
+     * 路由缓存过期时间 60s
+     */
+    public static final int DEFAULT_ROUTE_CACHE_EXPIRE_SECOND = 60;
+    /**
+     * 本地选择上传storage时状态刷新间隔 30s
+     */
+    public static final int DEFAULT_STORE_REFRESH_SECOND = 30;
+    /**
+     * 本地选择上传storage时保留空间 1024MB
+     */
+    public static final long DEFAULT_STORE_RESERVED_MB = 1024;
+    /**
+     * 本地选择下载storage时文件最大同步延迟 与storage_sync_file_max_delay默认值一致 86400s
+     */
+    public static final long DEFAULT_READ_SYNC_MAX_DELAY_SECOND = 86400;
+    /**
+     * 对冲请求延迟百分位 p95
+     */
+    public static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+    /**
+     * 对冲请求最小延迟 20ms
+     */
+    public static final long DEFAULT_HEDGE_MIN_DELAY_MILLIS = 20;
+    /**
+     * 对冲下载最大长度 1MB
+     */
+    public static final long DEFAULT_HEDGE_MAX_BYTES = MB;
+    /**
+     * 熔断统计窗口 10s
+     */
+    public static final long DEFAULT_CIRCUIT_WINDOW_MILLIS = 10000;
+    /**
+     * 熔断按比例判断的最少请求数 20
+     */
+    public static final int DEFAULT_CIRCUIT_MINIMUM_CALLS = 20;
+    /**
+     * 熔断失败比例 50%
+     */
+    public static final int DEFAULT_CIRCUIT_FAILURE_RATE_THRESHOLD = 50;
+    /**
+     * 慢请求服务端处理耗时 5s
+     */
+    public static final long DEFAULT_CIRCUIT_SLOW_CALL_MILLIS = 5000;
+    /**
+     * 熔断慢请求比例 80%
+     */
+    public static final int DEFAULT_CIRCUIT_SLOW_CALL_RATE_THRESHOLD = 80;
+    /**
+     * 熔断连续失败次数 5
+     */
+    public static final int DEFAULT_CIRCUIT_CONSECUTIVE_FAILURES = 5;
+    /**
+     * 熔断后探测间隔 10s
+     */
+    public static final long DEFAULT_CIRCUIT_OPEN_MILLIS = 10000;
+    /**
+     * 传输缓冲区池最大保留 64MB
+     */
+    public static final long DEFAULT_BUFFER_POOL_MAX_MB = 64;
     /**
      * http SECRET_KEY
      */
@@ -0,0 +1,148 @@
+package com.ykrenz.fastdfs.model.fdfs;
+
+import com.ykrenz.fastdfs.model.proto.OtherConstants;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * 文件名中编码的文件信息
+ * <pre>
+ * fastdfs文件名格式 M00/00/00/ + 27位base64(字符集-_) + 后缀
+ * base64解码后依次为 源storage ip或storage id(4) 创建时间(4) 文件大小(8) crc32(4)
+ * 文件大小字段带appender/trunk标记 最高位为1时低32位为文件大小 appender和从文件无法由文件名得到大小
+ * 参阅fastdfs源码 storage_service.c storage_gen_filename 和 client fdfs_get_file_info_ex
+ * </pre>
+ *
+ * @author ykren
+ */
+public class FileNameInfo {
+
+    /**
+     * 存储路径前缀 M00/00/00/
+     */
+    private static final Pattern STORE_PATH_PATTERN = Pattern.compile("^M[0-9A-Fa-f]{2}/[0-9A-Fa-f]{2}/[0-9A-Fa-f]{2}/");
+
+    /**
+     * 源storage ip或storage id
+     */
+    private final int sourceId;
+    /**
+     * 创建时间 秒
+     */
+    private final long createTime;
+    /**
+     * 文件大小 高位为appender/trunk等标记
+     */
+    private final long fileSize;
+    /**
+     * crc32
+     */
+    private final int crc32;
+    /**
+     * 文件路径长度 用于判断从文件
+     */
+    private final int pathLength;
+
+    private FileNameInfo(int sourceId, long createTime, long fileSize, int crc32, int pathLength) {
+        this.sourceId = sourceId;
+        this.createTime = createTime;
+        this.fileSize = fileSize;
+        this.crc32 = crc32;
+        this.pathLength = pathLength;
+    }
+
+    /**
+     * 解析文件名
+     *
+     * @param path 不含group的文件路径
+     * @return 无法解析时返回null
+     */
+    public static FileNameInfo decode(String path) {
+        int end = OtherConstants.FDFS_FILE_PATH_LEN + OtherConstants.FDFS_FILENAME_BASE64_LENGTH;
+        if (path == null || path.length() < end || !STORE_PATH_PATTERN.matcher(path).find()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(path.substring(OtherConstants.FDFS_FILE_PATH_LEN, end));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new FileNameInfo(buffer.getInt(), buffer.getInt() & 0xFFFFFFFFL, buffer.getLong(), buffer.getInt(),
+                path.length());
+    }
+
+    /**
+     * @return 源storage ip或storage id(use_storage_id=true时)的原始值
+     */
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    /**
+     * @return 源storage ip 仅在未使用storage id时有效
+     */
+    public String getSourceIpAddr() {
+        return ((sourceId >>> 24) & 0xFF) + "." + ((sourceId >>> 16) & 0xFF) + "."
+                + ((sourceId >>> 8) & 0xFF) + "." + (sourceId & 0xFF);
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public int getCrc32() {
+        return crc32;
+    }
+
+    /**
+     * @return 是否为appender文件 创建后仍可修改
+     */
+    public boolean isAppenderFile() {
+        return (fileSize & OtherConstants.APPENDER_FILE_SIZE) != 0;
+    }
+
+    /**
+     * @return 是否为trunk文件
+     */
+    public boolean isTrunkFile() {
+        return (fileSize & OtherConstants.TRUNK_FILE_MARK_SIZE) != 0;
+    }
+
+    /**
+     * @return 是否为从文件 文件名中为主文件的信息
+     */
+    public boolean isSlaveFile() {
+        return pathLength > OtherConstants.TRUNK_LOGIC_FILENAME_LENGTH
+                || (pathLength > OtherConstants.NORMAL_LOGIC_FILENAME_LENGTH && !isTrunkFile());
+    }
+
+    /**
+     * 由文件名得到的文件内容大小 不需要查询storage
+     *
+     * @return appender文件和从文件返回-1
+     */
+    public long getContentSize() {
+        if (isAppenderFile() || isSlaveFile()) {
+            return -1;
+        }
+        if (fileSize < 0 || isTrunkFile()) {
+            // 最高位为1时高32位为随机数 trunk文件高位为标记 低32位为文件大小
+            return fileSize & 0xFFFFFFFFL;
+        }
+        return fileSize;
+    }
+
+    @Override
+    public String toString() {
+        return "FileNameInfo [sourceId=" + sourceId + ", createTime=" + createTime + ", fileSize=" + fileSize
+                + ", crc32=" + crc32 + "]";
+    }
+}
@@ -329,6 +329,13 @@ public class StorageState {
         this.status = status;
     }
 
+    /**
+     * @return 是否为ACTIVE状态
+     */
+    public boolean isActive() {
+        return status == OtherConstants.FDFS_STORAGE_STATUS_ACTIVE;
+    }
+
     /**
      * @return the id
      */
@@ -1,13 +1,25 @@
 package com.ykrenz.fastdfs.model.fdfs;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 管理TrackerAddress当前状态
+ * <pre>
+ * 记录请求耗时的峰值EWMA和进行中的请求数 用于按负载选择tracker
+ * 耗时高于当前值时立即取新值 否则按距上次更新的时间指数衰减 长时间未使用的tracker衰减到0后会被重新选择
+ * 并发更新可能丢失个别样本 不影响选择
+ * 有效状态由健康检查线程和请求线程并发更新 均为volatile
+ * </pre>
  *
  * @author tobato
  */
 public class TrackerAddressHolder {
+    /**
+     * EWMA衰减时间常数 10s
+     */
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
     /**
      * 连接地址
      */
@@ -15,11 +27,23 @@ public class TrackerAddressHolder {
     /**
      * 当前是否有效
      */
-    private boolean available;
+    private volatile boolean available;
     /**
      * 上次无效时间
      */
-    private long lastUnavailableTime;
+    private volatile long lastUnavailableTime;
+    /**
+     * 请求耗时EWMA 纳秒
+     */
+    private volatile double latencyEwma;
+    /**
+     * 上次更新EWMA的时间
+     */
+    private volatile long lastUpdateNanos = System.nanoTime();
+    /**
+     * 进行中的请求数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
 
     /**
      * 构造函数
@@ -44,8 +68,9 @@ public class TrackerAddressHolder {
      * 无效
      */
     public void setInActive() {
-        this.available = false;
+        // 先记录时间再标记无效 读到无效状态时时间已更新
         this.lastUnavailableTime = System.currentTimeMillis();
+        this.available = false;
     }
 
     public boolean isAvailable() {
@@ -75,4 +100,48 @@ public class TrackerAddressHolder {
         return address;
     }
 
+    /**
+     * 开始请求
+     */
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求结束 包括失败的请求
+     *
+     * @param elapsedNanos 请求耗时
+     */
+    public void requestFinished(long elapsedNanos) {
+        inFlight.decrementAndGet();
+        long now = System.nanoTime();
+        double ewma = latencyEwma;
+        latencyEwma = elapsedNanos > ewma ? elapsedNanos : ewma * decay(now) + elapsedNanos * (1 - decay(now));
+        lastUpdateNanos = now;
+    }
+
+    /**
+     * 负载得分 越小越优先 (耗时EWMA + 1) * (进行中请求数 + 1)
+     *
+     * @return
+     */
+    public double getScore() {
+        return (latencyEwma * decay(System.nanoTime()) + 1) * (inFlight.get() + 1);
+    }
+
+    /**
+     * 旧值保留比例 距上次更新越久越小
+     */
+    private double decay(long now) {
+        return Math.exp(-Math.max(0, now - lastUpdateNanos) / DECAY_NANOS);
+    }
+
+    public double getLatencyEwmaMillis() {
+        return latencyEwma * decay(System.nanoTime()) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
 }
@@ -4,13 +4,16 @@ import com.ykrenz.fastdfs.exception.FdfsUnavailableException;
 import org.apache.commons.lang3.StringUtils;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -18,7 +21,8 @@ import java.util.concurrent.locks.ReentrantLock;
  * 表示Tracker服务器位置
  * <p>
  * <pre>
- * 支持负载均衡对IP轮询
+ * 支持负载均衡 轮询取相邻两个可用地址 选择负载得分较低的一个(power of two choices)
+ * 得分相同时按轮询顺序 得分见{@link TrackerAddressHolder#getScore()}
  * </pre>
  *
  * @author tobato
@@ -32,15 +36,23 @@ public class TrackerLocator {
     /**
      * 目录服务地址-为了加速处理，增加了一个map
      */
-    private final Map<InetSocketAddress, TrackerAddressHolder> trackerAddressMap = new HashMap<>();
+    private final Map<InetSocketAddress, TrackerAddressHolder> trackerAddressMap = new ConcurrentHashMap<>();
     /**
-     * 轮询圈
+     * 地址列表 写时复制
      */
-    private final CircularList<TrackerAddressHolder> trackerAddressCircular = new CircularList<>();
+    private volatile TrackerAddressHolder[] trackerAddressHolders = new TrackerAddressHolder[0];
+    /**
+     * 轮询位置
+     */
+    private final AtomicInteger cursor = new AtomicInteger();
     /**
      * 连接中断以后经过N秒重试
      */
     private int retryAfterSecond;
+    /**
+     * 是否开启后台健康检查 开启后不可用的tracker只由健康检查恢复
+     */
+    private volatile boolean healthChecked;
 
     /**
      * 初始化Tracker服务器地址
@@ -77,10 +89,15 @@ public class TrackerLocator {
             return false;
         }
         InetSocketAddress address = getInetSocketAddress(trackerServer);
-        // 放到轮询圈
+        if (trackerAddressMap.containsKey(address)) {
+            return false;
+        }
         TrackerAddressHolder holder = new TrackerAddressHolder(address);
         trackerAddressMap.put(address, holder);
-        return trackerAddressCircular.add(holder);
+        TrackerAddressHolder[] holders = Arrays.copyOf(trackerAddressHolders, trackerAddressHolders.length + 1);
+        holders[holders.length - 1] = holder;
+        trackerAddressHolders = holders;
+        return true;
     }
 
     private InetSocketAddress getInetSocketAddress(String trackerServer) {
@@ -97,6 +114,21 @@ public class TrackerLocator {
         return Collections.unmodifiableList(trackerServers);
     }
 
+    /**
+     * 获取全部tracker地址
+     *
+     * @return
+     */
+    public List<InetSocketAddress> getTrackerAddresses() {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String server : new HashSet<>(trackerServers)) {
+            if (StringUtils.isNotBlank(server)) {
+                addresses.add(getInetSocketAddress(server));
+            }
+        }
+        return addresses;
+    }
+
     public void setTrackerServers(List<String> trackerServers) {
         this.trackerServers = trackerServers;
     }
@@ -105,23 +137,66 @@ public class TrackerLocator {
         this.retryAfterSecond = retryAfterSecond;
     }
 
+    public boolean isHealthChecked() {
+        return healthChecked;
+    }
+
+    public void setHealthChecked(boolean healthChecked) {
+        this.healthChecked = healthChecked;
+    }
+
+    /**
+     * 获取全部tracker状态
+     *
+     * @return
+     */
+    public List<TrackerAddressHolder> getTrackerAddressHolders() {
+        return Collections.unmodifiableList(Arrays.asList(trackerAddressHolders));
+    }
+
     /**
      * 获取Tracker服务器地址
      *
      * @return trackerAddress
      */
     public InetSocketAddress getTrackerAddress() {
-        TrackerAddressHolder holder;
-        // 遍历连接地址,抓取当前有效的地址
-        for (int i = 0; i < trackerAddressCircular.size(); i++) {
-            holder = trackerAddressCircular.next();
-            if (holder.canTryToConnect(retryAfterSecond)) {
-                return holder.getAddress();
+        return selectTracker().getAddress();
+    }
+
+    /**
+     * 选择Tracker服务器
+     *
+     * @return trackerAddressHolder
+     */
+    public TrackerAddressHolder selectTracker() {
+        TrackerAddressHolder[] holders = trackerAddressHolders;
+        int size = holders.length;
+        if (size > 0) {
+            int start = Math.floorMod(cursor.getAndIncrement(), size);
+            TrackerAddressHolder first = null;
+            // 从轮询位置开始 取前两个当前有效的地址
+            for (int i = 0; i < size; i++) {
+                TrackerAddressHolder holder = holders[(start + i) % size];
+                if (!isUsable(holder)) {
+                    continue;
+                }
+                if (first == null) {
+                    first = holder;
+                } else {
+                    return holder.getScore() < first.getScore() ? holder : first;
+                }
+            }
+            if (first != null) {
+                return first;
             }
         }
         throw new FdfsUnavailableException("找不到可用的tracker " + getTrackerAddressConfigString());
     }
 
+    private boolean isUsable(TrackerAddressHolder holder) {
+        return healthChecked ? holder.isAvailable() : holder.canTryToConnect(retryAfterSecond);
+    }
+
     /**
      * 获取配置地址列表
      *
@@ -129,8 +204,7 @@ public class TrackerLocator {
      */
     private String getTrackerAddressConfigString() {
         StringBuilder config = new StringBuilder();
-        for (int i = 0; i < trackerAddressCircular.size(); i++) {
-            TrackerAddressHolder holder = trackerAddressCircular.next();
+        for (TrackerAddressHolder holder : trackerAddressHolders) {
             InetSocketAddress address = holder.getAddress();
             config.append(address.toString()).append(",");
         }
@@ -194,7 +268,9 @@ public class TrackerLocator {
             }
             InetSocketAddress address = getInetSocketAddress(trackerServer);
             TrackerAddressHolder holder = trackerAddressMap.remove(address);
-            trackerAddressCircular.remove(holder);
+            List<TrackerAddressHolder> holders = new ArrayList<>(Arrays.asList(trackerAddressHolders));
+            holders.remove(holder);
+            trackerAddressHolders = holders.toArray(new TrackerAddressHolder[0]);
             trackerServers.remove(trackerServer);
         } finally {
             TRACKER_LOCK.unlock();
@@ -1,21 +1,30 @@
 package com.ykrenz.fastdfs.model.proto;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 
+import com.ykrenz.fastdfs.common.BufferPool;
+import com.ykrenz.fastdfs.conn.ChannelOutputStream;
 import com.ykrenz.fastdfs.conn.Connection;
 import com.ykrenz.fastdfs.event.ProgressEventType;
 import com.ykrenz.fastdfs.event.ProgressInputStream;
 import com.ykrenz.fastdfs.event.ProgressListener;
+import com.ykrenz.fastdfs.metrics.CommandSample;
+import com.ykrenz.fastdfs.model.FileChannelRangeInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ykrenz.fastdfs.exception.FdfsIOException;
 
 import static com.ykrenz.fastdfs.event.ProgressPublisher.publishProgress;
+import static com.ykrenz.fastdfs.event.ProgressPublisher.publishUploadIng;
 import static com.ykrenz.fastdfs.model.fdfs.FastDFSConstants.DEFAULT_BUFFER_SIZE;
+import static com.ykrenz.fastdfs.model.fdfs.FastDFSConstants.DEFAULT_STREAM_BUFFER_SIZE;
 
 /**
  * 交易命令抽象类
@@ -45,16 +54,27 @@ public abstract class AbstractFdfsCommand<T> implements FdfsCommand<T> {
      */
     @Override
     public T execute(Connection conn) {
+        return execute(conn, null);
+    }
+
+    /**
+     * 对服务端发出请求然后接收反馈 sample不为空时记录发送、服务端处理、接收耗时
+     */
+    @Override
+    public T execute(Connection conn, CommandSample sample) {
         // 封装socket交易 send
         try {
-            send(conn.getOutputStream(), conn.getCharset());
+            send(conn.getOutputStream(), conn.getCharset(), conn.getSendBuffer());
         } catch (IOException e) {
             LOGGER.error("send conent error", e);
             throw new FdfsIOException("socket io exception occured while sending cmd", e);
         }
+        if (sample != null) {
+            sample.sent(ProtoHead.HEAD_LENGTH + request.getHead().getContentLength());
+        }
 
         try {
-            return receive(conn.getInputStream(), conn.getCharset());
+            return receive(conn.getInputStream(), conn.getCharset(), sample);
         } catch (IOException e) {
             LOGGER.error("receive conent error", e);
             throw new FdfsIOException("socket io exception occured while receive content", e);
@@ -62,44 +82,97 @@ public abstract class AbstractFdfsCommand<T> implements FdfsCommand<T> {
 
     }
 
+    /**
+     * 只发送请求 用于同一连接上连续发送多个请求后再依次接收反馈
+     *
+     * @param out    输出流 由调用方刷新
+     * @param conn
+     * @param sample
+     */
+    public void sendRequest(OutputStream out, Connection conn, CommandSample sample) {
+        try {
+            send(out, conn.getCharset(), conn.getSendBuffer());
+        } catch (IOException e) {
+            throw new FdfsIOException("socket io exception occured while sending cmd", e);
+        }
+        if (sample != null) {
+            sample.sent(ProtoHead.HEAD_LENGTH + request.getHead().getContentLength());
+        }
+    }
+
+    /**
+     * 只接收反馈 与{@link #sendRequest(OutputStream, Connection, CommandSample)}发送顺序一致
+     *
+     * @param conn
+     * @param sample
+     * @return
+     */
+    public T receiveResponse(Connection conn, CommandSample sample) {
+        try {
+            return receive(conn.getInputStream(), conn.getCharset(), sample);
+        } catch (IOException e) {
+            throw new FdfsIOException("socket io exception occured while receive content", e);
+        }
+    }
+
+    /**
+     * 将报文输出规范为模板方法
+     *
+     * @param out
+     * @throws IOException
+     * @see #send(OutputStream, Charset, SendBuffer)
+     */
+    protected void send(OutputStream out, Charset charset) throws IOException {
+        send(out, charset, new SendBuffer());
+    }
+
     /**
      * 将报文输出规范为模板方法
      * <p>
      * <pre>
-     * 1.输出报文头
-     * 2.输出报文参数
-     * 3.输出文件内容
+     * 1.报文头和报文参数打包到连接的发送缓冲区
+     * 2.报文总长不超过{@link SendBuffer#MAX_INLINE_BODY_SIZE}时从BufferPool借用缓冲区 与文件内容一并写出
+     * 3.否则先写出缓冲区 再输出文件内容
      * </pre>
      *
      * @param out
+     * @param charset
+     * @param buffer
      * @throws IOException
      */
-    protected void send(OutputStream out, Charset charset) throws IOException {
-        // 报文分为三个部分
-        // 报文头
-        byte[] head = request.getHeadByte(charset);
-        // 交易参数
-        byte[] param = request.encodeParam(charset);
-        // 交易文件流
-        InputStream inputFile = request.getInputFile();
-        long fileSize = request.getFileSize();
-        LOGGER.debug("发出交易请求..报文头为{}", request.getHead());
-        LOGGER.debug("交易参数为{}", param);
-        // 输出报文头
-        out.write(head);
-        // 输出交易参数
-        if (null != param) {
-            out.write(param);
-        }
-        // 输出文件流
-        ProgressListener listener = ProgressListener.NOOP;
-        if (null != inputFile) {
+    protected void send(OutputStream out, Charset charset, SendBuffer buffer) throws IOException {
+        try {
+            // 报文头+交易参数
+            int length = request.encode(buffer, charset);
+            // 交易文件流
+            InputStream inputFile = request.getInputFile();
+            long fileSize = request.getFileSize();
+            LOGGER.debug("发出交易请求..报文头为{}", request.getHead());
+            if (null == inputFile) {
+                out.write(buffer.array(), 0, length);
+                return;
+            }
+            // 输出文件流
+            ProgressListener listener = ProgressListener.NOOP;
             try {
                 if (inputFile instanceof ProgressInputStream) {
                     listener = ((ProgressInputStream) inputFile).getListener();
                 }
                 publishProgress(listener, ProgressEventType.UPLOAD_STARTED, fileSize);
-                sendFileContent(inputFile, fileSize, out);
+                if (fileSize >= 0 && length + fileSize <= SendBuffer.MAX_INLINE_BODY_SIZE) {
+                    int frameLength = length + (int) fileSize;
+                    byte[] frame = BufferPool.getDefault().acquire(frameLength);
+                    try {
+                        System.arraycopy(buffer.array(), 0, frame, 0, length);
+                        readFileContent(inputFile, frame, length, (int) fileSize);
+                        out.write(frame, 0, frameLength);
+                    } finally {
+                        BufferPool.getDefault().release(frame);
+                    }
+                } else {
+                    out.write(buffer.array(), 0, length);
+                    sendFileContent(inputFile, fileSize, out);
+                }
                 publishProgress(listener, ProgressEventType.UPLOAD_COMPLETED);
             } catch (RuntimeException e) {
                 publishProgress(listener, ProgressEventType.UPLOAD_FAILED);
@@ -108,6 +181,28 @@ public abstract class AbstractFdfsCommand<T> implements FdfsCommand<T> {
                 // Close the request stream as well after the request is completed.
                 inputFile.close();
             }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 读取文件内容到缓冲区
+     *
+     * @param ins
+     * @param buffer
+     * @param offset
+     * @param size
+     * @throws IOException
+     */
+    private void readFileContent(InputStream ins, byte[] buffer, int offset, int size) throws IOException {
+        int read = 0;
+        while (read < size) {
+            int l = ins.read(buffer, offset + read, size - read);
+            if (l == -1) {
+                throw new IOException("the end of the stream has been reached. not match the expected size ");
+            }
+            read += l;
         }
     }
 
@@ -119,20 +214,55 @@ public abstract class AbstractFdfsCommand<T> implements FdfsCommand<T> {
      * @throws IOException
      */
     protected T receive(InputStream in, Charset charset) throws IOException {
+        return receive(in, charset, null);
+    }
+
+    /**
+     * 接收反馈 sample不为空时以收到报文头为界分别记录服务端处理和接收耗时
+     *
+     * @param in
+     * @param charset
+     * @param sample
+     * @return
+     * @throws IOException
+     */
+    protected T receive(InputStream in, Charset charset, CommandSample sample) throws IOException {
 
         // 解析报文头
         ProtoHead head = ProtoHead.createFromInputStream(in);
         LOGGER.debug("服务端返回报文头{}", head);
+        if (sample != null) {
+            sample.responded();
+        }
+        T result = decodeResponse(head, in, charset);
+        if (sample != null) {
+            sample.received(ProtoHead.HEAD_LENGTH + head.getContentLength());
+        }
+        return result;
+
+    }
+
+    /**
+     * 校验报文头并解析报文体
+     *
+     * @param head
+     * @param in
+     * @param charset
+     * @return
+     * @throws IOException
+     */
+    protected T decodeResponse(ProtoHead head, InputStream in, Charset charset) throws IOException {
         // 校验报文头
         head.validateResponseHead();
 
         // 解析报文体
         return response.decode(head, in, charset);
-
     }
 
     /**
      * 发送文件
+     * <p>
+     * 本地文件流或文件片段流且连接为SocketChannel时使用零拷贝发送
      *
      * @param ins
      * @param size
@@ -140,24 +270,77 @@ public abstract class AbstractFdfsCommand<T> implements FdfsCommand<T> {
      * @throws IOException
      */
     protected void sendFileContent(InputStream ins, long size, OutputStream ous) throws IOException {
-        int l;
-        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-        if (size < 0) {
-            // consume until EOF
-            while ((l = ins.read(buffer)) != -1) {
-                ous.write(buffer, 0, l);
+        if (size > 0 && ous instanceof ChannelOutputStream) {
+            ProgressListener listener = ProgressListener.NOOP;
+            InputStream source = ins;
+            if (source instanceof ProgressInputStream) {
+                listener = ((ProgressInputStream) source).getListener();
+                source = ((ProgressInputStream) source).getWrappedInputStream();
             }
-        } else {
-            long remaining = size;
-            while (remaining > 0) {
-                l = ins.read(buffer, 0, (int) Math.min(DEFAULT_BUFFER_SIZE, remaining));
-                if (l == -1) {
-                    throw new IOException("the end of the stream has been reached. not match the expected size ");
+            WritableByteChannel target = ((ChannelOutputStream) ous).getChannel();
+            if (source instanceof FileInputStream) {
+                FileChannel fileChannel = ((FileInputStream) source).getChannel();
+                fileChannel.position(transferFileContent(fileChannel, fileChannel.position(), size, target, listener));
+                return;
+            }
+            if (source instanceof FileChannelRangeInputStream) {
+                FileChannelRangeInputStream range = (FileChannelRangeInputStream) source;
+                range.setPosition(transferFileContent(range.getChannel(), range.getPosition(), size, target, listener));
+                return;
+            }
+        }
+        int l;
+        byte[] buffer = BufferPool.getDefault().acquire(DEFAULT_BUFFER_SIZE);
+        try {
+            if (size < 0) {
+                // consume until EOF
+                while ((l = ins.read(buffer)) != -1) {
+                    ous.write(buffer, 0, l);
                 }
-                ous.write(buffer, 0, l);
-                remaining -= l;
+            } else {
+                long remaining = size;
+                while (remaining > 0) {
+                    l = ins.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (l == -1) {
+                        throw new IOException("the end of the stream has been reached. not match the expected size ");
+                    }
+                    ous.write(buffer, 0, l);
+                    remaining -= l;
+                }
+            }
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+    }
+
+    /**
+     * 零拷贝发送文件 从文件指定位置起通过FileChannel.transferTo直接写入socket
+     *
+     * @param fileChannel
+     * @param position
+     * @param size
+     * @param target
+     * @param listener
+     * @return 发送结束后的文件位置
+     * @throws IOException
+     */
+    protected long transferFileContent(FileChannel fileChannel, long position, long size, WritableByteChannel target,
+                                       ProgressListener listener) throws IOException {
+        boolean notify = listener != null && listener != ProgressListener.NOOP;
+        long remaining = size;
+        while (remaining > 0) {
+            if (position >= fileChannel.size()) {
+                throw new IOException("the end of the file has been reached. not match the expected size ");
+            }
+            long count = notify ? Math.min(DEFAULT_STREAM_BUFFER_SIZE, remaining) : remaining;
+            long l = fileChannel.transferTo(position, count, target);
+            position += l;
+            remaining -= l;
+            if (notify) {
+                publishUploadIng(listener, l);
             }
         }
+        return position;
     }
 
 }
@@ -1,6 +1,7 @@
 package com.ykrenz.fastdfs.model.proto;
 
 import com.ykrenz.fastdfs.conn.Connection;
+import com.ykrenz.fastdfs.metrics.CommandSample;
 
 /**
  * Fdfs交易命令抽象
@@ -14,4 +15,15 @@ public interface FdfsCommand<T> {
      */
     public T execute(Connection conn);
 
+    /**
+     * 执行交易并记录各阶段耗时和收发字节数
+     *
+     * @param conn
+     * @param sample
+     * @return
+     */
+    default T execute(Connection conn, CommandSample sample) {
+        return execute(conn);
+    }
+
 }
@@ -51,9 +51,34 @@ public abstract class FdfsRequest {
      * @return
      */
     public byte[] encodeParam(Charset charset) {
+        prepareParam(charset);
         return FdfsParamMapper.toByte(this, charset);
     }
 
+    /**
+     * 计算运行时参数 打包参数前调用
+     *
+     * @param charset
+     */
+    protected void prepareParam(Charset charset) {
+        // 默认没有运行时参数
+    }
+
+    /**
+     * 将报文头和参数打包到发送缓冲区
+     *
+     * @param buffer
+     * @param charset
+     * @return 打包长度
+     */
+    public int encode(SendBuffer buffer, Charset charset) {
+        prepareParam(charset);
+        int paramLength = FdfsParamMapper.toByte(this, charset, buffer, ProtoHead.HEAD_LENGTH);
+        head.setContentLength(paramLength + getFileSize());
+        head.writeTo(buffer.array(), 0);
+        return ProtoHead.HEAD_LENGTH + paramLength;
+    }
+
     /**
      * 获取参数域长度
      *
@@ -3,6 +3,7 @@ package com.ykrenz.fastdfs.model.proto;
 import com.ykrenz.fastdfs.model.proto.mapper.FdfsParamMapper;
 import org.springframework.core.GenericTypeResolver;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
@@ -71,7 +72,7 @@ public abstract class FdfsResponse<T> {
             int contentSize = in.read(bytes);
             // 获取数据
             if (contentSize != getContentLength()) {
-                throw new IOException("读取到的数据长度与协议长度不符");
+                throw new EOFException("读取到的数据长度与协议长度不符");
             }
             return FdfsParamMapper.map(bytes, genericType, charset);
         }
@@ -25,6 +25,20 @@ public final class OtherConstants {
     public static final int FDFS_VERSION_SIZE = 6;
     public static final int FDFS_STORAGE_ID_MAX_SIZE = 16;
 
+    /**
+     * storage状态
+     */
+    public static final byte FDFS_STORAGE_STATUS_INIT = 0;
+    public static final byte FDFS_STORAGE_STATUS_WAIT_SYNC = 1;
+    public static final byte FDFS_STORAGE_STATUS_SYNCING = 2;
+    public static final byte FDFS_STORAGE_STATUS_IP_CHANGED = 3;
+    public static final byte FDFS_STORAGE_STATUS_DELETED = 4;
+    public static final byte FDFS_STORAGE_STATUS_OFFLINE = 5;
+    public static final byte FDFS_STORAGE_STATUS_ONLINE = 6;
+    public static final byte FDFS_STORAGE_STATUS_ACTIVE = 7;
+    public static final byte FDFS_STORAGE_STATUS_RECOVERY = 9;
+    public static final byte FDFS_STORAGE_STATUS_NONE = 99;
+
     public static final String FDFS_RECORD_SEPERATOR = "\u0001";
     public static final String FDFS_FIELD_SEPERATOR = "\u0002";
 
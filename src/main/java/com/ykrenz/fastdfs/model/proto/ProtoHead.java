@@ -1,8 +1,8 @@
 package com.ykrenz.fastdfs.model.proto;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
 
 import com.ykrenz.fastdfs.exception.FdfsServerException;
 import com.ykrenz.fastdfs.model.proto.mapper.BytesUtil;
@@ -21,7 +21,7 @@ public class ProtoHead {
     /**
      * 报文长度
      */
-    private static final int HEAD_LENGTH = OtherConstants.FDFS_PROTO_PKG_LEN_SIZE + 2;
+    public static final int HEAD_LENGTH = OtherConstants.FDFS_PROTO_PKG_LEN_SIZE + 2;
 
     /**
      * 报文内容长度1-7位
@@ -76,18 +76,23 @@ public class ProtoHead {
      * @return
      */
     public byte[] toByte() {
-        byte[] header;
-        byte[] hex_len;
-
-        header = new byte[HEAD_LENGTH];
-        Arrays.fill(header, (byte) 0);
-        hex_len = BytesUtil.long2buff(contentLength);
-        System.arraycopy(hex_len, 0, header, 0, hex_len.length);
-        header[OtherConstants.PROTO_HEADER_CMD_INDEX] = cmd;
-        header[OtherConstants.PROTO_HEADER_STATUS_INDEX] = status;
+        byte[] header = new byte[HEAD_LENGTH];
+        writeTo(header, 0);
         return header;
     }
 
+    /**
+     * 将报文头写入指定位置
+     *
+     * @param dest
+     * @param offset
+     */
+    public void writeTo(byte[] dest, int offset) {
+        BytesUtil.long2buff(contentLength, dest, offset);
+        dest[offset + OtherConstants.PROTO_HEADER_CMD_INDEX] = cmd;
+        dest[offset + OtherConstants.PROTO_HEADER_STATUS_INDEX] = status;
+    }
+
     /**
      * 读取输入流创建报文头
      *
@@ -101,7 +106,7 @@ public class ProtoHead {
         int bytes;
         // 读取HEAD_LENGTH长度的输入流
         if ((bytes = ins.read(header)) != header.length) {
-            throw new IOException("recv package size " + bytes + " != " + header.length);
+            throw new EOFException("recv package size " + bytes + " != " + header.length);
         }
         long returnContentLength = BytesUtil.buff2long(header, 0);
         byte returnCmd = header[OtherConstants.PROTO_HEADER_CMD_INDEX];
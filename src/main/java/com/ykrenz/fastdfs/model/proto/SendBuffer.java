@@ -0,0 +1,64 @@
+package com.ykrenz.fastdfs.model.proto;
+
+import java.util.Arrays;
+
+import static com.ykrenz.fastdfs.model.fdfs.FastDFSConstants.DEFAULT_BUFFER_SIZE;
+import static com.ykrenz.fastdfs.model.fdfs.FastDFSConstants.KB;
+
+/**
+ * 请求报文发送缓冲区
+ * <pre>
+ * 每个连接持有一个 只编码报文头和参数 小文件内容合并发送时的报文从{@link com.ykrenz.fastdfs.common.BufferPool}借用
+ * 连接同一时间只执行一个命令 无需同步
+ * 超过{@link #MAX_RETAIN_SIZE}的扩容在发送后释放 避免每个连接长期占用内存
+ * </pre>
+ *
+ * @author ykren
+ */
+public class SendBuffer {
+
+    /**
+     * 报文头、参数与文件内容合计小于等于该长度时合并发送 64KB
+     */
+    public static final int MAX_INLINE_BODY_SIZE = 64 * KB;
+
+    /**
+     * 发送后保留的最大缓冲区长度
+     */
+    private static final int MAX_RETAIN_SIZE = DEFAULT_BUFFER_SIZE;
+
+    private static final int INITIAL_SIZE = 512;
+
+    private byte[] buffer = new byte[INITIAL_SIZE];
+
+    /**
+     * 确保缓冲区容量
+     *
+     * @param capacity
+     * @return 缓冲区 扩容时保留原有内容
+     */
+    public byte[] ensureCapacity(int capacity) {
+        if (buffer.length < capacity) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+        return buffer;
+    }
+
+    /**
+     * 获取缓冲区
+     *
+     * @return
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * 发送完成 释放过大的缓冲区
+     */
+    public void release() {
+        if (buffer.length > MAX_RETAIN_SIZE) {
+            buffer = new byte[INITIAL_SIZE];
+        }
+    }
+}
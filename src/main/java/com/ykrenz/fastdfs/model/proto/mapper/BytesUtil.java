@@ -32,6 +32,24 @@ public class BytesUtil {
         return bs;
     }
 
+    /**
+     * long convert to buff (big-endian)
+     *
+     * @param n      long number
+     * @param bs     the buffer
+     * @param offset the start position based 0
+     */
+    public static void long2buff(long n, byte[] bs, int offset) {
+        bs[offset] = (byte) ((n >> 56) & 0xFF);
+        bs[offset + 1] = (byte) ((n >> 48) & 0xFF);
+        bs[offset + 2] = (byte) ((n >> 40) & 0xFF);
+        bs[offset + 3] = (byte) ((n >> 32) & 0xFF);
+        bs[offset + 4] = (byte) ((n >> 24) & 0xFF);
+        bs[offset + 5] = (byte) ((n >> 16) & 0xFF);
+        bs[offset + 6] = (byte) ((n >> 8) & 0xFF);
+        bs[offset + 7] = (byte) (n & 0xFF);
+    }
+
     /**
      * buff convert to long
      *
@@ -1,17 +1,20 @@
 package com.ykrenz.fastdfs.model.proto.mapper;
 
-import org.apache.commons.beanutils.BeanUtils;
+import com.ykrenz.fastdfs.model.proto.SendBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * param对象与byte映射器
+ * <pre>
+ * 每个类的映射定义只解析一次 编解码通过预先生成的MethodHandle读写属性
+ * </pre>
  *
  * @author tobato
  */
@@ -24,7 +27,7 @@ public class FdfsParamMapper {
     /**
      * 对象映射缓存
      */
-    private static Map<String, ObjectMetaData> mapCache = new ConcurrentHashMap<>();
+    private static Map<Class<?>, ObjectMetaData> mapCache = new ConcurrentHashMap<>();
 
     /**
      * 日志
@@ -47,19 +50,7 @@ public class FdfsParamMapper {
         if (LOGGER.isDebugEnabled()) {
             objectMap.dumpObjectMetaData();
         }
-
-        try {
-            return mapByIndex(content, genericType, objectMap, charset);
-        } catch (InstantiationException ie) {
-            LOGGER.debug("Cannot instantiate: ", ie);
-            throw new FdfsColumnMapException(ie);
-        } catch (IllegalAccessException iae) {
-            LOGGER.debug("Illegal access: ", iae);
-            throw new FdfsColumnMapException(iae);
-        } catch (InvocationTargetException ite) {
-            LOGGER.debug("Cannot invoke method: ", ite);
-            throw new FdfsColumnMapException(ite);
-        }
+        return mapByIndex(content, genericType, objectMap, charset);
     }
 
     /**
@@ -69,11 +60,7 @@ public class FdfsParamMapper {
      * @return
      */
     public static <T> ObjectMetaData getObjectMap(Class<T> genericType) {
-        if (null == mapCache.get(genericType.getName())) {
-            // 还未缓存过
-            mapCache.put(genericType.getName(), new ObjectMetaData(genericType));
-        }
-        return mapCache.get(genericType.getName());
+        return mapCache.computeIfAbsent(genericType, ObjectMetaData::new);
     }
 
     /**
@@ -83,22 +70,14 @@ public class FdfsParamMapper {
      * @param genericType
      * @param objectMap
      * @return
-     * @throws InstantiationException
-     * @throws IllegalAccessException
-     * @throws InvocationTargetException
      */
-    private static <T> T mapByIndex(byte[] content, Class<T> genericType, ObjectMetaData objectMap, Charset charset)
-            throws InstantiationException, IllegalAccessException, InvocationTargetException {
-
+    private static <T> T mapByIndex(byte[] content, Class<T> genericType, ObjectMetaData objectMap, Charset charset) {
         List<FieldMetaData> mappingFields = objectMap.getFieldList();
-        T obj = genericType.newInstance();
+        T obj = genericType.cast(objectMap.newInstance());
         for (int i = 0; i < mappingFields.size(); i++) {
-            FieldMetaData field = mappingFields.get(i);
             // 设置属性值
-            LOGGER.debug("设置值是 " + field + field.getValue(content, charset));
-            BeanUtils.setProperty(obj, field.getFieldName(), field.getValue(content, charset));
+            mappingFields.get(i).setValue(obj, content, charset);
         }
-
         return obj;
     }
 
@@ -111,48 +90,95 @@ public class FdfsParamMapper {
      */
     public static byte[] toByte(Object object, Charset charset) {
         ObjectMetaData objectMap = getObjectMap(object.getClass());
-        try {
-            return convertFieldToByte(objectMap, object, charset);
-        } catch (NoSuchMethodException ie) {
-            LOGGER.debug("Cannot invoke get methed: ", ie);
-            throw new FdfsColumnMapException(ie);
-        } catch (IllegalAccessException iae) {
-            LOGGER.debug("Illegal access: ", iae);
-            throw new FdfsColumnMapException(iae);
-        } catch (InvocationTargetException ite) {
-            LOGGER.debug("Cannot invoke method: ", ite);
-            throw new FdfsColumnMapException(ite);
-        }
+        byte[][] dynamicValues = encodeDynamicFields(objectMap, object, charset);
+        byte[] result = new byte[getSendSize(objectMap, dynamicValues)];
+        writeFields(objectMap, object, charset, dynamicValues, result, 0);
+        return result;
+    }
 
+    /**
+     * 序列化到发送缓冲区
+     *
+     * @param object
+     * @param charset
+     * @param buffer
+     * @param offset  写入位置
+     * @return 写入长度
+     */
+    public static int toByte(Object object, Charset charset, SendBuffer buffer, int offset) {
+        ObjectMetaData objectMap = getObjectMap(object.getClass());
+        byte[][] dynamicValues = encodeDynamicFields(objectMap, object, charset);
+        int size = getSendSize(objectMap, dynamicValues);
+        byte[] dest = buffer.ensureCapacity(offset + size);
+        // 缓冲区复用 定长字符串依赖补零
+        Arrays.fill(dest, offset, offset + size, (byte) 0);
+        writeFields(objectMap, object, charset, dynamicValues, dest, offset);
+        return size;
     }
 
     /**
-     * 将属性转换为byte
+     * 编码动态列 以确定报文长度
      *
      * @param objectMap
      * @param object
      * @param charset
+     * @return 按列顺序的动态列编码 没有动态列时返回null
+     */
+    private static byte[][] encodeDynamicFields(ObjectMetaData objectMap, Object object, Charset charset) {
+        if (!objectMap.hasDynamicField()) {
+            return null;
+        }
+        List<FieldMetaData> mappingFields = objectMap.getFieldList();
+        byte[][] dynamicValues = new byte[mappingFields.size()][];
+        for (int i = 0; i < mappingFields.size(); i++) {
+            FieldMetaData field = mappingFields.get(i);
+            if (field.isDynamicField()) {
+                dynamicValues[i] = field.getDynamicFieldByteValue(object, charset);
+            }
+        }
+        return dynamicValues;
+    }
+
+    /**
+     * 获取报文长度 (固定长度+动态长度)
+     *
+     * @param objectMap
+     * @param dynamicValues
      * @return
-     * @throws IllegalAccessException
-     * @throws InvocationTargetException
-     * @throws NoSuchMethodException
      */
-    private static byte[] convertFieldToByte(ObjectMetaData objectMap, Object object, Charset charset)
-            throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+    private static int getSendSize(ObjectMetaData objectMap, byte[][] dynamicValues) {
+        int size = objectMap.getFixedFieldsSize();
+        if (dynamicValues != null) {
+            for (byte[] value : dynamicValues) {
+                size += value == null ? 0 : value.length;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 将属性按列顺序写入报文
+     *
+     * @param objectMap
+     * @param object
+     * @param charset
+     * @param dynamicValues
+     * @param dest
+     * @param offset
+     */
+    private static void writeFields(ObjectMetaData objectMap, Object object, Charset charset,
+                                    byte[][] dynamicValues, byte[] dest, int offset) {
         List<FieldMetaData> mappingFields = objectMap.getFieldList();
-        // 获取报文长度 (固定长度+动态长度)
-        int size = objectMap.getFieldsSendTotalByteSize(object, charset);
-        byte[] result = new byte[size];
-        int offsize = 0;
+        int offsize = offset;
         for (int i = 0; i < mappingFields.size(); i++) {
             FieldMetaData field = mappingFields.get(i);
-            byte[] fieldByte = field.toByte(object, charset);
-            if (null != fieldByte) {
-                System.arraycopy(fieldByte, 0, result, offsize, fieldByte.length);
-                offsize += fieldByte.length;
+            if (!field.isDynamicField()) {
+                offsize += field.write(object, dest, offsize, charset);
+            } else if (null != dynamicValues[i]) {
+                System.arraycopy(dynamicValues[i], 0, dest, offsize, dynamicValues[i].length);
+                offsize += dynamicValues[i].length;
             }
         }
-        return result;
     }
 
-}
\ No newline at end of file
+}
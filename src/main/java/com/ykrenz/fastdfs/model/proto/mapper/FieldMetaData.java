@@ -2,16 +2,21 @@ package com.ykrenz.fastdfs.model.proto.mapper;
 
 import com.ykrenz.fastdfs.model.fdfs.MetaData;
 import com.ykrenz.fastdfs.model.proto.OtherConstants;
-import org.apache.commons.beanutils.PropertyUtils;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.nio.charset.Charset;
-import java.sql.Date;
+import java.util.Date;
 import java.util.Set;
 
 /**
  * 属性映射MetaData定义
+ * <pre>
+ * 解析时预先生成属性的MethodHandle读写方法 编解码时不再反射
+ * </pre>
  *
  * @author tobato
  */
@@ -21,6 +26,10 @@ class FieldMetaData {
      * 列
      */
     private Field field;
+    /**
+     * 列类型
+     */
+    private ColumnType type;
     /**
      * 列索引
      */
@@ -41,6 +50,14 @@ class FieldMetaData {
      * 动态属性类型
      */
     DynamicFieldType dynamicFieldType;
+    /**
+     * 属性读方法 (Object)fieldType
+     */
+    private MethodHandle getter;
+    /**
+     * 属性写方法 (Object,fieldType)void
+     */
+    private MethodHandle setter;
 
     /**
      * 构造函数
@@ -51,6 +68,7 @@ class FieldMetaData {
     public FieldMetaData(Field mapedfield, int offsize) {
         FdfsColumn column = mapedfield.getAnnotation(FdfsColumn.class);
         this.field = mapedfield;
+        this.type = ColumnType.of(field);
         this.index = column.index();
         this.max = column.max();
         this.size = getFieldSize(field);
@@ -60,6 +78,27 @@ class FieldMetaData {
         if (this.max > 0 && this.size > this.max) {
             this.size = this.max;
         }
+        initAccessor();
+    }
+
+    /**
+     * 生成属性读写方法
+     */
+    private void initAccessor() {
+        try {
+            field.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> fieldType = field.getType();
+            this.getter = lookup.unreflectGetter(field)
+                    .asType(MethodType.methodType(fieldType, Object.class));
+            // final属性只编码不解码
+            if (!Modifier.isFinal(field.getModifiers())) {
+                this.setter = lookup.unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, fieldType));
+            }
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new FdfsColumnMapException(field.getName() + "无法访问属性", e);
+        }
     }
 
     /**
@@ -68,23 +107,20 @@ class FieldMetaData {
      * @param field
      * @return
      */
-    private int getFieldSize(Field field) {//
-        if (String.class == field.getType()) {
-            return this.max;
-        } else if (long.class == field.getType()) {
-            return OtherConstants.FDFS_PROTO_PKG_LEN_SIZE;
-        } else if (int.class == field.getType()) {
-            return OtherConstants.FDFS_PROTO_PKG_LEN_SIZE;
-        } else if (java.util.Date.class == field.getType()) {
-            return OtherConstants.FDFS_PROTO_PKG_LEN_SIZE;
-        } else if (byte.class == field.getType()) {
-            return 1;
-        } else if (boolean.class == field.getType()) {
-            return 1;
-        } else if (Set.class == field.getType()) {
-            return 0;
+    private int getFieldSize(Field field) {
+        switch (type) {
+            case STRING:
+                return this.max;
+            case LONG:
+            case INT:
+            case DATE:
+                return OtherConstants.FDFS_PROTO_PKG_LEN_SIZE;
+            case BYTE:
+            case BOOLEAN:
+                return 1;
+            default:
+                return 0;
         }
-        throw new FdfsColumnMapException(field.getName() + "获取Field大小时未识别的FdfsColumn类型" + field.getType());
     }
 
     /**
@@ -94,23 +130,71 @@ class FieldMetaData {
      * @return
      */
     public Object getValue(byte[] bs, Charset charset) {
-        if (String.class == field.getType()) {
-            if (isDynamicField()) {
-                return (new String(bs, offsize, bs.length - offsize, charset)).trim();
+        switch (type) {
+            case STRING:
+                return getString(bs, charset);
+            case LONG:
+                return BytesUtil.buff2long(bs, offsize);
+            case INT:
+                return (int) BytesUtil.buff2long(bs, offsize);
+            case DATE:
+                return new Date(BytesUtil.buff2long(bs, offsize) * 1000);
+            case BYTE:
+                return bs[offsize];
+            case BOOLEAN:
+                return bs[offsize] != 0;
+            default:
+                throw new FdfsColumnMapException(field.getName() + "获取值时未识别的FdfsColumn类型" + field.getType());
+        }
+    }
+
+    private String getString(byte[] bs, Charset charset) {
+        if (isDynamicField()) {
+            return (new String(bs, offsize, bs.length - offsize, charset)).trim();
+        }
+        return (new String(bs, offsize, size, charset)).trim();
+    }
+
+    /**
+     * 从报文解码并设置属性值
+     *
+     * @param bean
+     * @param bs
+     * @param charset
+     */
+    public void setValue(Object bean, byte[] bs, Charset charset) {
+        if (setter == null) {
+            throw new FdfsColumnMapException(field.getName() + "为final属性 不支持解码");
+        }
+        try {
+            switch (type) {
+                case STRING:
+                    setter.invokeExact(bean, getString(bs, charset));
+                    break;
+                case LONG:
+                    setter.invokeExact(bean, BytesUtil.buff2long(bs, offsize));
+                    break;
+                case INT:
+                    setter.invokeExact(bean, (int) BytesUtil.buff2long(bs, offsize));
+                    break;
+                case DATE:
+                    Date date = new Date(BytesUtil.buff2long(bs, offsize) * 1000);
+                    setter.invokeExact(bean, date);
+                    break;
+                case BYTE:
+                    setter.invokeExact(bean, bs[offsize]);
+                    break;
+                case BOOLEAN:
+                    setter.invokeExact(bean, bs[offsize] != 0);
+                    break;
+                default:
+                    throw new FdfsColumnMapException(field.getName() + "获取值时未识别的FdfsColumn类型" + field.getType());
             }
-            return (new String(bs, offsize, size, charset)).trim();
-        } else if (long.class == field.getType()) {
-            return BytesUtil.buff2long(bs, offsize);
-        } else if (int.class == field.getType()) {
-            return (int) BytesUtil.buff2long(bs, offsize);
-        } else if (java.util.Date.class == field.getType()) {
-            return new Date(BytesUtil.buff2long(bs, offsize) * 1000);
-        } else if (byte.class == field.getType()) {
-            return bs[offsize];
-        } else if (boolean.class == field.getType()) {
-            return bs[offsize] != 0;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new FdfsColumnMapException(e);
         }
-        throw new FdfsColumnMapException(field.getName() + "获取值时未识别的FdfsColumn类型" + field.getType());
     }
 
     public Field getField() {
@@ -157,47 +241,60 @@ class FieldMetaData {
     }
 
     /**
-     * 将属性值转换为byte
+     * 将固定长度属性值写入报文
      *
+     * @param bean
+     * @param dest    预先分配好长度的报文
+     * @param offset  写入位置
      * @param charset
-     * @return
-     * @throws NoSuchMethodException
-     * @throws InvocationTargetException
-     * @throws IllegalAccessException
+     * @return 写入长度
      */
-    public byte[] toByte(Object bean, Charset charset)
-            throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
-        Object value = this.getFieldValue(bean);
-        if (isDynamicField()) {
-            return getDynamicFieldByteValue(value, charset);
-        } else if (String.class.equals(field.getType())) {
-            // 如果是动态属性
-            return BytesUtil.objString2Byte((String) value, max, charset);
-        } else if (long.class.equals(field.getType())) {
-            return BytesUtil.long2buff((long) value);
-        } else if (int.class.equals(field.getType())) {
-            return BytesUtil.long2buff((int) value);
-        } else if (Date.class.equals(field.getType())) {
-            throw new FdfsColumnMapException("Date 还不支持");
-        } else if (byte.class.equals(field.getType())) {
-            byte[] result = new byte[1];
-            result[0] = (byte) value;
-            return result;
-        } else if (boolean.class.equals(field.getType())) {
-            throw new FdfsColumnMapException("boolean 还不支持");
+    public int write(Object bean, byte[] dest, int offset, Charset charset) {
+        try {
+            switch (type) {
+                case STRING:
+                    String value = (String) getter.invokeExact(bean);
+                    if (value != null) {
+                        byte[] content = value.getBytes(charset);
+                        System.arraycopy(content, 0, dest, offset, Math.min(content.length, max));
+                    }
+                    return max;
+                case LONG:
+                    BytesUtil.long2buff((long) getter.invokeExact(bean), dest, offset);
+                    return OtherConstants.FDFS_PROTO_PKG_LEN_SIZE;
+                case INT:
+                    BytesUtil.long2buff((int) getter.invokeExact(bean), dest, offset);
+                    return OtherConstants.FDFS_PROTO_PKG_LEN_SIZE;
+                case BYTE:
+                    dest[offset] = (byte) getter.invokeExact(bean);
+                    return 1;
+                case DATE:
+                    throw new FdfsColumnMapException("Date 还不支持");
+                case BOOLEAN:
+                    throw new FdfsColumnMapException("boolean 还不支持");
+                default:
+                    throw new FdfsColumnMapException("将属性值转换为byte时未识别的FdfsColumn类型" + field.getName());
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new FdfsColumnMapException(e);
         }
-        throw new FdfsColumnMapException("将属性值转换为byte时未识别的FdfsColumn类型" + field.getName());
     }
 
     /**
      * 获取动态属性值
      *
-     * @param value
+     * @param bean
      * @param charset
-     * @return
+     * @return 属性值为空时返回null
      */
     @SuppressWarnings("unchecked")
-    private byte[] getDynamicFieldByteValue(Object value, Charset charset) {
+    public byte[] getDynamicFieldByteValue(Object bean, Charset charset) {
+        Object value = getFieldValue(bean);
+        if (null == value) {
+            return null;
+        }
         switch (dynamicFieldType) {
             // 如果是打包剩余的所有Byte
             case allRestByte:
@@ -205,8 +302,9 @@ class FieldMetaData {
             // 如果是文件metadata
             case metadata:
                 return MetadataMapper.toByte((Set<MetaData>) value, charset);
+            // 可空属性非空时按固定长度打包
             default:
-                return BytesUtil.objString2Byte((String) value, charset);
+                return BytesUtil.objString2Byte((String) value, size, charset);
         }
     }
 
@@ -215,13 +313,15 @@ class FieldMetaData {
      *
      * @param bean
      * @return
-     * @throws IllegalAccessException
-     * @throws InvocationTargetException
-     * @throws NoSuchMethodException
      */
-    private Object getFieldValue(Object bean)
-            throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
-        return PropertyUtils.getProperty(bean, field.getName());
+    private Object getFieldValue(Object bean) {
+        try {
+            return getter.invoke(bean);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new FdfsColumnMapException(e);
+        }
     }
 
     /**
@@ -230,27 +330,10 @@ class FieldMetaData {
      * @param bean
      * @param charset
      * @return
-     * @throws IllegalAccessException
-     * @throws InvocationTargetException
-     * @throws NoSuchMethodException
      */
-    @SuppressWarnings("unchecked")
-    public int getDynamicFieldByteSize(Object bean, Charset charset)
-            throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
-        Object value = PropertyUtils.getProperty(bean, field.getName());
-        if (null == value) {
-            return 0;
-        }
-        switch (dynamicFieldType) {
-            // 如果是打包剩余的所有Byte
-            case allRestByte:
-                return ((String) value).getBytes(charset).length;
-            // 如果是文件metadata
-            case metadata:
-                return MetadataMapper.toByte((Set<MetaData>) value, charset).length;
-            default:
-                return getFieldSize(field);
-        }
+    public int getDynamicFieldByteSize(Object bean, Charset charset) {
+        byte[] value = getDynamicFieldByteValue(bean, charset);
+        return value == null ? 0 : value.length;
     }
 
     /**
@@ -262,4 +345,31 @@ class FieldMetaData {
         return (!DynamicFieldType.NULL.equals(dynamicFieldType));
     }
 
+    /**
+     * 列类型 解析时确定 编解码时按类型分支
+     */
+    private enum ColumnType {
+        STRING, LONG, INT, DATE, BYTE, BOOLEAN, SET;
+
+        static ColumnType of(Field field) {
+            Class<?> type = field.getType();
+            if (String.class == type) {
+                return STRING;
+            } else if (long.class == type) {
+                return LONG;
+            } else if (int.class == type) {
+                return INT;
+            } else if (Date.class == type) {
+                return DATE;
+            } else if (byte.class == type) {
+                return BYTE;
+            } else if (boolean.class == type) {
+                return BOOLEAN;
+            } else if (Set.class == type) {
+                return SET;
+            }
+            throw new FdfsColumnMapException(field.getName() + "获取Field大小时未识别的FdfsColumn类型" + field.getType());
+        }
+    }
+
 }
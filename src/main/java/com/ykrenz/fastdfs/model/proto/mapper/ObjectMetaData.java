@@ -3,8 +3,11 @@ package com.ykrenz.fastdfs.model.proto.mapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -15,6 +18,7 @@ import java.util.List;
  * <p>
  * <pre>
  * 映射对象元数据必须由{@code @FdfsColumn}注解
+ * 构造方法和属性读写方法在解析时生成MethodHandle 由{@link FdfsParamMapper}缓存复用
  * </pre>
  *
  * @author tobato
@@ -46,6 +50,11 @@ public class ObjectMetaData {
      */
     private int fieldsTotalSize = 0;
 
+    /**
+     * 无参构造方法 ()Object 仅编码的对象可以没有
+     */
+    private MethodHandle constructor;
+
     /**
      * 映射对象元数据构造函数
      *
@@ -54,17 +63,54 @@ public class ObjectMetaData {
     public <T> ObjectMetaData(Class<T> genericType) {
         // 获得对象类名
         this.className = genericType.getName();
-        this.fieldList = praseFieldList(genericType);
+        this.fieldList = Collections.unmodifiableList(praseFieldList(genericType));
+        this.constructor = findConstructor(genericType);
         // 校验映射定义
         validatFieldListDefine();
     }
 
+    /**
+     * 查找无参构造方法
+     *
+     * @param genericType
+     * @return 没有无参构造方法时返回null
+     */
+    private MethodHandle findConstructor(Class<?> genericType) {
+        try {
+            Constructor<?> ctor = genericType.getDeclaredConstructor();
+            ctor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(ctor)
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            LOGGER.debug("{} 没有可用的无参构造方法 只能用于编码", className);
+            return null;
+        }
+    }
+
+    /**
+     * 创建映射对象
+     *
+     * @return
+     */
+    public Object newInstance() {
+        if (constructor == null) {
+            throw new FdfsColumnMapException("Cannot instantiate: " + className);
+        }
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new FdfsColumnMapException(e);
+        }
+    }
+
     public String getClassName() {
         return className;
     }
 
     public List<FieldMetaData> getFieldList() {
-        return Collections.unmodifiableList(fieldList);
+        return fieldList;
     }
 
     /**
@@ -122,25 +168,16 @@ public class ObjectMetaData {
      *
      * @return
      */
-    private boolean hasDynamicField() {
-        for (FieldMetaData field : fieldList) {
-            if (field.isDynamicField()) {
-                return true;
-            }
-        }
-        return false;
+    boolean hasDynamicField() {
+        return !dynamicFieldList.isEmpty();
     }
 
     /**
      * 获取动态数据列长度
      *
      * @return
-     * @throws NoSuchMethodException
-     * @throws InvocationTargetException
-     * @throws IllegalAccessException
      */
-    private int getDynamicFieldSize(Object obj, Charset charset)
-            throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+    private int getDynamicFieldSize(Object obj, Charset charset) {
         int size = 0;
         for (FieldMetaData field : dynamicFieldList) {
             size = size + field.getDynamicFieldByteSize(obj, charset);
@@ -161,15 +198,21 @@ public class ObjectMetaData {
         return fieldsTotalSize;
     }
 
+    /**
+     * 获取固定长度列总长度 不含动态列
+     *
+     * @return
+     */
+    int getFixedFieldsSize() {
+        return fieldsTotalSize;
+    }
+
     /**
      * 获取需要发送的报文长度
      *
      * @param bean
      * @param charset
      * @return
-     * @throws NoSuchMethodException
-     * @throws InvocationTargetException
-     * @throws IllegalAccessException
      */
     public int getFieldsSendTotalByteSize(Object bean, Charset charset) {
         if (!hasDynamicField()) {
@@ -187,19 +230,7 @@ public class ObjectMetaData {
      * @return
      */
     private int getDynamicTotalFieldSize(Object bean, Charset charset) {
-        try {
-            int dynamicFieldSize = getDynamicFieldSize(bean, charset);
-            return fieldsTotalSize + dynamicFieldSize;
-        } catch (NoSuchMethodException ie) {
-            LOGGER.debug("Cannot invoke get methed: ", ie);
-            throw new FdfsColumnMapException(ie);
-        } catch (IllegalAccessException iae) {
-            LOGGER.debug("Illegal access: ", iae);
-            throw new FdfsColumnMapException(iae);
-        } catch (InvocationTargetException ite) {
-            LOGGER.debug("Cannot invoke method: ", ite);
-            throw new FdfsColumnMapException(ite);
-        }
+        return fieldsTotalSize + getDynamicFieldSize(bean, charset);
     }
 
     /**
@@ -0,0 +1,29 @@
+package com.ykrenz.fastdfs.model.proto.storage;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 支持channel的文件下载回调接口
+ * <pre>
+ * 连接为SocketChannel时报文内容直接以channel的形式回调 否则仍按输入流回调
+ * </pre>
+ *
+ * @param <T>
+ * @author ykren
+ */
+public interface DownloadChannelCallback<T> extends DownloadCallback<T> {
+
+    /**
+     * 从channel接收文件内容
+     * <p>
+     * 必须且只能读取size长度的数据 不能关闭channel
+     *
+     * @param channel 连接channel
+     * @param size    报文内容长度
+     * @return
+     * @throws IOException
+     */
+    T recv(ReadableByteChannel channel, long size) throws IOException;
+
+}
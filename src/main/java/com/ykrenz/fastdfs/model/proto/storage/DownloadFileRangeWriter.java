@@ -0,0 +1,72 @@
+package com.ykrenz.fastdfs.model.proto.storage;
+
+import com.ykrenz.fastdfs.common.BufferPool;
+import com.ykrenz.fastdfs.common.ChannelUtils;
+import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 文件片段下载回调方法
+ * <pre>
+ * 将下载内容写入文件的指定位置 不改变FileChannel的position 可多线程写入同一文件
+ * 文件由调用方打开和关闭
+ * </pre>
+ *
+ * @author ykren
+ */
+public class DownloadFileRangeWriter implements DownloadChannelCallback<Long> {
+
+    /**
+     * 目标文件
+     */
+    private final FileChannel fileChannel;
+
+    /**
+     * 写入起始位置
+     */
+    private final long position;
+
+    public DownloadFileRangeWriter(FileChannel fileChannel, long position) {
+        this.fileChannel = fileChannel;
+        this.position = position;
+    }
+
+    /**
+     * 文件接收处理
+     *
+     * @return 写入长度
+     */
+    @Override
+    public Long recv(InputStream ins) throws IOException {
+        byte[] buffer = BufferPool.getDefault().acquire(FastDFSConstants.DEFAULT_BUFFER_SIZE);
+        try {
+            long written = 0;
+            int n;
+            while ((n = ins.read(buffer)) != -1) {
+                ByteBuffer buf = ByteBuffer.wrap(buffer, 0, n);
+                while (buf.hasRemaining()) {
+                    written += fileChannel.write(buf, position + written);
+                }
+            }
+            return written;
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+    }
+
+    /**
+     * 文件接收处理 channel
+     *
+     * @return 写入长度
+     */
+    @Override
+    public Long recv(ReadableByteChannel channel, long size) throws IOException {
+        return ChannelUtils.transferFrom(channel, fileChannel, position, size);
+    }
+
+}
@@ -1,22 +1,28 @@
 package com.ykrenz.fastdfs.model.proto.storage;
 
+import com.ykrenz.fastdfs.common.BufferPool;
+import com.ykrenz.fastdfs.common.ChannelUtils;
+import com.ykrenz.fastdfs.model.fdfs.FastDFSConstants;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * 文件下载回调方法
+ * <p>
+ * 连接为SocketChannel时通过FileChannel.transferFrom直接写入文件
+ * 源不是FileChannel时JDK经临时直接缓冲区中转 每块仍有一次用户态拷贝 但省去了堆内数组和流的额外拷贝
  *
  * @author tobato
  */
-public class DownloadFileWriter implements DownloadCallback<String> {
+public class DownloadFileWriter implements DownloadChannelCallback<String> {
 
     /**
      * 日志
@@ -37,11 +43,24 @@ public class DownloadFileWriter implements DownloadCallback<String> {
      */
     @Override
     public String recv(InputStream ins) throws IOException {
-        try (InputStream in = new BufferedInputStream(ins);
-             FileOutputStream out = FileUtils.openOutputStream(new File(fileName))) {
+        byte[] buffer = BufferPool.getDefault().acquire(FastDFSConstants.DEFAULT_BUFFER_SIZE);
+        try (FileOutputStream out = FileUtils.openOutputStream(new File(fileName))) {
             // 通过ioutil 对接输入输出流，实现文件下载
-            IOUtils.copy(in, out);
+            IOUtils.copyLarge(ins, out, buffer);
             out.flush();
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+        return fileName;
+    }
+
+    /**
+     * 文件接收处理 channel
+     */
+    @Override
+    public String recv(ReadableByteChannel channel, long size) throws IOException {
+        try (FileOutputStream out = FileUtils.openOutputStream(new File(fileName))) {
+            ChannelUtils.transferFrom(channel, out.getChannel(), 0, size);
         }
         return fileName;
     }
@@ -1,8 +1,8 @@
 package com.ykrenz.fastdfs.model.proto.storage;
 
+import com.ykrenz.fastdfs.common.BufferPool;
 import org.apache.commons.io.IOUtils;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -82,10 +82,11 @@ public class DownloadOutputStream implements DownloadCallback<Void> {
     @Override
     public Void recv(InputStream ins) throws IOException {
         // 实现文件下载
-        byte[] buffer = new byte[bufferLength];
-        try (BufferedInputStream bufferedInputStream = new BufferedInputStream(ins);) {
-            IOUtils.copyLarge(bufferedInputStream, outputStream, buffer);
+        byte[] buffer = BufferPool.getDefault().acquire(bufferLength);
+        try {
+            IOUtils.copyLarge(ins, outputStream, buffer);
         } finally {
+            BufferPool.getDefault().release(buffer);
             if (close) {
                 outputStream.close();
             }
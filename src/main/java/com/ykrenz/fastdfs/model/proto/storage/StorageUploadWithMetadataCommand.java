@@ -0,0 +1,54 @@
+package com.ykrenz.fastdfs.model.proto.storage;
+
+import com.ykrenz.fastdfs.conn.Connection;
+import com.ykrenz.fastdfs.metrics.CommandSample;
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+import com.ykrenz.fastdfs.model.fdfs.StorePath;
+import com.ykrenz.fastdfs.model.proto.FdfsCommand;
+import com.ykrenz.fastdfs.model.proto.storage.enums.StorageMetadataSetType;
+
+import java.util.Set;
+
+/**
+ * 上传文件并设置元数据
+ * <pre>
+ * 上传和设置元数据在同一个连接上顺序执行 解析上传响应后立即发送设置元数据请求
+ * 中间不归还连接 小文件上传时减少一次连接借还
+ * 设置元数据需要上传响应返回的文件名 因此两个请求不能流水线发送
+ * </pre>
+ *
+ * @author ykren
+ */
+public class StorageUploadWithMetadataCommand implements FdfsCommand<StorePath> {
+
+    /**
+     * 上传命令
+     */
+    private final FdfsCommand<StorePath> uploadCommand;
+
+    /**
+     * 元数据
+     */
+    private final Set<MetaData> metaDataSet;
+
+    public StorageUploadWithMetadataCommand(FdfsCommand<StorePath> uploadCommand, Set<MetaData> metaDataSet) {
+        this.uploadCommand = uploadCommand;
+        this.metaDataSet = metaDataSet;
+    }
+
+    @Override
+    public StorePath execute(Connection conn) {
+        StorePath path = uploadCommand.execute(conn);
+        new StorageSetMetadataCommand(path.getGroup(), path.getPath(), metaDataSet,
+                StorageMetadataSetType.STORAGE_SET_METADATA_FLAG_OVERWRITE).execute(conn);
+        return path;
+    }
+
+    @Override
+    public StorePath execute(Connection conn, CommandSample sample) {
+        StorePath path = uploadCommand.execute(conn, sample);
+        new StorageSetMetadataCommand(path.getGroup(), path.getPath(), metaDataSet,
+                StorageMetadataSetType.STORAGE_SET_METADATA_FLAG_OVERWRITE).execute(conn, sample);
+        return path;
+    }
+}
@@ -2,10 +2,13 @@ package com.ykrenz.fastdfs.model.proto.storage.internal;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 
+import com.ykrenz.fastdfs.conn.ChannelInputStream;
 import com.ykrenz.fastdfs.model.proto.FdfsResponse;
 import com.ykrenz.fastdfs.model.proto.storage.DownloadCallback;
+import com.ykrenz.fastdfs.model.proto.storage.DownloadChannelCallback;
 import com.ykrenz.fastdfs.model.proto.storage.FdfsInputStream;
 
 /**
@@ -28,6 +31,12 @@ public class StorageDownloadResponse<T> extends FdfsResponse<T> {
      */
     @Override
     public T decodeContent(InputStream in, Charset charset) throws IOException {
+        // 直接从channel接收 读取仍受soTimeout控制
+        if (callback instanceof DownloadChannelCallback && in instanceof ChannelInputStream) {
+            try (ReadableByteChannel channel = ((ChannelInputStream) in).openReadChannel()) {
+                return ((DownloadChannelCallback<T>) callback).recv(channel, getContentLength());
+            }
+        }
         // 解析报文内容
         FdfsInputStream input = new FdfsInputStream(in, getContentLength());
         return callback.recv(input);
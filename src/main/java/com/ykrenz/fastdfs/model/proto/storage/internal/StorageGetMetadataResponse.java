@@ -4,6 +4,7 @@ import com.ykrenz.fastdfs.model.fdfs.MetaData;
 import com.ykrenz.fastdfs.model.proto.FdfsResponse;
 import com.ykrenz.fastdfs.model.proto.mapper.MetadataMapper;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
@@ -31,7 +32,7 @@ public class StorageGetMetadataResponse extends FdfsResponse<Set<MetaData>> {
         byte[] bytes = new byte[(int) getContentLength()];
         int contentSize = in.read(bytes);
         if (contentSize != getContentLength()) {
-            throw new IOException("读取到的数据长度与协议长度不符");
+            throw new EOFException("读取到的数据长度与协议长度不符");
         }
         return MetadataMapper.fromByte(bytes, charset);
 
@@ -57,13 +57,12 @@ public class StorageModifyRequest extends FdfsRequest {
     }
 
     /**
-     * 打包参数
+     * 计算运行时参数
      */
     @Override
-    public byte[] encodeParam(Charset charset) {
+    protected void prepareParam(Charset charset) {
         // 运行时参数在此计算值
         this.pathSize = path.getBytes(charset).length;
-        return super.encodeParam(charset);
     }
 
     public long getPathSize() {
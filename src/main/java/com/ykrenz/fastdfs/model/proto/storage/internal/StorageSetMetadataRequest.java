@@ -74,14 +74,13 @@ public class StorageSetMetadataRequest extends FdfsRequest {
     }
 
     /**
-     * 打包参数
+     * 计算运行时参数
      */
     @Override
-    public byte[] encodeParam(Charset charset) {
+    protected void prepareParam(Charset charset) {
         // 运行时参数在此计算值
         this.fileNameByteLengh = path.getBytes(charset).length;
         this.metaDataByteLength = getMetaDataSetByteSize(charset);
-        return super.encodeParam(charset);
     }
 
     /**
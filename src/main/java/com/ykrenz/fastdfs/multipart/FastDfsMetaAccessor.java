@@ -62,6 +62,6 @@ public class FastDfsMetaAccessor implements MultipartAttachmentAccessor {
 
     private MultipartUploadAttachment parseMeta(String value) {
         String[] arr = value.split(DELIMITER);
-        return new MultipartUploadAttachment(Integer.parseInt(arr[0]), Integer.parseInt(arr[1]));
+        return new MultipartUploadAttachment(Long.parseLong(arr[0]), Long.parseLong(arr[1]));
     }
 }
@@ -0,0 +1,78 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.model.proto.SendBuffer;
+import com.ykrenz.fastdfs.model.proto.storage.StorageUploadFileCommand;
+import com.ykrenz.fastdfs.model.proto.storage.internal.StorageUploadFileRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 命令报文发送测试
+ *
+ * @author ykren
+ */
+public class AbstractFdfsCommandTest {
+
+    private final Charset charset = StandardCharsets.UTF_8;
+
+    private byte[] concat(byte[]... parts) {
+        int size = 0;
+        for (byte[] part : parts) {
+            size += part.length;
+        }
+        byte[] result = new byte[size];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    /**
+     * 发送上传命令 返回写出的报文
+     */
+    private byte[] sendUpload(byte[] content, SendBuffer buffer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StorageUploadFileCommand((byte) 0, new ByteArrayInputStream(content), "txt", content.length, false) {
+            void sendTo(OutputStream out, SendBuffer buffer) throws IOException {
+                send(out, charset, buffer);
+            }
+        }.sendTo(out, buffer);
+        return out.toByteArray();
+    }
+
+    private byte[] expectedFrame(byte[] content) {
+        StorageUploadFileRequest request = new StorageUploadFileRequest((byte) 0,
+                new ByteArrayInputStream(content), "txt", content.length, false);
+        return concat(request.getHeadByte(charset), request.encodeParam(charset), content);
+    }
+
+    @Test
+    public void inlineFrameTest() throws IOException {
+        // 小文件与报文头合并发送 连接缓冲区只保留报文头和参数大小
+        byte[] content = new byte[60 * 1024];
+        Arrays.fill(content, (byte) 7);
+        SendBuffer buffer = new SendBuffer();
+        Assert.assertArrayEquals(expectedFrame(content), sendUpload(content, buffer));
+        Assert.assertTrue(buffer.array().length <= 8 * 1024);
+    }
+
+    @Test
+    public void streamFrameTest() throws IOException {
+        // 超过合并上限时报文头和文件内容分开写出 报文内容不变
+        byte[] content = new byte[SendBuffer.MAX_INLINE_BODY_SIZE + 1];
+        Arrays.fill(content, (byte) 9);
+        SendBuffer buffer = new SendBuffer();
+        Assert.assertArrayEquals(expectedFrame(content), sendUpload(content, buffer));
+        Assert.assertTrue(buffer.array().length <= 8 * 1024);
+    }
+}
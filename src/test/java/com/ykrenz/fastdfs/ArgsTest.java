@@ -2,6 +2,7 @@ package com.ykrenz.fastdfs;
 
 import com.ykrenz.fastdfs.model.AppendFileRequest;
 import com.ykrenz.fastdfs.model.ModifyFileRequest;
+import com.ykrenz.fastdfs.model.ParallelMultipartUploadRequest;
 import com.ykrenz.fastdfs.model.UploadFileRequest;
 import com.ykrenz.fastdfs.model.UploadSalveFileRequest;
 import com.ykrenz.fastdfs.model.fdfs.MetaData;
@@ -151,4 +152,20 @@ public class ArgsTest {
                 .metaData("key", "value", StorageMetadataSetType.STORAGE_SET_METADATA_FLAG_OVERWRITE)
                 .build();
     }
+
+    @Test
+    public void ParallelMultipartUploadRequest() {
+        ParallelMultipartUploadRequest request = ParallelMultipartUploadRequest.builder()
+                .file(file)
+                .build();
+        Assert.assertNotNull(request.file());
+        Assert.assertEquals("txt", request.fileExtName());
+
+        try {
+            ParallelMultipartUploadRequest.builder().file(null).build();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("upload content cannot be empty. ", e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.model.UploadFileRequest;
+import com.ykrenz.fastdfs.model.fdfs.FileInfo;
+import com.ykrenz.fastdfs.model.fdfs.StorePath;
+import com.ykrenz.fastdfs.model.proto.storage.DownloadByteArray;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 异步客户端测试
+ *
+ * @author ykren
+ */
+public class AsyncFastDfsTest extends BaseClientTest {
+
+    @Test
+    public void asyncTest() {
+        AsyncFastDfs asyncFastDfs = new AsyncFastDfsClient((FastDfsClient) fastDFS);
+        RandomTextFile file = new RandomTextFile();
+        UploadFileRequest request = UploadFileRequest.builder()
+                .stream(file.getInputStream(), file.getFileSize(), file.getFileExtName())
+                .build();
+
+        CompletableFuture<FileInfo> future = asyncFastDfs.uploadFile(request)
+                .thenCompose(storePath -> asyncFastDfs.queryFileInfo(storePath.getGroup(), storePath.getPath()));
+        FileInfo fileInfo = future.join();
+        assertNotNull(fileInfo);
+        assertEquals(file.getFileSize(), fileInfo.getFileSize());
+
+        StorePath storePath = uploadRandomFile();
+        byte[] bytes = asyncFastDfs.downloadFile(storePath.getGroup(), storePath.getPath(),
+                new DownloadByteArray()).join();
+        assertEquals(queryFile(storePath).getFileSize(), bytes.length);
+        asyncFastDfs.deleteFile(storePath.getGroup(), storePath.getPath()).join();
+    }
+}
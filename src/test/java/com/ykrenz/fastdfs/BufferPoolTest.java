@@ -0,0 +1,55 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.common.BufferPool;
+import com.ykrenz.fastdfs.model.PooledBufferedInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class BufferPoolTest {
+
+    @Test
+    public void poolTest() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        // 按级别向上取整
+        byte[] small = pool.acquire(100);
+        Assert.assertEquals(8 * 1024, small.length);
+        Assert.assertEquals(64 * 1024, pool.acquire(10 * 1024).length);
+        Assert.assertEquals(2 * 1024 * 1024, pool.acquire(2 * 1024 * 1024).length);
+
+        pool.release(small);
+        Assert.assertEquals(8 * 1024, pool.getPooledBytes());
+        Assert.assertSame(small, pool.acquire(8 * 1024));
+        Assert.assertEquals(1, pool.getHitCount());
+        Assert.assertEquals(0, pool.getPooledBytes());
+
+        // 长度不符和超出上限的缓冲区丢弃
+        pool.release(new byte[100]);
+        pool.release(new byte[512 * 1024]);
+        pool.release(new byte[512 * 1024]);
+        pool.release(new byte[512 * 1024]);
+        Assert.assertEquals(1024 * 1024, pool.getPooledBytes());
+        Assert.assertEquals(2, pool.getDiscardCount());
+
+        pool.clear();
+        Assert.assertEquals(0, pool.getPooledBytes());
+        pool.setMaxPooledBytes(0);
+        pool.release(small);
+        Assert.assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void streamTest() throws IOException {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        byte[] bytes = new byte[100 * 1024];
+        InputStream in = new PooledBufferedInputStream(new ByteArrayInputStream(bytes), 512 * 1024, pool);
+        Assert.assertEquals(bytes.length, in.read(new byte[bytes.length]));
+        in.close();
+        in.close();
+        Assert.assertEquals(512 * 1024, pool.getPooledBytes());
+        Assert.assertEquals(1, pool.getReleaseCount());
+    }
+}
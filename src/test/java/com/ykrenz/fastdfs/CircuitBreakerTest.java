@@ -0,0 +1,112 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.config.CircuitBreakerConfiguration;
+import com.ykrenz.fastdfs.conn.CircuitBreaker;
+import com.ykrenz.fastdfs.exception.FdfsClientException;
+import com.ykrenz.fastdfs.exception.FdfsConnectException;
+import com.ykrenz.fastdfs.exception.FdfsIOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreakerTest {
+
+    private CircuitBreaker breaker(CircuitBreakerConfiguration config) {
+        return new CircuitBreaker(new InetSocketAddress("10.0.0.1", 23000), config);
+    }
+
+    @Test
+    public void consecutiveFailureTest() throws InterruptedException {
+        CircuitBreakerConfiguration config = new CircuitBreakerConfiguration();
+        config.setOpenMillis(200);
+        CircuitBreaker breaker = breaker(config);
+        for (int i = 0; i < config.getConsecutiveFailures() - 1; i++) {
+            Assert.assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+        Assert.assertEquals(1, breaker.getRejectedCount());
+
+        // 经过openMillis后只放行一个探测请求 失败时重新熔断
+        Thread.sleep(250);
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+        breaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+
+        // 探测成功后恢复
+        Thread.sleep(250);
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(0);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void rateTest() {
+        CircuitBreakerConfiguration config = new CircuitBreakerConfiguration();
+        CircuitBreaker breaker = breaker(config);
+        // 失败比例达到阈值 请求数不足时不熔断
+        for (int i = 0; i < 9; i++) {
+            breaker.onFailure();
+            breaker.onSuccess(0);
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onSuccess(0);
+        breaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 慢请求比例达到阈值
+        breaker = breaker(config);
+        long slow = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallMillis() + 1);
+        for (int i = 0; i < 16; i++) {
+            breaker.onSuccess(slow);
+        }
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(0);
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onSuccess(0);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void failureClassifyTest() throws InterruptedException {
+        Assert.assertTrue(CircuitBreaker.isFailure(new FdfsConnectException("connect", new ConnectException())));
+        Assert.assertTrue(CircuitBreaker.isFailure(new FdfsIOException("recv", new SocketTimeoutException())));
+        Assert.assertTrue(CircuitBreaker.isFailure(new FdfsIOException("recv", new SocketException("reset"))));
+        Assert.assertTrue(CircuitBreaker.isFailure(new FdfsIOException("recv", new EOFException())));
+        // 连接池耗尽、本地文件及回调异常、中断不计入
+        Assert.assertFalse(CircuitBreaker.isFailure(
+                new FdfsClientException("Unable to get connection from pool", new NoSuchElementException())));
+        Assert.assertFalse(CircuitBreaker.isFailure(new FdfsIOException("send", new IOException("local file"))));
+        Assert.assertFalse(CircuitBreaker.isFailure(new FdfsIOException("recv", new ClosedByInterruptException())));
+        Assert.assertFalse(CircuitBreaker.isFailure(new IllegalStateException()));
+
+        // HALF_OPEN时忽略的请求释放探测名额
+        CircuitBreakerConfiguration config = new CircuitBreakerConfiguration();
+        config.setConsecutiveFailures(1);
+        config.setOpenMillis(50);
+        CircuitBreaker breaker = breaker(config);
+        breaker.onFailure();
+        Thread.sleep(80);
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onIgnore();
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire());
+    }
+}
@@ -4,6 +4,7 @@ package com.ykrenz.fastdfs;
 import com.ykrenz.fastdfs.event.UploadProgressListener;
 import com.ykrenz.fastdfs.model.DownloadFileRequest;
 import com.ykrenz.fastdfs.model.MetaDataRequest;
+import com.ykrenz.fastdfs.model.ParallelDownloadFileRequest;
 import com.ykrenz.fastdfs.model.ThumbImage;
 import com.ykrenz.fastdfs.model.UploadFileRequest;
 import com.ykrenz.fastdfs.model.UploadImageRequest;
@@ -170,6 +171,22 @@ public class FastDfsClientTest extends BaseClientTest {
         delete(storePath);
     }
 
+    @Test
+    public void downLoadParallelTest() throws IOException {
+        StorePath storePath = uploadRandomFile();
+        ParallelDownloadFileRequest request = ParallelDownloadFileRequest.builder()
+                .groupName(storePath.getGroup())
+                .path(storePath.getPath())
+                .fileName("tmp/parallel.txt")
+                .partSize(16)
+                .parallelism(3)
+                .build();
+        fastDFS.downloadFileParallel(request);
+        byte[] bytes = fastDFS.downloadFile(storePath.getGroup(), storePath.getPath(), new DownloadByteArray());
+        assertArrayEquals(bytes, FileUtils.readFileToByteArray(new File("tmp/parallel.txt")));
+        delete(storePath);
+    }
+
     @Test
     public void uploadImageTest() throws IOException {
         File file = getFile();
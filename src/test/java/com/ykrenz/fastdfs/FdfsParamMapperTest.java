@@ -0,0 +1,102 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.model.fdfs.FileInfo;
+import com.ykrenz.fastdfs.model.fdfs.MetaData;
+import com.ykrenz.fastdfs.model.fdfs.StorageState;
+import com.ykrenz.fastdfs.model.proto.OtherConstants;
+import com.ykrenz.fastdfs.model.proto.SendBuffer;
+import com.ykrenz.fastdfs.model.proto.mapper.BytesUtil;
+import com.ykrenz.fastdfs.model.proto.mapper.FdfsParamMapper;
+import com.ykrenz.fastdfs.model.proto.mapper.MetadataMapper;
+import com.ykrenz.fastdfs.model.proto.storage.enums.StorageMetadataSetType;
+import com.ykrenz.fastdfs.model.proto.storage.internal.StorageDownloadRequest;
+import com.ykrenz.fastdfs.model.proto.storage.internal.StorageSetMetadataRequest;
+import com.ykrenz.fastdfs.model.proto.tracker.internal.TrackerListStoragesRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class FdfsParamMapperTest {
+
+    private final Charset charset = StandardCharsets.UTF_8;
+
+    private byte[] fixed(String value, int size) {
+        return BytesUtil.objString2Byte(value, size, charset);
+    }
+
+    private byte[] concat(byte[]... parts) {
+        int size = 0;
+        for (byte[] part : parts) {
+            size += part.length;
+        }
+        byte[] result = new byte[size];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    @Test
+    public void encodeTest() {
+        StorageDownloadRequest download = new StorageDownloadRequest("group1", "M00/00/00/a.txt", 5, 7);
+        Assert.assertArrayEquals(concat(BytesUtil.long2buff(5), BytesUtil.long2buff(7),
+                fixed("group1", OtherConstants.FDFS_GROUP_NAME_MAX_LEN), "M00/00/00/a.txt".getBytes(charset)),
+                FdfsParamMapper.toByte(download, charset));
+
+        // 可空属性为空时不打包
+        Assert.assertArrayEquals(fixed("group1", OtherConstants.FDFS_GROUP_NAME_MAX_LEN),
+                FdfsParamMapper.toByte(new TrackerListStoragesRequest("group1"), charset));
+        Assert.assertEquals(OtherConstants.FDFS_GROUP_NAME_MAX_LEN + OtherConstants.FDFS_IPADDR_SIZE - 1,
+                FdfsParamMapper.toByte(new TrackerListStoragesRequest("group1", "10.0.0.1"), charset).length);
+
+        Set<MetaData> metaData = new HashSet<>();
+        metaData.add(new MetaData("width", "100"));
+        StorageSetMetadataRequest setMetadata = new StorageSetMetadataRequest("group1", "M00/a", metaData,
+                StorageMetadataSetType.STORAGE_SET_METADATA_FLAG_MERGE);
+        byte[] metaBytes = MetadataMapper.toByte(metaData, charset);
+        byte[] bytes = FdfsParamMapper.toByte(setMetadata, charset);
+        Assert.assertEquals(16 + 1 + OtherConstants.FDFS_GROUP_NAME_MAX_LEN + 5 + metaBytes.length, bytes.length);
+    }
+
+    @Test
+    public void encodeFrameTest() {
+        SendBuffer buffer = new SendBuffer();
+        StorageDownloadRequest download = new StorageDownloadRequest("group1", "M00/00/00/long-file-name.txt", 5, 7);
+        int length = download.encode(buffer, charset);
+        Assert.assertArrayEquals(concat(download.getHeadByte(charset), download.encodeParam(charset)),
+                Arrays.copyOf(buffer.array(), length));
+
+        // 复用缓冲区时定长字段补零
+        TrackerListStoragesRequest list = new TrackerListStoragesRequest("g", "10.0.0.1");
+        length = list.encode(buffer, charset);
+        Assert.assertArrayEquals(concat(list.getHeadByte(charset), list.encodeParam(charset)),
+                Arrays.copyOf(buffer.array(), length));
+    }
+
+    @Test
+    public void decodeTest() {
+        byte[] fileInfo = concat(BytesUtil.long2buff(1024), BytesUtil.long2buff(1600000000),
+                BytesUtil.long2buff(0xFFFFFFFFL), fixed("10.0.0.1", OtherConstants.FDFS_IPADDR_SIZE));
+        FileInfo info = FdfsParamMapper.map(fileInfo, FileInfo.class, charset);
+        Assert.assertEquals(1024, info.getFileSize());
+        Assert.assertEquals(1600000000, info.getCreateTime());
+        Assert.assertEquals(-1, info.getCrc32());
+        Assert.assertEquals("10.0.0.1", info.getSourceIpAddr());
+
+        int size = FdfsParamMapper.getObjectMap(StorageState.class).getFieldsFixTotalSize();
+        byte[] bytes = new byte[size];
+        bytes[0] = OtherConstants.FDFS_STORAGE_STATUS_ACTIVE;
+        bytes[size - 1] = 1;
+        StorageState state = FdfsParamMapper.map(bytes, StorageState.class, charset);
+        Assert.assertTrue(state.isActive());
+        Assert.assertTrue(state.isTrunkServer());
+        Assert.assertEquals(0, state.getJoinTime().getTime());
+    }
+}
@@ -0,0 +1,121 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.conn.HedgePolicy;
+import com.ykrenz.fastdfs.exception.FdfsConnectException;
+import com.ykrenz.fastdfs.exception.FdfsServerException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HedgePolicyTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final InetSocketAddress primary = new InetSocketAddress("10.0.0.1", 23000);
+
+    private final InetSocketAddress backup = new InetSocketAddress("10.0.0.2", 23000);
+
+    @After
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void hedgeTest() {
+        HedgePolicy hedge = new HedgePolicy(0.95, 50);
+        // 首个请求慢时取对冲请求的结果
+        String result = hedge.execute(executor, primary, () -> backup, address -> {
+            if (address.equals(primary)) {
+                sleep(1000);
+            }
+            return address.getHostString();
+        });
+        Assert.assertEquals("10.0.0.2", result);
+        Assert.assertEquals(1, hedge.getHedgeCount());
+        Assert.assertEquals(1, hedge.getHedgeWinCount());
+
+        // 延迟内返回不对冲
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals("10.0.0.1", hedge.execute(executor, primary, () -> backup,
+                    InetSocketAddress::getHostString));
+        }
+        Assert.assertEquals(1, hedge.getHedgeCount());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(50), hedge.getDelayNanos());
+
+        // 对冲请求不超过总请求数的10%
+        for (int i = 0; i < 5; i++) {
+            hedge.execute(executor, primary, () -> backup, address -> {
+                if (address.equals(primary)) {
+                    sleep(100);
+                }
+                return address.getHostString();
+            });
+        }
+        Assert.assertEquals(3, hedge.getHedgeCount());
+    }
+
+    @Test
+    public void failoverTest() {
+        HedgePolicy hedge = new HedgePolicy(0.95, 5000);
+        // 首个请求失败时立即发送到另一storage
+        AtomicInteger calls = new AtomicInteger();
+        long start = System.nanoTime();
+        String result = hedge.execute(executor, primary, () -> backup, address -> {
+            calls.incrementAndGet();
+            if (address.equals(primary)) {
+                throw new FdfsConnectException("connect error", null);
+            }
+            return address.getHostString();
+        });
+        Assert.assertEquals("10.0.0.2", result);
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2500));
+
+        // 服务端错误码直接抛出
+        calls.set(0);
+        try {
+            hedge.execute(executor, primary, () -> backup, address -> {
+                calls.incrementAndGet();
+                throw FdfsServerException.byCode(2);
+            });
+            Assert.fail();
+        } catch (FdfsServerException e) {
+            Assert.assertEquals(1, calls.get());
+        }
+
+        // 无其他storage时抛出首个请求的异常
+        try {
+            hedge.execute(executor, primary, () -> null, address -> {
+                throw new FdfsConnectException("connect error", null);
+            });
+            Assert.fail();
+        } catch (FdfsConnectException e) {
+            Assert.assertEquals("connect error", e.getMessage());
+        }
+
+        // 无其他storage时发送到failover
+        calls.set(0);
+        result = hedge.execute(executor, primary, () -> null, () -> backup, address -> {
+            calls.incrementAndGet();
+            if (address.equals(primary)) {
+                throw new FdfsConnectException("connect error", null);
+            }
+            return address.getHostString();
+        });
+        Assert.assertEquals("10.0.0.2", result);
+        Assert.assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,126 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.config.ConnectionConfiguration;
+import com.ykrenz.fastdfs.conn.Connection;
+import com.ykrenz.fastdfs.conn.LockFreeConnectionPool;
+import com.ykrenz.fastdfs.conn.PooledConnectionFactory;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.NoSuchElementException;
+
+public class LockFreeConnectionPoolTest {
+
+    private ServerSocket server;
+
+    private InetSocketAddress address;
+
+    private ConnectionConfiguration configuration;
+
+    private GenericKeyedObjectPoolConfig poolConfig;
+
+    @Before
+    public void init() throws IOException {
+        // 只建立连接 不需要服务端响应
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        configuration = new ConnectionConfiguration();
+        poolConfig = configuration.getPool();
+        poolConfig.setTestOnBorrow(false);
+        poolConfig.setMaxTotalPerKey(2);
+        poolConfig.setMaxIdlePerKey(1);
+        poolConfig.setMaxWaitMillis(100);
+    }
+
+    @After
+    public void close() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void borrowReturnTest() throws Exception {
+        LockFreeConnectionPool pool = new LockFreeConnectionPool(configuration);
+        Connection c1 = pool.borrowObject(address);
+        Connection c2 = pool.borrowObject(address);
+        Assert.assertEquals(2, pool.getNumActive(address));
+        // 超过maxTotalPerKey等待超时
+        try {
+            pool.borrowObject(address);
+            Assert.fail();
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+
+        // 超过maxIdlePerKey关闭
+        pool.returnObject(address, c1);
+        pool.returnObject(address, c2);
+        Assert.assertEquals(0, pool.getNumActive(address));
+        Assert.assertEquals(1, pool.getNumIdle(address));
+        Assert.assertTrue(c2.isClosed());
+        Assert.assertSame(c1, pool.borrowObject(address));
+
+        pool.invalidateObject(address, c1);
+        Assert.assertTrue(c1.isClosed());
+        Assert.assertEquals(0, pool.getNumActive(address));
+        Assert.assertEquals(2, pool.getCreatedCount());
+        Assert.assertEquals(2, pool.getDestroyedCount());
+
+        pool.close();
+        try {
+            pool.borrowObject(address);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void evictTest() throws Exception {
+        poolConfig.setMinIdlePerKey(0);
+        poolConfig.setMinEvictableIdleTimeMillis(50);
+        poolConfig.setTimeBetweenEvictionRunsMillis(50);
+        LockFreeConnectionPool pool = new LockFreeConnectionPool(configuration);
+        pool.addObject(address);
+        Assert.assertEquals(1, pool.getNumIdle(address));
+        Thread.sleep(500);
+        Assert.assertEquals(0, pool.getNumIdle(address));
+        Assert.assertEquals(1, pool.getDestroyedCount());
+        pool.close();
+    }
+
+    @Test
+    public void validateTest() throws Exception {
+        // 服务端不响应ACTIVE_TEST 检测必然失败
+        configuration.setSocketTimeout(100);
+        poolConfig.setTestOnBorrow(true);
+        LockFreeConnectionPool pool = new LockFreeConnectionPool(configuration);
+        Connection conn = pool.borrowObject(address);
+        pool.returnObject(address, conn);
+        Assert.assertSame(conn, pool.borrowObject(address));
+        pool.returnObject(address, conn);
+        pool.close();
+
+        configuration.setValidateAfterIdleMillis(0);
+        pool = new LockFreeConnectionPool(configuration);
+        conn = pool.borrowObject(address);
+        pool.returnObject(address, conn);
+        Assert.assertNotSame(conn, pool.borrowObject(address));
+        Assert.assertTrue(conn.isClosed());
+        pool.close();
+
+        PooledConnectionFactory factory = new PooledConnectionFactory(configuration);
+        conn = factory.create(address);
+        Assert.assertFalse(factory.validateObject(address, new DefaultPooledObject<>(conn)));
+        factory.setValidateAfterIdleMillis(1000);
+        Assert.assertTrue(factory.validateObject(address, new DefaultPooledObject<>(conn)));
+        conn.close();
+    }
+}
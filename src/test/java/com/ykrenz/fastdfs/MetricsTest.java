@@ -0,0 +1,91 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.metrics.CommandSample;
+import com.ykrenz.fastdfs.metrics.CommandStatsSnapshot;
+import com.ykrenz.fastdfs.metrics.DefaultFdfsMetrics;
+import com.ykrenz.fastdfs.metrics.LatencyHistogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsTest {
+
+    @Test
+    public void histogramTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getPercentileMicros(0.99));
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(10000, histogram.getMaxMicros());
+        // 在所在桶内插值 不超过最大值
+        long p50 = histogram.getPercentileMicros(0.5);
+        Assert.assertTrue(p50 >= 64 && p50 < 128);
+        Assert.assertEquals(10000, histogram.getPercentileMicros(0.99));
+        Assert.assertEquals(1090, histogram.getMeanMicros(), 0.001);
+
+        // 均匀分布时百分位接近实际值
+        histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        Assert.assertEquals(950, histogram.getPercentileMicros(0.95), 50);
+    }
+
+    @Test
+    public void recordTest() throws Exception {
+        DefaultFdfsMetrics metrics = new DefaultFdfsMetrics();
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", 23000);
+        for (int i = 0; i < 3; i++) {
+            CommandSample sample = new CommandSample("StorageUploadFileCommand", address);
+            sample.borrowed();
+            sample.sent(100);
+            sample.responded();
+            sample.received(50);
+            if (i == 0) {
+                sample.failed(new RuntimeException());
+            }
+            sample.finish();
+            metrics.record(sample);
+        }
+        CommandSample sample = new CommandSample("TrackerGetStoreStorageCommand", address);
+        sample.finish();
+        metrics.record(sample);
+
+        Assert.assertEquals(4, metrics.getCommandCount());
+        Assert.assertEquals(1, metrics.getErrorCount());
+        List<CommandStatsSnapshot> stats = metrics.getCommandStats();
+        Assert.assertEquals(2, stats.size());
+        CommandStatsSnapshot upload = stats.get(0);
+        Assert.assertEquals("StorageUploadFileCommand", upload.getCommand());
+        Assert.assertEquals("127.0.0.1:23000", upload.getAddress());
+        Assert.assertEquals(3, upload.getCount());
+        Assert.assertEquals(300, upload.getBytesOut());
+        Assert.assertEquals(150, upload.getBytesIn());
+        Assert.assertEquals(3, upload.getServer().getCount());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.ykren.fastdfs.conn:type=FdfsMetrics,name=metricsTest");
+        server.registerMBean(metrics, name);
+        try {
+            Assert.assertEquals(4L, server.getAttribute(name, "CommandCount"));
+            CompositeData[] data = (CompositeData[]) server.getAttribute(name, "CommandStats");
+            Assert.assertEquals(2, data.length);
+            server.invoke(name, "reset", null, null);
+            Assert.assertEquals(0L, server.getAttribute(name, "CommandCount"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
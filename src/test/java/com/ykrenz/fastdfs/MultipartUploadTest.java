@@ -3,6 +3,7 @@ package com.ykrenz.fastdfs;
 import com.ykrenz.fastdfs.common.Crc32;
 import com.ykrenz.fastdfs.model.CompleteMultipartRequest;
 import com.ykrenz.fastdfs.model.InitMultipartUploadRequest;
+import com.ykrenz.fastdfs.model.ParallelMultipartUploadRequest;
 import com.ykrenz.fastdfs.model.fdfs.FileInfo;
 import com.ykrenz.fastdfs.model.fdfs.MetaData;
 import com.ykrenz.fastdfs.model.fdfs.StorePath;
@@ -93,4 +94,27 @@ public class MultipartUploadTest extends BaseClientTest {
         delete(resultPath);
     }
 
+    @Test
+    public void multipartParallelTest() throws IOException {
+        int length = 1024 * 1024 * 33;
+        RandomTextFile file = new RandomTextFile(length);
+
+        File sampleFile = new File("tmp", "sampleFile.txt");
+        FileUtils.copyToFile(file.getInputStream(), sampleFile);
+
+        ParallelMultipartUploadRequest request = ParallelMultipartUploadRequest.builder()
+                .file(sampleFile)
+                .partSize(5 * 1024 * 1024L)
+                .parallelism(3)
+                .metaData("test_key", "test_value")
+                .build();
+        StorePath storePath = fastDFS.uploadMultipartParallel(request);
+
+        long crc32 = Crc32.file(sampleFile);
+        FileInfo fileInfo = queryFile(storePath);
+        Assert.assertEquals(crc32, Crc32.convertUnsigned(fileInfo.getCrc32()));
+        LOGGER.info("并行上传成功 path={} crc32={}", storePath, crc32);
+        delete(storePath);
+    }
+
 }
@@ -0,0 +1,103 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.cache.StorageRouteCache;
+import com.ykrenz.fastdfs.cache.StorageStateCache;
+import com.ykrenz.fastdfs.model.fdfs.FileNameInfo;
+import com.ykrenz.fastdfs.model.fdfs.StorageNodeInfo;
+import com.ykrenz.fastdfs.model.fdfs.StorageState;
+import com.ykrenz.fastdfs.model.proto.OtherConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Date;
+
+public class StorageRouteCacheTest {
+
+    /**
+     * 按fastdfs规则生成文件名
+     */
+    private String fileName(int ip, int createTime) {
+        return fileName(ip, createTime, 1024L, "");
+    }
+
+    private String fileName(int ip, int createTime, long fileSize, String prefix) {
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        buffer.putInt(ip).putInt(createTime).putLong(fileSize).putInt(123);
+        return "M00/00/00/" + Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array()) + prefix
+                + ".jpeg";
+    }
+
+    @Test
+    public void decodeTest() {
+        int ip = (192 << 24) | (168 << 16) | (100 << 8) | 200;
+        FileNameInfo info = FileNameInfo.decode(fileName(ip, 1644825600));
+        Assert.assertNotNull(info);
+        Assert.assertEquals("192.168.100.200", info.getSourceIpAddr());
+        Assert.assertEquals(1644825600L, info.getCreateTime());
+        Assert.assertEquals(1024L, info.getFileSize());
+        Assert.assertEquals(123, info.getCrc32());
+
+        Assert.assertEquals(1024L, info.getContentSize());
+        Assert.assertFalse(info.isAppenderFile());
+
+        // appender文件和从文件无法由文件名得到大小 最高位为1时低32位为大小
+        Assert.assertEquals(-1, FileNameInfo.decode(fileName(ip, 1, OtherConstants.APPENDER_FILE_SIZE, "")).getContentSize());
+        Assert.assertTrue(FileNameInfo.decode(fileName(ip, 1, OtherConstants.APPENDER_FILE_SIZE, "")).isAppenderFile());
+        Assert.assertEquals(-1, FileNameInfo.decode(fileName(ip, 1, 1024L, "_150x150")).getContentSize());
+        Assert.assertEquals(1024L, FileNameInfo.decode(fileName(ip, 1, (0x80001234L << 32) | 1024L, ""))
+                .getContentSize());
+        Assert.assertEquals(1024L, FileNameInfo.decode(fileName(ip, 1, OtherConstants.TRUNK_FILE_MARK_SIZE | 1024L, ""))
+                .getContentSize());
+
+        Assert.assertNull(FileNameInfo.decode("abc.txt"));
+        Assert.assertNull(FileNameInfo.decode(null));
+    }
+
+    @Test
+    public void syncedTest() {
+        int ip = (192 << 24) | (168 << 16) | (100 << 8) | 200;
+        int createTime = (int) (System.currentTimeMillis() / 1000);
+        FileNameInfo info = FileNameInfo.decode(fileName(ip, createTime));
+        StorageState source = new StorageState();
+        source.setIpAddr("192.168.100.200");
+        StorageState replica = new StorageState();
+        replica.setIpAddr("192.168.100.201");
+        replica.setLastSyncedTimestamp(new Date((createTime - 10) * 1000L));
+
+        // 源storage已有文件 其他storage同步时间戳晚于创建时间或超过最大同步延迟时才有文件
+        Assert.assertTrue(StorageStateCache.hasSynced(source, info, 86400));
+        Assert.assertFalse(StorageStateCache.hasSynced(replica, info, 86400));
+        replica.setLastSyncedTimestamp(new Date((createTime + 1) * 1000L));
+        Assert.assertTrue(StorageStateCache.hasSynced(replica, info, 86400));
+        replica.setLastSyncedTimestamp(null);
+        Assert.assertFalse(StorageStateCache.hasSynced(replica, info, 86400));
+        Assert.assertTrue(StorageStateCache.hasSynced(replica, FileNameInfo.decode(fileName(ip, createTime - 100)), 60));
+    }
+
+    @Test
+    public void cacheTest() throws InterruptedException {
+        StorageRouteCache cache = new StorageRouteCache(100, 200);
+        StorageNodeInfo storage1 = new StorageNodeInfo("10.10.10.110", 23000);
+        StorageNodeInfo storage2 = new StorageNodeInfo("10.10.10.111", 23000);
+        String path1 = fileName(1, 1);
+        String path2 = fileName(1, 2);
+        cache.putFetchStorage("group1", path1, storage1);
+        cache.putUpdateStorage("group1", path1, storage2);
+
+        Assert.assertSame(storage1, cache.getFetchStorage("group1", path1));
+        Assert.assertNull(cache.getFetchStorage("group1", path2));
+        // 同一源storage的文件共享更新storage
+        Assert.assertSame(storage2, cache.getUpdateStorage("group1", path2));
+        Assert.assertNull(cache.getUpdateStorage("group2", path2));
+
+        cache.invalidate(new InetSocketAddress("10.10.10.111", 23000));
+        Assert.assertNull(cache.getUpdateStorage("group1", path1));
+        Assert.assertSame(storage1, cache.getFetchStorage("group1", path1));
+
+        Thread.sleep(300);
+        Assert.assertNull(cache.getFetchStorage("group1", path1));
+    }
+}
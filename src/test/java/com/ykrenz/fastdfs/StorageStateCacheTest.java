@@ -0,0 +1,151 @@
+package com.ykrenz.fastdfs;
+
+import com.ykrenz.fastdfs.cache.StorageStateCache;
+import com.ykrenz.fastdfs.model.fdfs.GroupState;
+import com.ykrenz.fastdfs.model.fdfs.StorageNode;
+import com.ykrenz.fastdfs.model.fdfs.StorageNodeInfo;
+import com.ykrenz.fastdfs.model.fdfs.StorageState;
+import com.ykrenz.fastdfs.model.proto.OtherConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class StorageStateCacheTest {
+
+    private final Map<InetSocketAddress, Integer> active = new HashMap<>();
+
+    private GroupState group(String name, long freeMB) {
+        GroupState group = new GroupState();
+        group.setGroupName(name);
+        group.setFreeMB(freeMB);
+        return group;
+    }
+
+    private StorageState storage(String ip, byte status, long freeMB, long uploads) {
+        StorageState storage = new StorageState();
+        storage.setIpAddr(ip);
+        storage.setStoragePort(23000);
+        storage.setStatus(status);
+        storage.setFreeMB(freeMB);
+        storage.setTotalUploadCount(uploads);
+        storage.setCurrentWritePath(1);
+        return storage;
+    }
+
+    private StorageStateCache cache(long refreshMillis) {
+        return new StorageStateCache(null,
+                address -> active.getOrDefault(address, 0), refreshMillis, 1024);
+    }
+
+    @Test
+    public void selectTest() throws InterruptedException {
+        StorageStateCache cache = cache(200);
+        Assert.assertNull(cache.select("group1"));
+
+        List<GroupState> groups = Arrays.asList(group("group1", 10000), group("group2", 20000));
+        Map<String, List<StorageState>> storages = new HashMap<>();
+        storages.put("group1", Arrays.asList(
+                storage("10.0.0.1", OtherConstants.FDFS_STORAGE_STATUS_ACTIVE, 5000, 10),
+                storage("10.0.0.2", OtherConstants.FDFS_STORAGE_STATUS_ACTIVE, 5000, 10),
+                storage("10.0.0.3", OtherConstants.FDFS_STORAGE_STATUS_OFFLINE, 5000, 10),
+                storage("10.0.0.4", OtherConstants.FDFS_STORAGE_STATUS_ACTIVE, 100, 10)));
+        storages.put("group2", Arrays.asList(
+                storage("10.0.1.1", OtherConstants.FDFS_STORAGE_STATUS_ACTIVE, 20000, 10)));
+        cache.update(groups, storages);
+
+        // 未指定group时选择剩余空间最大的group
+        StorageNode node = cache.select(null);
+        Assert.assertEquals("group2", node.getGroupName());
+        Assert.assertEquals("10.0.1.1", node.getIp());
+        Assert.assertEquals(1, node.getStoreIndex());
+
+        // 离线和空间不足的storage不参与选择 活动连接少的优先
+        InetSocketAddress first = new InetSocketAddress("10.0.0.1", 23000);
+        active.put(first, 5);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("10.0.0.2", cache.select("group1").getIp());
+        }
+
+        // 失败的storage在下次刷新前不再选择
+        cache.markFailed(new InetSocketAddress("10.0.0.2", 23000));
+        Assert.assertEquals("10.0.0.1", cache.select("group1").getIp());
+        cache.markFailed(first);
+        Assert.assertNull(cache.select("group1"));
+        Assert.assertNull(cache.select("group3"));
+
+        // 负载相同时上个周期上传次数少的优先
+        active.clear();
+        storages.put("group1", Arrays.asList(
+                storage("10.0.0.1", OtherConstants.FDFS_STORAGE_STATUS_ACTIVE, 5000, 100),
+                storage("10.0.0.2", OtherConstants.FDFS_STORAGE_STATUS_ACTIVE, 5000, 20)));
+        cache.update(groups, storages);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("10.0.0.2", cache.select("group1").getIp());
+        }
+
+        // 状态过期后回退到tracker
+        Thread.sleep(700);
+        Assert.assertNull(cache.select("group1"));
+    }
+
+    /**
+     * 按fastdfs规则生成文件名 源storage为10.0.0.1
+     */
+    private String fileName(long createTime, long fileSize) {
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        buffer.putInt((10 << 24) | 1).putInt((int) createTime).putLong(fileSize).putInt(123);
+        return "M00/00/00/" + Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array()) + ".txt";
+    }
+
+    @Test
+    public void selectReplicaTest() {
+        StorageStateCache cache = cache(60000);
+        long now = System.currentTimeMillis() / 1000;
+        String newFile = fileName(now, 1024);
+        Assert.assertNull(cache.selectReplica("group1", newFile, 86400));
+
+        StorageState source = storage("10.0.0.1", OtherConstants.FDFS_STORAGE_STATUS_ACTIVE, 100, 0);
+        StorageState synced = storage("10.0.0.2", OtherConstants.FDFS_STORAGE_STATUS_ACTIVE, 100, 0);
+        synced.setLastSyncedTimestamp(new Date((now + 10) * 1000));
+        StorageState lagging = storage("10.0.0.3", OtherConstants.FDFS_STORAGE_STATUS_ACTIVE, 100, 0);
+        lagging.setLastSyncedTimestamp(new Date((now - 10) * 1000));
+        Map<String, List<StorageState>> storages = new HashMap<>();
+        storages.put("group1", Arrays.asList(source, synced, lagging,
+                storage("10.0.0.4", OtherConstants.FDFS_STORAGE_STATUS_OFFLINE, 5000, 0)));
+        cache.update(Arrays.asList(group("group1", 10000)), storages);
+
+        // 未同步的新文件只在源storage和已同步的storage间选择
+        Set<String> ips = new HashSet<>();
+        for (int i = 0; i < 64; i++) {
+            ips.add(cache.selectReplica("group1", newFile, 86400).getIp());
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("10.0.0.1", "10.0.0.2")), ips);
+
+        // 超过最大同步延迟的文件可从所有ACTIVE storage读取 活动连接少的优先
+        String oldFile = fileName(now - 100, 1024);
+        active.put(new InetSocketAddress("10.0.0.1", 23000), 2);
+        active.put(new InetSocketAddress("10.0.0.2", 23000), 1);
+        for (int i = 0; i < 3; i++) {
+            StorageNodeInfo node = cache.selectReplica("group1", oldFile, 60);
+            Assert.assertEquals("10.0.0.3", node.getIp());
+        }
+
+        // 失败的storage不再选择 appender文件和无法解析的文件由tracker选择
+        cache.markFailed(new InetSocketAddress("10.0.0.1", 23000));
+        cache.markFailed(new InetSocketAddress("10.0.0.2", 23000));
+        Assert.assertNull(cache.selectReplica("group1", newFile, 86400));
+        Assert.assertNull(cache.selectReplica("group1", fileName(now - 100, OtherConstants.APPENDER_FILE_SIZE), 60));
+        Assert.assertNull(cache.selectReplica("group1", "abc.txt", 60));
+        Assert.assertNull(cache.selectReplica("group2", oldFile, 60));
+    }
+}
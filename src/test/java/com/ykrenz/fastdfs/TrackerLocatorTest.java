@@ -1,5 +1,6 @@
 package com.ykrenz.fastdfs;
 
+import com.ykrenz.fastdfs.model.fdfs.TrackerAddressHolder;
 import com.ykrenz.fastdfs.model.fdfs.TrackerLocator;
 import org.junit.Assert;
 import org.junit.Test;
@@ -103,4 +104,33 @@ public class TrackerLocatorTest {
 
         service.shutdown();
     }
+
+    @Test
+    public void latencyTest() {
+        List<String> trackerServers = init();
+        TrackerLocator trackerLocator = new TrackerLocator(trackerServers);
+        TrackerAddressHolder slow = trackerLocator.selectTracker();
+        slow.requestStarted();
+        slow.requestFinished(TimeUnit.MILLISECONDS.toNanos(100));
+        // 慢的tracker不再被选中
+        for (int i = 0; i < 30; i++) {
+            Assert.assertNotSame(slow, trackerLocator.selectTracker());
+        }
+
+        // 进行中的请求多的tracker优先级低
+        TrackerAddressHolder busy = trackerLocator.selectTracker();
+        busy.requestStarted();
+        busy.requestStarted();
+        int busyCount = 0;
+        for (int i = 0; i < 30; i++) {
+            TrackerAddressHolder holder = trackerLocator.selectTracker();
+            Assert.assertNotSame(slow, holder);
+            if (holder == busy) {
+                busyCount++;
+            }
+        }
+        // 只有与慢的tracker比较时才会选中
+        Assert.assertEquals(10, busyCount);
+        Assert.assertEquals(2, busy.getInFlight());
+    }
 }